@@ -0,0 +1,46 @@
+import com.coveo.pushapiclient.*;
+import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentStreamDocuments {
+
+    public static void main(String[] args) throws IOException, InterruptedException, NoOpenStreamException {
+
+        PlatformUrl platformUrl = new PlatformUrlBuilder().withEnvironment(Environment.PRODUCTION).withRegion(Region.US).build();
+        CatalogSource catalogSource = CatalogSource.fromPlatformUrl("my_api_key","my_org_id","my_source_id", platformUrl);
+
+        // Like the Stream Service, this acts as a source rebuild, but documents can be added from several threads at once.
+        // Each of the 4 stripes batches and uploads its documents independently, within the same stream.
+        ConcurrentStreamService streamService = new ConcurrentStreamService(
+                catalogSource, new BackoffOptionsBuilder().build(), null, new UploadOptionsBuilder().build(), 4);
+
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int producer = 0; producer < 4; producer++) {
+            int offset = producer;
+            tasks.add(producers.submit(() -> {
+                for (int i = offset; i < 10000; i += 4) {
+                    streamService.add(new DocumentBuilder("https://my.document.uri/" + i, "My document " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+        producers.shutdown();
+
+        // Close the stream once every producer is done.
+        streamService.close();
+    }
+}
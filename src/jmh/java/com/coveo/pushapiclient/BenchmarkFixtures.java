@@ -0,0 +1,144 @@
+package com.coveo.pushapiclient;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Realistic documents and identities shared by the benchmarks. */
+public final class BenchmarkFixtures {
+
+  /** The kinds of documents the benchmarks can be parameterized with. */
+  public enum DocumentKind {
+    /** A title, a few standard fields and a short body. */
+    SMALL,
+    /** A hundred metadata values of mixed types, as found in commerce catalogs. */
+    METADATA_HEAVY,
+    /** A 64 KB binary payload encoded in Base64. */
+    COMPRESSED_BINARY_DATA,
+    /** A thousand allowed and a hundred denied identities. */
+    LARGE_PERMISSIONS
+  }
+
+  private BenchmarkFixtures() {}
+
+  static DocumentBuilder document(DocumentKind kind, int index) {
+    Random random = new Random(index);
+    DocumentBuilder document =
+        new DocumentBuilder("https://www.example.com/documents/" + index, "Document #" + index)
+            .withAuthor("Benchmark")
+            .withDate(1700000000000L + index)
+            .withClickableUri("https://www.example.com/documents/" + index + "?view=html")
+            .withFileExtension(".html");
+
+    switch (kind) {
+      case SMALL:
+        return document.withData("<html><body>Document " + index + "</body></html>");
+      case METADATA_HEAVY:
+        return document.withMetadata(metadata(random));
+      case COMPRESSED_BINARY_DATA:
+        byte[] binary = new byte[64 * 1024];
+        random.nextBytes(binary);
+        return document.withCompressedBinaryData(
+            new CompressedBinaryData(
+                Base64.getEncoder().encodeToString(binary), CompressionType.UNCOMPRESSED));
+      case LARGE_PERMISSIONS:
+        return document
+            .withAllowAnonymousUsers(false)
+            .withAllowedPermissions(
+                new UserSecurityIdentityBuilder(emails("allowed", 1000), "Email Security Provider"))
+            .withDeniedPermissions(
+                new UserSecurityIdentityBuilder(emails("denied", 100), "Email Security Provider"));
+      default:
+        throw new IllegalArgumentException("Unknown document kind " + kind);
+    }
+  }
+
+  static List<DocumentBuilder> documents(DocumentKind kind, int count) {
+    List<DocumentBuilder> documents = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      documents.add(document(kind, i));
+    }
+    return documents;
+  }
+
+  static List<DeleteDocument> deletions(int count) {
+    List<DeleteDocument> deletions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      deletions.add(new DeleteDocument("https://www.example.com/deleted/" + i));
+    }
+    return deletions;
+  }
+
+  static List<PartialUpdateDocument> partialUpdates(int count) {
+    List<PartialUpdateDocument> partialUpdates = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      partialUpdates.add(
+          new PartialUpdateDocument(
+              "https://www.example.com/documents/" + i,
+              PartialUpdateOperator.FIELDVALUEREPLACE,
+              "price",
+              i * 1.5));
+    }
+    return partialUpdates;
+  }
+
+  static BatchIdentity batchIdentity(int count) {
+    List<SecurityIdentityModel> members = new ArrayList<>(count);
+    List<SecurityIdentityAliasModel> mappings = new ArrayList<>(count);
+    List<IdentityModel> deleted = new ArrayList<>(count);
+    IdentityModel[] wellKnowns = {
+      new IdentityModel("Everyone", SecurityIdentityType.GROUP, new HashMap<>())
+    };
+    for (int i = 0; i < count; i++) {
+      IdentityModel group =
+          new IdentityModel("group-" + i, SecurityIdentityType.GROUP, new HashMap<>());
+      IdentityModel[] groupMembers = new IdentityModel[20];
+      for (int j = 0; j < groupMembers.length; j++) {
+        groupMembers[j] =
+            new IdentityModel(
+                "user-" + i + "-" + j + "@example.com", SecurityIdentityType.USER, new HashMap<>());
+      }
+      members.add(new SecurityIdentityModel(groupMembers, group, wellKnowns));
+      mappings.add(
+          new SecurityIdentityAliasModel(
+              new AliasMapping[] {
+                new AliasMapping(
+                    "Alias Provider", "alias-" + i, SecurityIdentityType.USER, new HashMap<>())
+              },
+              new IdentityModel(
+                  "user-" + i + "@example.com", SecurityIdentityType.USER, new HashMap<>()),
+              wellKnowns));
+      deleted.add(
+          new IdentityModel("former-" + i + "@example.com", SecurityIdentityType.USER, null));
+    }
+    return new BatchIdentity(members, mappings, deleted);
+  }
+
+  private static Map<String, Object> metadata(Random random) {
+    Map<String, Object> metadata = new HashMap<>();
+    for (int i = 0; i < 40; i++) {
+      metadata.put("text" + i, "value " + random.nextInt());
+    }
+    for (int i = 0; i < 30; i++) {
+      metadata.put("number" + i, random.nextInt(100000));
+    }
+    for (int i = 0; i < 20; i++) {
+      metadata.put("tags" + i, new String[] {"red", "green", "blue", "tag" + random.nextInt(50)});
+    }
+    for (int i = 0; i < 10; i++) {
+      metadata.put("sizes" + i, new Integer[] {random.nextInt(10), random.nextInt(20)});
+    }
+    return metadata;
+  }
+
+  private static String[] emails(String prefix, int count) {
+    String[] emails = new String[count];
+    for (int i = 0; i < count; i++) {
+      emails[i] = prefix + "-" + i + "@example.com";
+    }
+    return emails;
+  }
+}
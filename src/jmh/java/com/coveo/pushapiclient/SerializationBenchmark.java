@@ -0,0 +1,100 @@
+package com.coveo.pushapiclient;
+
+import com.coveo.pushapiclient.BenchmarkFixtures.DocumentKind;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the marshalling of documents and batches. Throughput mode reports ops/s, sample time
+ * mode reports the latency percentiles, and the gc profiler enabled by the benchmark profile
+ * reports the allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Param({"SMALL", "METADATA_HEAVY", "COMPRESSED_BINARY_DATA", "LARGE_PERMISSIONS"})
+  public DocumentKind kind;
+
+  private DocumentBuilder document;
+  private BatchUpdate batchUpdate;
+  private StreamUpdate streamUpdate;
+  private BatchIdentity batchIdentity;
+  private byte[] buffer;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.document = BenchmarkFixtures.document(this.kind, 0);
+    this.batchUpdate =
+        new BatchUpdate(
+            BenchmarkFixtures.documents(this.kind, BATCH_SIZE),
+            BenchmarkFixtures.deletions(BATCH_SIZE / 10));
+    this.streamUpdate =
+        new StreamUpdate(
+            BenchmarkFixtures.documents(this.kind, BATCH_SIZE),
+            BenchmarkFixtures.deletions(BATCH_SIZE / 10),
+            BenchmarkFixtures.partialUpdates(BATCH_SIZE / 10));
+    this.batchIdentity = BenchmarkFixtures.batchIdentity(BATCH_SIZE);
+    this.buffer = new byte[8192];
+  }
+
+  @Benchmark
+  public String documentMarshal() {
+    return this.document.marshal();
+  }
+
+  @Benchmark
+  public byte[] documentEncode() {
+    return this.document.encode();
+  }
+
+  @Benchmark
+  public BatchUpdateRecord batchUpdateMarshal() {
+    return this.batchUpdate.marshal();
+  }
+
+  @Benchmark
+  public StreamUpdateRecord streamUpdateMarshal() {
+    return this.streamUpdate.marshal();
+  }
+
+  /** The work done to send a stream update: sizing the body, then streaming it. */
+  @Benchmark
+  public long streamUpdatePayload(Blackhole blackhole) throws IOException {
+    BatchPayload payload = this.streamUpdate.toPayload();
+    blackhole.consume(payload.contentLength());
+    long total = 0;
+    try (InputStream body = payload.openStream()) {
+      int read;
+      while ((read = body.read(this.buffer)) != -1) {
+        total += read;
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public BatchIdentityRecord batchIdentityMarshal() {
+    return this.batchIdentity.marshal();
+  }
+}
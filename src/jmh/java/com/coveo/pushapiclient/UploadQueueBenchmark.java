@@ -0,0 +1,51 @@
+package com.coveo.pushapiclient;
+
+import com.coveo.pushapiclient.BenchmarkFixtures.DocumentKind;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DocumentUploadQueue#add} with an uploader that does nothing, so that only the
+ * sizing, batching and sealing of documents is accounted for.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UploadQueueBenchmark {
+
+  private static final int DISTINCT_DOCUMENTS = 256;
+
+  @Param({"SMALL", "METADATA_HEAVY", "COMPRESSED_BINARY_DATA", "LARGE_PERMISSIONS"})
+  public DocumentKind kind;
+
+  private DocumentUploadQueue queue;
+  private List<DocumentBuilder> documents;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    this.queue = new DocumentUploadQueue(batchUpdate -> null, new UploadOptionsBuilder().build());
+    this.documents = BenchmarkFixtures.documents(this.kind, DISTINCT_DOCUMENTS);
+  }
+
+  @Benchmark
+  public void add() throws IOException, InterruptedException {
+    this.queue.add(this.documents.get(this.next++ % DISTINCT_DOCUMENTS));
+  }
+}
@@ -0,0 +1,126 @@
+package com.coveo.pushapiclient;
+
+import com.coveo.pushapiclient.BenchmarkFixtures.DocumentKind;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to upload many batches concurrently to a local stub server that answers each
+ * upload after a fixed latency, with uploads running on platform threads or on virtual threads.
+ * Virtual threads require Java 21 or later. On older runtimes both modes use platform threads.
+ *
+ * <p>The queue, and with it the upload threads, is created once per trial, so that only the uploads
+ * are measured and not the creation of their threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UploadThreadsBenchmark {
+
+  private static final int BATCHES = 512;
+  private static final int SERVER_LATENCY_MS = 20;
+
+  @Param({"false", "true"})
+  public boolean virtualThreads;
+
+  @Param({"16", "256"})
+  public int maxConcurrentUploads;
+
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private ApiCore api;
+  private URI uploadUri;
+  private List<DocumentBuilder> documents;
+  private DocumentUploadQueue queue;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    this.serverExecutor = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+    this.server.createContext(
+        "/upload",
+        exchange -> {
+          try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+            Thread.sleep(SERVER_LATENCY_MS);
+            exchange.sendResponseHeaders(200, -1);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            exchange.close();
+          }
+        });
+    this.server.setExecutor(this.serverExecutor);
+    this.server.start();
+
+    this.uploadUri =
+        URI.create("http://localhost:" + this.server.getAddress().getPort() + "/upload");
+    ClientContext context =
+        new ClientContextBuilder()
+            .withHttpVersion(java.net.http.HttpClient.Version.HTTP_1_1)
+            .withVirtualThreads(this.virtualThreads)
+            .build();
+    this.api =
+        new ApiCore(
+            context.getHttpClient(),
+            LogManager.getLogger(ApiCore.class),
+            new BackoffOptionsBuilder().build());
+    this.documents = BenchmarkFixtures.documents(DocumentKind.SMALL, BATCHES);
+
+    UploadOptions options =
+        new UploadOptionsBuilder()
+            .withBatchSize(1)
+            .withMaxConcurrentUploads(this.maxConcurrentUploads)
+            .withVirtualThreads(this.virtualThreads)
+            .build();
+    this.queue =
+        new DocumentUploadQueue(
+            batchUpdate ->
+                this.api.put(
+                    this.uploadUri,
+                    new String[] {"Content-Type", "application/json"},
+                    batchUpdate.toPayload().toBodyPublisher()),
+            options);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.queue.close();
+    this.server.stop(0);
+    this.serverExecutor.shutdownNow();
+  }
+
+  /** Uploads every document as its own batch, and waits for the last upload. */
+  @Benchmark
+  public void uploadBatches() throws IOException, InterruptedException {
+    for (DocumentBuilder document : this.documents) {
+      this.queue.add(document);
+    }
+    this.queue.flush();
+  }
+}
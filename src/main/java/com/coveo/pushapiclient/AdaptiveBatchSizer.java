@@ -0,0 +1,96 @@
+package com.coveo.pushapiclient;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Tunes the batch size of an upload queue between two bounds, using additive increase and
+ * multiplicative decrease (AIMD) on the outcome of each upload.
+ *
+ * <p>An upload that was throttled, or whose throughput fell well below the recent average, halves
+ * the batch size. Any other upload grows it by a fixed step. The batch size therefore settles near
+ * the largest size the platform accepts without throttling, and backs off quickly under pressure.
+ *
+ * <p>Since smaller batches have a lower throughput when the latency of a request dominates, only
+ * uploads at least as large as the recent average size are checked for slowness. A batch shrunk
+ * after throttling is therefore never considered slow just for being smaller.
+ */
+class AdaptiveBatchSizer {
+  private static final Logger logger = LogManager.getLogger(AdaptiveBatchSizer.class);
+
+  /** The fraction of the recent average throughput under which an upload is considered slow. */
+  static final double SLOW_UPLOAD_RATIO = 0.5;
+
+  private static final double DECREASE_FACTOR = 0.5;
+  private static final int INCREASE_STEPS = 32;
+  private static final double THROUGHPUT_SMOOTHING = 0.2;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final int increaseStep;
+  private int batchSize;
+  private double averageThroughput = -1;
+  private double averageBytes = -1;
+
+  /**
+   * @param minBatchSize The smallest batch size, in bytes.
+   * @param maxBatchSize The largest batch size, in bytes.
+   * @param initialBatchSize The batch size to start with, clamped between the bounds.
+   */
+  AdaptiveBatchSizer(int minBatchSize, int maxBatchSize, int initialBatchSize) {
+    if (minBatchSize <= 0 || minBatchSize > maxBatchSize) {
+      throw new IllegalArgumentException(
+          "Minimum batch size must be positive and not exceed the maximum batch size");
+    }
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.increaseStep = Math.max(1, (maxBatchSize - minBatchSize) / INCREASE_STEPS);
+    this.batchSize = Math.max(minBatchSize, Math.min(maxBatchSize, initialBatchSize));
+  }
+
+  /**
+   * @return The current batch size, in bytes.
+   */
+  synchronized int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /**
+   * Adjusts the batch size after an upload.
+   *
+   * @param bytes The size of the uploaded batch.
+   * @param elapsedNanos How long the upload took, throttled retries included.
+   * @param throttled Whether any request was throttled during the upload.
+   */
+  synchronized void onUpload(long bytes, long elapsedNanos, boolean throttled) {
+    double throughput = bytes / Math.max(elapsedNanos / 1e9, 1e-9);
+    boolean slow =
+        this.averageThroughput > 0
+            && bytes >= this.averageBytes
+            && throughput < this.averageThroughput * SLOW_UPLOAD_RATIO;
+    this.averageThroughput = smooth(this.averageThroughput, throughput);
+    this.averageBytes = smooth(this.averageBytes, bytes);
+
+    int previous = this.batchSize;
+    if (throttled || slow) {
+      this.batchSize = Math.max(this.minBatchSize, (int) (this.batchSize * DECREASE_FACTOR));
+    } else {
+      this.batchSize = (int) Math.min(this.maxBatchSize, (long) this.batchSize + this.increaseStep);
+    }
+    if (logger.isDebugEnabled() && previous != this.batchSize) {
+      logger.debug(
+          String.format(
+              "Batch size %s from %d to %d bytes (%s)",
+              this.batchSize > previous ? "increased" : "decreased",
+              previous,
+              this.batchSize,
+              throttled ? "throttled" : slow ? "slow upload" : "upload succeeded"));
+    }
+  }
+
+  private static double smooth(double average, double sample) {
+    return average < 0
+        ? sample
+        : average * (1 - THROUGHPUT_SMOOTHING) + sample * THROUGHPUT_SMOOTHING;
+  }
+}
@@ -1,25 +1,61 @@
 package com.coveo.pushapiclient;
 
-import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryConfig;
+import io.vavr.CheckedFunction0;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpResponse;
-import java.util.function.Function;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 class ApiCore {
+  /**
+   * Schedules the retries of asynchronous requests. Waiting between attempts does not hold a
+   * thread, so a single one is enough to drive any number of requests.
+   */
+  private static final ScheduledExecutorService retryScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "coveo-push-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+          });
+
   private final HttpClient httpClient;
   private final Logger logger;
   private final BackoffOptions options;
+  private final AtomicLong throttledResponses = new AtomicLong();
+  private final ThreadLocal<long[]> threadThrottledResponses =
+      ThreadLocal.withInitial(() -> new long[1]);
+  private final LongAdder retryAttempts = new LongAdder();
+  private final LongAdder successfulCallsAfterRetry = new LongAdder();
+  private final LongAdder exhaustedCalls = new LongAdder();
+  private RetryPolicy retryPolicy;
+  private Retry idempotentRetry;
+  private Retry nonIdempotentRetry;
+  private OrganizationRateLimiter rateLimiter;
+  private volatile Map<EndpointFamily, CircuitBreaker> circuitBreakers = Collections.emptyMap();
 
   public ApiCore() {
-    this(HttpClient.newHttpClient(), LogManager.getLogger(ApiCore.class));
+    this(ClientContext.getDefault().getHttpClient(), LogManager.getLogger(ApiCore.class));
   }
 
   public ApiCore(HttpClient httpClient, Logger logger) {
@@ -30,40 +66,321 @@ class ApiCore {
     this.httpClient = httpClient;
     this.logger = logger;
     this.options = options;
+    this.setRetryBudget(RetryBudget.global());
   }
 
+  /**
+   * Sends a request, retrying it as decided by the {@link RetryPolicy}.
+   *
+   * @param request The request to send.
+   * @return The response of the last attempt.
+   * @throws IOException If the last attempt could not be sent.
+   * @throws InterruptedException If the thread is interrupted while sending or waiting to retry.
+   */
   public HttpResponse<String> callApiWithRetries(HttpRequest request)
       throws IOException, InterruptedException {
-    IntervalFunction intervalFn =
-        IntervalFunction.ofExponentialRandomBackoff(
-            this.options.getRetryAfter(), this.options.getTimeMultiple());
+    return this.callApiWithRetries(request, BodyHandlers.ofString());
+  }
+
+  /**
+   * Sends a request like {@link #callApiWithRetries(HttpRequest)}, reading the body of its response
+   * with a handler suited to its endpoint.
+   *
+   * @param request The request to send.
+   * @param bodyHandler How to read the body of each response.
+   * @return The response of the last attempt.
+   * @throws IOException If the last attempt could not be sent.
+   * @throws InterruptedException If the thread is interrupted while sending or waiting to retry.
+   */
+  <T> HttpResponse<T> callApiWithRetries(HttpRequest request, BodyHandler<T> bodyHandler)
+      throws IOException, InterruptedException {
+    CheckedFunction0<HttpResponse<T>> retryRequestFn =
+        Retry.decorateCheckedSupplier(
+            this.retryFor(request), () -> this.sendRequest(request, bodyHandler));
+
+    try {
+      return retryRequestFn.apply();
+    } catch (IOException | InterruptedException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Sends a request without blocking the calling thread, retrying throttled requests like {@link
+   * #callApiWithRetries}. The wait between attempts is scheduled rather than slept.
+   *
+   * @param request The request to send.
+   * @return The response of the last attempt. Completes exceptionally if the request could not be
+   *     sent.
+   */
+  public CompletableFuture<HttpResponse<String>> callApiWithRetriesAsync(HttpRequest request) {
+    return this.callApiWithRetriesAsync(request, BodyHandlers.ofString());
+  }
+
+  <T> CompletableFuture<HttpResponse<T>> callApiWithRetriesAsync(
+      HttpRequest request, BodyHandler<T> bodyHandler) {
+    return Retry.decorateCompletionStage(
+            this.retryFor(request),
+            retryScheduler,
+            () -> this.sendRequestAsync(request, bodyHandler))
+        .get()
+        .toCompletableFuture();
+  }
+
+  /**
+   * Picks the retry of a request, and records it against the retry budget. The retries are built
+   * once per client and shared by its requests.
+   */
+  private Retry retryFor(HttpRequest request) {
+    this.retryPolicy.onRequest();
+    return RetryPolicy.isIdempotent(request.method())
+        ? this.idempotentRetry
+        : this.nonIdempotentRetry;
+  }
 
+  private Retry createRetry(String name, RetryPolicy policy, boolean idempotent) {
     RetryConfig retryConfig =
-        RetryConfig.<HttpResponse<String>>custom()
+        RetryConfig.<HttpResponse<?>>custom()
             .maxAttempts(this.options.getMaxRetries())
-            .intervalFunction(intervalFn)
-            .retryOnResult(response -> response != null && response.statusCode() == 429)
+            .intervalBiFunction(policy.intervalFunction())
+            .retryOnResult(response -> policy.shouldRetry(response, idempotent))
+            .retryOnException(e -> policy.shouldRetry(e, idempotent))
             .build();
 
-    Retry retry = Retry.of("platformRequest", retryConfig);
+    Retry retry = Retry.of(name, retryConfig);
+    retry
+        .getEventPublisher()
+        .onRetry(
+            event -> {
+              this.retryAttempts.increment();
+              policy.onRetry();
+            })
+        .onSuccess(event -> this.successfulCallsAfterRetry.increment())
+        .onError(event -> this.exhaustedCalls.increment());
+    return retry;
+  }
+
+  /**
+   * Spends retries from another budget than the one shared by every client.
+   *
+   * @param budget The budget to spend retries from.
+   */
+  void setRetryBudget(RetryBudget budget) {
+    this.retryPolicy = new RetryPolicy(this.options, budget);
+    this.idempotentRetry = this.createRetry("idempotentPlatformRequest", this.retryPolicy, true);
+    this.nonIdempotentRetry = this.createRetry("platformRequest", this.retryPolicy, false);
+  }
+
+  /**
+   * @return The retries made by this client so far.
+   */
+  RetryMetrics getRetryMetrics() {
+    return new RetryMetrics(
+        this.retryAttempts.sum(), this.successfulCallsAfterRetry.sum(), this.exhaustedCalls.sum());
+  }
+
+  /**
+   * Makes every request wait for the limits of its organization before being sent.
+   *
+   * @param rateLimiter The limiter of the organization, or null to send requests right away.
+   */
+  void setRateLimiter(OrganizationRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
 
-    Function<HttpRequest, HttpResponse<String>> retryRequestFn =
-        Retry.decorateFunction(retry, req -> sendRequest(req));
+  /**
+   * Guards each family of endpoints with its own circuit breaker. While a breaker is open, the
+   * requests of its family throw a {@link CircuitOpenException} without being sent or retried.
+   *
+   * @param options When breakers open and close, or null to always send requests.
+   */
+  void setCircuitBreakerOptions(CircuitBreakerOptions options) {
+    if (options == null) {
+      this.circuitBreakers = Collections.emptyMap();
+      return;
+    }
+    CircuitBreakerConfig config =
+        CircuitBreakerConfig.custom()
+            .failureRateThreshold(options.getFailureRateThreshold())
+            .slidingWindowSize(options.getSlidingWindowSize())
+            .minimumNumberOfCalls(options.getMinimumNumberOfCalls())
+            .waitDurationInOpenState(Duration.ofMillis(options.getWaitDurationInOpenState()))
+            .permittedNumberOfCallsInHalfOpenState(options.getPermittedCallsInHalfOpenState())
+            .build();
+
+    Map<EndpointFamily, CircuitBreaker> breakers = new EnumMap<>(EndpointFamily.class);
+    for (EndpointFamily family : EndpointFamily.values()) {
+      CircuitBreaker breaker = CircuitBreaker.of(family.name(), config);
+      breaker
+          .getEventPublisher()
+          .onStateTransition(
+              event ->
+                  this.logger.warn(
+                      "Circuit breaker of the "
+                          + family
+                          + " endpoints: "
+                          + event.getStateTransition()));
+      breakers.put(family, breaker);
+    }
+    this.circuitBreakers = breakers;
+  }
 
-    return retryRequestFn.apply(request);
+  /**
+   * @return The state of the circuit breaker of a family of endpoints, or null if there is none.
+   */
+  CircuitBreaker.State getCircuitBreakerState(EndpointFamily family) {
+    CircuitBreaker breaker = this.getCircuitBreaker(family);
+    return breaker != null ? breaker.getState() : null;
   }
 
-  public HttpResponse<String> sendRequest(HttpRequest request) {
-    String uri = request.uri().toString();
-    String reqMethod = request.method();
-    this.logger.debug(reqMethod + " " + uri);
+  /**
+   * @return The circuit breaker of a family of endpoints, or null if there is none.
+   */
+  CircuitBreaker getCircuitBreaker(EndpointFamily family) {
+    return this.circuitBreakers.get(family);
+  }
+
+  public HttpResponse<String> sendRequest(HttpRequest request)
+      throws IOException, InterruptedException {
+    return this.sendRequest(request, BodyHandlers.ofString());
+  }
+
+  <T> HttpResponse<T> sendRequest(HttpRequest request, BodyHandler<T> bodyHandler)
+      throws IOException, InterruptedException {
+    this.logRequest(request);
+    if (this.rateLimiter != null) {
+      this.rateLimiter.acquire(bodyLength(request));
+    }
+    CircuitBreaker breaker = this.acquireCircuitBreaker(request);
+    long start = System.nanoTime();
+    HttpResponse<T> response;
+    try {
+      response = this.httpClient.send(request, bodyHandler);
+    } catch (IOException e) {
+      recordOutcome(breaker, start, null, e);
+      throw e;
+    } catch (InterruptedException | RuntimeException e) {
+      // Not an outcome of the endpoint, but the permission must be returned, or a half-open
+      // breaker would run out of probes
+      if (breaker != null) {
+        breaker.releasePermission();
+      }
+      throw e;
+    }
+    recordOutcome(breaker, start, response, null);
+    this.countThrottling(response);
+    this.logResponse(response);
+    return response;
+  }
+
+  public CompletableFuture<HttpResponse<String>> sendRequestAsync(HttpRequest request) {
+    return this.sendRequestAsync(request, BodyHandlers.ofString());
+  }
+
+  <T> CompletableFuture<HttpResponse<T>> sendRequestAsync(
+      HttpRequest request, BodyHandler<T> bodyHandler) {
+    long wait = this.rateLimiter != null ? this.rateLimiter.reserve(bodyLength(request)) : 0;
+    if (wait > 0) {
+      return CompletableFuture.runAsync(
+              () -> {}, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS))
+          .thenCompose(ignored -> this.sendWithoutLimit(request, bodyHandler));
+    }
+    return this.sendWithoutLimit(request, bodyHandler);
+  }
+
+  private <T> CompletableFuture<HttpResponse<T>> sendWithoutLimit(
+      HttpRequest request, BodyHandler<T> bodyHandler) {
+    this.logRequest(request);
+    CircuitBreaker breaker;
     try {
-      HttpResponse<String> response =
-          this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-      this.logResponse(response);
-      return response;
-    } catch (IOException | InterruptedException e) {
-      throw new Error(e.getMessage());
+      breaker = this.acquireCircuitBreaker(request);
+    } catch (CircuitOpenException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    long start = System.nanoTime();
+    CompletableFuture<HttpResponse<T>> sent;
+    try {
+      sent = this.httpClient.sendAsync(request, bodyHandler);
+    } catch (RuntimeException e) {
+      if (breaker != null) {
+        breaker.releasePermission();
+      }
+      throw e;
+    }
+    return sent.whenComplete(
+            (response, failure) -> recordOutcome(breaker, start, response, failure))
+        .thenApply(
+            response -> {
+              this.countThrottling(response);
+              this.logResponse(response);
+              return response;
+            });
+  }
+
+  /**
+   * @return The circuit breaker of the request, once it allowed the request to be sent, or null if
+   *     the request is not guarded.
+   * @throws CircuitOpenException If the circuit breaker of the request is open.
+   */
+  private CircuitBreaker acquireCircuitBreaker(HttpRequest request) throws CircuitOpenException {
+    Map<EndpointFamily, CircuitBreaker> breakers = this.circuitBreakers;
+    if (breakers.isEmpty()) {
+      return null;
+    }
+    EndpointFamily family = EndpointFamily.of(request.uri());
+    CircuitBreaker breaker = family != null ? breakers.get(family) : null;
+    if (breaker != null && !breaker.tryAcquirePermission()) {
+      throw new CircuitOpenException(family);
+    }
+    return breaker;
+  }
+
+  /**
+   * Records a request as failed if it could not be sent or the server failed, and as successful
+   * otherwise. Client errors and throttling do not mean the endpoints are failing.
+   */
+  private static void recordOutcome(
+      CircuitBreaker breaker, long start, HttpResponse<?> response, Throwable failure) {
+    if (breaker == null) {
+      return;
+    }
+    long duration = System.nanoTime() - start;
+    if (failure != null) {
+      breaker.onError(duration, TimeUnit.NANOSECONDS, failure);
+    } else if (response != null && response.statusCode() >= 500) {
+      breaker.onError(
+          duration, TimeUnit.NANOSECONDS, new IOException("Server error " + response.statusCode()));
+    } else {
+      breaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * @return The number of throttled responses received so far, retried or not.
+   */
+  long getThrottledResponseCount() {
+    return this.throttledResponses.get();
+  }
+
+  /**
+   * @return The number of throttled responses received so far by the calling thread. Synchronous
+   *     requests, retries included, are counted on the thread that sent them, so the throttling of
+   *     a call is not mistaken for that of calls running concurrently on other threads.
+   */
+  long getThrottledResponseCountOnCurrentThread() {
+    return this.threadThrottledResponses.get()[0];
+  }
+
+  private static long bodyLength(HttpRequest request) {
+    return request.bodyPublisher().map(BodyPublisher::contentLength).orElse(0L);
+  }
+
+  private void countThrottling(HttpResponse<?> response) {
+    if (response != null && response.statusCode() == 429) {
+      this.throttledResponses.incrementAndGet();
+      this.threadThrottledResponses.get()[0]++;
     }
   }
 
@@ -79,6 +396,17 @@ class ApiCore {
     return response;
   }
 
+  <T> HttpResponse<T> post(URI uri, String[] headers, BodyHandler<T> bodyHandler)
+      throws IOException, InterruptedException {
+    HttpRequest request =
+        HttpRequest.newBuilder()
+            .headers(headers)
+            .uri(uri)
+            .POST(HttpRequest.BodyPublishers.ofString(""))
+            .build();
+    return this.callApiWithRetries(request, bodyHandler);
+  }
+
   public HttpResponse<String> put(URI uri, String[] headers, BodyPublisher body)
       throws IOException, InterruptedException {
     HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).PUT(body).build();
@@ -86,6 +414,12 @@ class ApiCore {
     return response;
   }
 
+  <T> HttpResponse<T> put(URI uri, String[] headers, BodyPublisher body, BodyHandler<T> bodyHandler)
+      throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).PUT(body).build();
+    return this.callApiWithRetries(request, bodyHandler);
+  }
+
   public HttpResponse<String> delete(URI uri, String[] headers)
       throws IOException, InterruptedException {
     HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).DELETE().build();
@@ -101,21 +435,89 @@ class ApiCore {
     return response;
   }
 
-  private void logResponse(HttpResponse<String> response) {
+  public CompletableFuture<HttpResponse<String>> postAsync(URI uri, String[] headers) {
+    return this.postAsync(uri, headers, HttpRequest.BodyPublishers.ofString(""));
+  }
+
+  public CompletableFuture<HttpResponse<String>> postAsync(
+      URI uri, String[] headers, BodyPublisher body) {
+    HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).POST(body).build();
+    return this.callApiWithRetriesAsync(request);
+  }
+
+  <T> CompletableFuture<HttpResponse<T>> postAsync(
+      URI uri, String[] headers, BodyHandler<T> bodyHandler) {
+    HttpRequest request =
+        HttpRequest.newBuilder()
+            .headers(headers)
+            .uri(uri)
+            .POST(HttpRequest.BodyPublishers.ofString(""))
+            .build();
+    return this.callApiWithRetriesAsync(request, bodyHandler);
+  }
+
+  public CompletableFuture<HttpResponse<String>> putAsync(
+      URI uri, String[] headers, BodyPublisher body) {
+    HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).PUT(body).build();
+    return this.callApiWithRetriesAsync(request);
+  }
+
+  <T> CompletableFuture<HttpResponse<T>> putAsync(
+      URI uri, String[] headers, BodyPublisher body, BodyHandler<T> bodyHandler) {
+    HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).PUT(body).build();
+    return this.callApiWithRetriesAsync(request, bodyHandler);
+  }
+
+  public CompletableFuture<HttpResponse<String>> deleteAsync(URI uri, String[] headers) {
+    HttpRequest request = HttpRequest.newBuilder().headers(headers).uri(uri).DELETE().build();
+    return this.callApiWithRetriesAsync(request);
+  }
+
+  public CompletableFuture<HttpResponse<String>> deleteAsync(
+      URI uri, String[] headers, BodyPublisher body) {
+    HttpRequest request =
+        HttpRequest.newBuilder().headers(headers).uri(uri).method("DELETE", body).build();
+    return this.callApiWithRetriesAsync(request);
+  }
+
+  private void logRequest(HttpRequest request) {
+    if (this.logger.isDebugEnabled()) {
+      this.logger.debug(request.method() + " " + request.uri());
+    }
+  }
+
+  /**
+   * Logs the status of a response, and its body if it was read as text. Successful responses are
+   * only logged at the debug level, so nothing is built for them unless it is enabled. Bodies are
+   * truncated to {@link ResponseBodies#MAX_LOGGED_LENGTH} characters.
+   */
+  private void logResponse(HttpResponse<?> response) {
     if (response == null) {
       return;
     }
     int status = response.statusCode();
+    boolean success = ResponseBodies.isSuccess(status);
+    if (success && !this.logger.isDebugEnabled()) {
+      return;
+    }
     String method = response.request().method();
     String statusMessage = method + " status: " + status;
-    String responseMessage = method + " response: " + response.body();
+    Object body = response.body();
+    String responseMessage =
+        body instanceof String && !((String) body).isEmpty()
+            ? method + " response: " + ResponseBodies.truncate((String) body)
+            : null;
 
-    if (status < 200 || status >= 300) {
-      this.logger.error(statusMessage);
-      this.logger.error(responseMessage);
-    } else {
+    if (success) {
       this.logger.debug(statusMessage);
-      this.logger.debug(responseMessage);
+      if (responseMessage != null) {
+        this.logger.debug(responseMessage);
+      }
+    } else {
+      this.logger.error(statusMessage);
+      if (responseMessage != null) {
+        this.logger.error(responseMessage);
+      }
     }
   }
 }
@@ -4,6 +4,7 @@ public class BackoffOptions {
   private final int retryAfter;
   private final int maxRetries;
   private final int timeMultiple;
+  private final int maxInterval;
 
   /**
    * @param retryAfter The amount of time, in milliseconds, to wait between throttled request
@@ -13,9 +14,23 @@ public class BackoffOptions {
    *     request attempt.
    */
   public BackoffOptions(int retryAfter, int maxRetries, int timeMultiple) {
+    this(retryAfter, maxRetries, timeMultiple, BackoffOptionsBuilder.DEFAULT_MAX_INTERVAL);
+  }
+
+  /**
+   * @param retryAfter The amount of time, in milliseconds, to wait between throttled request
+   *     attempts.
+   * @param maxRetries The maximum number of times to retry throttled requests.
+   * @param timeMultiple The multiple by which to increase the wait time between each throttled
+   *     request attempt.
+   * @param maxInterval The maximum amount of time, in milliseconds, to wait between two attempts,
+   *     including when the platform asks for longer with a {@code Retry-After} header.
+   */
+  public BackoffOptions(int retryAfter, int maxRetries, int timeMultiple, int maxInterval) {
     this.retryAfter = retryAfter;
     this.maxRetries = maxRetries;
     this.timeMultiple = timeMultiple;
+    this.maxInterval = maxInterval;
   }
 
   public int getRetryAfter() {
@@ -29,4 +44,8 @@ public class BackoffOptions {
   public int getTimeMultiple() {
     return this.timeMultiple;
   }
+
+  public int getMaxInterval() {
+    return this.maxInterval;
+  }
 }
@@ -4,10 +4,12 @@ public class BackoffOptionsBuilder {
   public static final int DEFAULT_RETRY_AFTER = 5000;
   public static final int DEFAULT_MAX_RETRIES = 10;
   public static final int DEFAULT_TIME_MULTIPLE = 2;
+  public static final int DEFAULT_MAX_INTERVAL = 60000;
 
   private int retryAfter = DEFAULT_RETRY_AFTER;
   private int maxRetries = DEFAULT_MAX_RETRIES;
   private int timeMultiple = DEFAULT_TIME_MULTIPLE;
+  private int maxInterval = DEFAULT_MAX_INTERVAL;
 
   public BackoffOptionsBuilder withRetryAfter(int retryAfter) {
     this.retryAfter = retryAfter;
@@ -24,7 +26,13 @@ public class BackoffOptionsBuilder {
     return this;
   }
 
+  public BackoffOptionsBuilder withMaxInterval(int maxInterval) {
+    this.maxInterval = maxInterval;
+    return this;
+  }
+
   public BackoffOptions build() {
-    return new BackoffOptions(this.retryAfter, this.maxRetries, this.timeMultiple);
+    return new BackoffOptions(
+        this.retryAfter, this.maxRetries, this.timeMultiple, this.maxInterval);
   }
 }
@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import java.util.List;
 
@@ -25,13 +24,13 @@ public class BatchIdentity {
   public BatchIdentityRecord marshal() {
     return new BatchIdentityRecord(
         this.members.stream()
-            .map(s -> new Gson().toJsonTree(s).getAsJsonObject())
+            .map(s -> JsonCodec.GSON.toJsonTree(s).getAsJsonObject())
             .toArray(JsonObject[]::new),
         this.mappings.stream()
-            .map(s -> new Gson().toJsonTree(s).getAsJsonObject())
+            .map(s -> JsonCodec.GSON.toJsonTree(s).getAsJsonObject())
             .toArray(JsonObject[]::new),
         this.deleted.stream()
-            .map(s -> new Gson().toJsonTree(s).getAsJsonObject())
+            .map(s -> JsonCodec.GSON.toJsonTree(s).getAsJsonObject())
             .toArray(JsonObject[]::new));
   }
 
@@ -0,0 +1,287 @@
+package com.coveo.pushapiclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The JSON body of a file container upload, made of named arrays of operations such as {@code
+ * {"addOrUpdate":[...],"delete":[...]}}.
+ *
+ * <p>Items are encoded one at a time as the body is read, so the memory needed to send a batch is
+ * bounded by its largest item rather than by the whole batch. File container uploads require a
+ * known {@code Content-Length}, which is computed on first use by encoding every item once without
+ * retaining the result. Sections built from items encoded beforehand, as the upload queues do,
+ * avoid this second encoding, and sections spilled to a file are read from disk as they are sent.
+ */
+class BatchPayload {
+  private static final byte[] OPEN_OBJECT = bytes("{");
+  private static final byte[] CLOSE_OBJECT = bytes("}");
+  private static final byte[] CLOSE_ARRAY = bytes("]");
+  private static final byte[] COMMA = bytes(",");
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+  /** Encodes a single item of a section into UTF-8 JSON. */
+  @FunctionalInterface
+  interface ItemEncoder<T> {
+    byte[] encode(T item);
+  }
+
+  private final List<Section> sections = new ArrayList<>();
+  private long contentLength = -1;
+
+  /**
+   * Appends a named array to the payload.
+   *
+   * @param name The JSON key of the array.
+   * @param items The items of the array.
+   * @param encoder How to encode each item.
+   * @return This payload.
+   */
+  <T> BatchPayload section(String name, List<T> items, ItemEncoder<T> encoder) {
+    return this.add(new ItemSection<>(name, items, encoder));
+  }
+
+  /**
+   * Appends a named array of items that are already encoded into UTF-8 JSON.
+   *
+   * @param name The JSON key of the array.
+   * @param encodedItems The encoded items of the array.
+   * @return This payload.
+   */
+  BatchPayload section(String name, List<byte[]> encodedItems) {
+    return this.section(name, encodedItems, encoded -> encoded);
+  }
+
+  /**
+   * Appends a named array whose comma-separated items are stored in a file. The file is read each
+   * time the body is sent, and must not change until the upload completes.
+   *
+   * @param name The JSON key of the array.
+   * @param file The file holding the items, without the enclosing brackets.
+   * @param length The size of the file in bytes.
+   * @return This payload.
+   */
+  BatchPayload section(String name, Path file, long length) {
+    return this.add(new FileSection(name, file, length));
+  }
+
+  private BatchPayload add(Section section) {
+    this.sections.add(section);
+    this.contentLength = -1;
+    return this;
+  }
+
+  /**
+   * @return The exact number of bytes {@link #openStream()} produces.
+   */
+  long contentLength() {
+    if (this.contentLength < 0) {
+      long length = OPEN_OBJECT.length + CLOSE_OBJECT.length;
+      for (int i = 0; i < this.sections.size(); i++) {
+        Section section = this.sections.get(i);
+        length += (i > 0 ? COMMA.length : 0) + section.header.length + CLOSE_ARRAY.length;
+        length += section.length();
+      }
+      this.contentLength = length;
+    }
+    return this.contentLength;
+  }
+
+  /**
+   * @return A new stream over the payload. Each section is only opened once the previous one has
+   *     been fully read.
+   */
+  InputStream openStream() {
+    List<Supplier<InputStream>> parts = new ArrayList<>();
+    parts.add(() -> new ByteArrayInputStream(OPEN_OBJECT));
+    for (int i = 0; i < this.sections.size(); i++) {
+      Section section = this.sections.get(i);
+      if (i > 0) {
+        parts.add(() -> new ByteArrayInputStream(COMMA));
+      }
+      parts.add(() -> new ByteArrayInputStream(section.header));
+      parts.add(section::open);
+      parts.add(() -> new ByteArrayInputStream(CLOSE_ARRAY));
+    }
+    parts.add(() -> new ByteArrayInputStream(CLOSE_OBJECT));
+
+    Iterator<Supplier<InputStream>> remaining = parts.iterator();
+    return new SequenceInputStream(
+        new Enumeration<>() {
+          @Override
+          public boolean hasMoreElements() {
+            return remaining.hasNext();
+          }
+
+          @Override
+          public InputStream nextElement() {
+            return remaining.next().get();
+          }
+        });
+  }
+
+  /**
+   * @return A body publisher streaming the payload with a fixed content length.
+   */
+  HttpRequest.BodyPublisher toBodyPublisher() {
+    return HttpRequest.BodyPublishers.fromPublisher(
+        HttpRequest.BodyPublishers.ofInputStream(this::openStream), this.contentLength());
+  }
+
+  /**
+   * Compresses the payload with GZIP. The compressed body is held in memory, since file container
+   * uploads require its length before it is sent.
+   *
+   * @param level The compression level, from 1 (fastest) to 9 (smallest).
+   * @return The compressed payload.
+   * @throws IOException If a section spilled to disk cannot be read.
+   */
+  byte[] gzip(int level) throws IOException {
+    try (InputStream body = this.openStream()) {
+      return gzip(body, level);
+    }
+  }
+
+  static byte[] gzip(InputStream body, int level) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(GZIP_BUFFER_SIZE);
+    try (GZIPOutputStream gzip =
+        new GZIPOutputStream(compressed, GZIP_BUFFER_SIZE) {
+          {
+            this.def.setLevel(level);
+          }
+        }) {
+      body.transferTo(gzip);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** The items of a named array, between its brackets. */
+  private abstract static class Section {
+    private final byte[] header;
+
+    private Section(String name) {
+      this.header = bytes(JsonCodec.GSON.toJson(name) + ":[");
+    }
+
+    abstract long length();
+
+    abstract InputStream open();
+  }
+
+  private static final class ItemSection<T> extends Section {
+    private final List<T> items;
+    private final ItemEncoder<T> encoder;
+
+    private ItemSection(String name, List<T> items, ItemEncoder<T> encoder) {
+      super(name);
+      this.items = items;
+      this.encoder = encoder;
+    }
+
+    @Override
+    long length() {
+      int itemCount = this.items.size();
+      long length = itemCount > 0 ? (long) (itemCount - 1) * COMMA.length : 0;
+      for (T item : this.items) {
+        length += this.encoder.encode(item).length;
+      }
+      return length;
+    }
+
+    @Override
+    InputStream open() {
+      return new ItemInputStream();
+    }
+
+    /** Encodes at most one item at a time, emitting separators as their own chunks. */
+    private final class ItemInputStream extends InputStream {
+      private int itemIndex = 0;
+      private boolean separatorWritten = false;
+      private byte[] chunk = new byte[0];
+      private int position = 0;
+
+      @Override
+      public int read() {
+        if (!this.ensureChunk()) {
+          return -1;
+        }
+        return this.chunk[this.position++] & 0xff;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+          return 0;
+        }
+        int total = 0;
+        while (total < length && this.ensureChunk()) {
+          int count = Math.min(length - total, this.chunk.length - this.position);
+          System.arraycopy(this.chunk, this.position, buffer, offset + total, count);
+          this.position += count;
+          total += count;
+        }
+        return total == 0 ? -1 : total;
+      }
+
+      private boolean ensureChunk() {
+        while (this.position >= this.chunk.length) {
+          if (this.itemIndex >= items.size()) {
+            return false;
+          }
+          if (this.itemIndex > 0 && !this.separatorWritten) {
+            this.separatorWritten = true;
+            this.chunk = COMMA;
+          } else {
+            this.separatorWritten = false;
+            this.chunk = encoder.encode(items.get(this.itemIndex++));
+          }
+          this.position = 0;
+        }
+        return true;
+      }
+    }
+  }
+
+  private static final class FileSection extends Section {
+    private final Path file;
+    private final long length;
+
+    private FileSection(String name, Path file, long length) {
+      super(name);
+      this.file = file;
+      this.length = length;
+    }
+
+    @Override
+    long length() {
+      return this.length;
+    }
+
+    @Override
+    InputStream open() {
+      try {
+        return Files.newInputStream(this.file);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
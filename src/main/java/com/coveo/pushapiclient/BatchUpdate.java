@@ -1,6 +1,7 @@
 package com.coveo.pushapiclient;
 
 import com.google.gson.JsonObject;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -11,10 +12,52 @@ public class BatchUpdate {
 
   private final List<DocumentBuilder> addOrUpdate;
   private final List<DeleteDocument> delete;
+  private final List<byte[]> encodedAddOrUpdate;
+  private final List<byte[]> encodedDelete;
+  private final SpillFile spillFile;
 
   public BatchUpdate(List<DocumentBuilder> addOrUpdate, List<DeleteDocument> delete) {
+    this(addOrUpdate, delete, null, null, null);
+  }
+
+  /**
+   * Creates a batch whose documents were already encoded, so that they are not marshalled a second
+   * time when the batch is uploaded. The encoded lists are not considered by {@link #equals}.
+   *
+   * @param addOrUpdate The documents to add or update.
+   * @param delete The documents to delete.
+   * @param encodedAddOrUpdate The UTF-8 JSON of each document to add or update, or null.
+   * @param encodedDelete The UTF-8 JSON of each document to delete, or null.
+   */
+  BatchUpdate(
+      List<DocumentBuilder> addOrUpdate,
+      List<DeleteDocument> delete,
+      List<byte[]> encodedAddOrUpdate,
+      List<byte[]> encodedDelete) {
+    this(addOrUpdate, delete, encodedAddOrUpdate, encodedDelete, null);
+  }
+
+  /**
+   * Creates a batch whose documents were spilled to disk by an upload queue. Its document lists are
+   * empty, and its payload is read from the spill file.
+   *
+   * @param spillFile The encoded documents of the batch.
+   */
+  BatchUpdate(SpillFile spillFile) {
+    this(Collections.emptyList(), Collections.emptyList(), null, null, spillFile);
+  }
+
+  BatchUpdate(
+      List<DocumentBuilder> addOrUpdate,
+      List<DeleteDocument> delete,
+      List<byte[]> encodedAddOrUpdate,
+      List<byte[]> encodedDelete,
+      SpillFile spillFile) {
     this.addOrUpdate = addOrUpdate;
     this.delete = delete;
+    this.encodedAddOrUpdate = encodedAddOrUpdate;
+    this.encodedDelete = encodedDelete;
+    this.spillFile = spillFile;
   }
 
   public BatchUpdateRecord marshal() {
@@ -25,6 +68,35 @@ public class BatchUpdate {
         this.delete.stream().map(DeleteDocument::marshalJsonObject).toArray(JsonObject[]::new));
   }
 
+  /**
+   * Builds the upload body of this batch. Documents that were not encoded beforehand are only
+   * marshalled as the body is read.
+   *
+   * @return The payload to upload into a file container.
+   */
+  BatchPayload toPayload() {
+    BatchPayload payload = new BatchPayload();
+    if (this.spillFile != null) {
+      return this.spillFile.appendTo(this.spillFile.appendTo(payload, "addOrUpdate"), "delete");
+    }
+    if (this.encodedAddOrUpdate != null) {
+      payload.section("addOrUpdate", this.encodedAddOrUpdate);
+    } else {
+      payload.section("addOrUpdate", this.addOrUpdate, DocumentBuilder::encode);
+    }
+    if (this.encodedDelete != null) {
+      payload.section("delete", this.encodedDelete);
+    } else {
+      payload.section(
+          "delete", this.delete, document -> JsonCodec.encode(document, DeleteDocument.class));
+    }
+    return payload;
+  }
+
+  SpillFile getSpillFile() {
+    return this.spillFile;
+  }
+
   public List<DocumentBuilder> getAddOrUpdate() {
     return addOrUpdate;
   }
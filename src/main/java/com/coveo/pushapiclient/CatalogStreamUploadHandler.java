@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.http.HttpResponse;
 import org.apache.logging.log4j.LogManager;
@@ -10,24 +9,29 @@ class CatalogStreamUploadHandler implements StreamUploadHandler {
   private static final Logger logger = LogManager.getLogger(CatalogStreamUploadHandler.class);
   private final StreamEnabledSource source;
   private final PlatformClient platformClient;
+  private final FileContainerPool fileContainers;
 
   CatalogStreamUploadHandler(StreamEnabledSource source, PlatformClient platformClient) {
+    this(source, platformClient, new FileContainerPool(platformClient, 0));
+  }
+
+  CatalogStreamUploadHandler(
+      StreamEnabledSource source, PlatformClient platformClient, FileContainerPool fileContainers) {
     this.source = source;
     this.platformClient = platformClient;
+    this.fileContainers = fileContainers;
   }
 
   @Override
   public HttpResponse<String> uploadAndPush(StreamUpdate stream)
       throws IOException, InterruptedException {
-    // Step 1: Create file container
-    logger.debug("Creating file container for stream upload");
-    HttpResponse<String> containerResponse = platformClient.createFileContainer();
-    FileContainer container = new Gson().fromJson(containerResponse.body(), FileContainer.class);
+    // Step 1: Create file container, or take one created ahead of time
+    logger.debug("Acquiring file container for stream upload");
+    FileContainer container = fileContainers.acquire();
 
     // Step 2: Upload content to container
-    String batchUpdateJson = new Gson().toJson(stream.marshal());
     logger.debug("Uploading stream content to file container: {}", container.fileId);
-    platformClient.uploadContentToFileContainer(container, batchUpdateJson);
+    platformClient.uploadContentToFileContainer(container, stream.toPayload());
 
     // Step 3: Push container to stream source
     logger.info("Pushing file container to stream source: {}", source.getId());
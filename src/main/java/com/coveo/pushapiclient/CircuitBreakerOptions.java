@@ -0,0 +1,56 @@
+package com.coveo.pushapiclient;
+
+/**
+ * When to stop sending requests to a failing family of endpoints, and when to try again.
+ *
+ * @see CircuitBreakerOptionsBuilder
+ */
+public class CircuitBreakerOptions {
+  private final float failureRateThreshold;
+  private final int slidingWindowSize;
+  private final int minimumNumberOfCalls;
+  private final int waitDurationInOpenState;
+  private final int permittedCallsInHalfOpenState;
+
+  /**
+   * @param failureRateThreshold The percentage of failed requests above which the breaker opens.
+   * @param slidingWindowSize The number of most recent requests the failure rate is computed on.
+   * @param minimumNumberOfCalls The number of requests needed before the failure rate is computed.
+   * @param waitDurationInOpenState The amount of time, in milliseconds, the breaker stays open
+   *     before letting probe requests through.
+   * @param permittedCallsInHalfOpenState The number of probe requests that decide whether the
+   *     breaker closes or opens again.
+   */
+  public CircuitBreakerOptions(
+      float failureRateThreshold,
+      int slidingWindowSize,
+      int minimumNumberOfCalls,
+      int waitDurationInOpenState,
+      int permittedCallsInHalfOpenState) {
+    this.failureRateThreshold = failureRateThreshold;
+    this.slidingWindowSize = slidingWindowSize;
+    this.minimumNumberOfCalls = minimumNumberOfCalls;
+    this.waitDurationInOpenState = waitDurationInOpenState;
+    this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+  }
+
+  public float getFailureRateThreshold() {
+    return this.failureRateThreshold;
+  }
+
+  public int getSlidingWindowSize() {
+    return this.slidingWindowSize;
+  }
+
+  public int getMinimumNumberOfCalls() {
+    return this.minimumNumberOfCalls;
+  }
+
+  public int getWaitDurationInOpenState() {
+    return this.waitDurationInOpenState;
+  }
+
+  public int getPermittedCallsInHalfOpenState() {
+    return this.permittedCallsInHalfOpenState;
+  }
+}
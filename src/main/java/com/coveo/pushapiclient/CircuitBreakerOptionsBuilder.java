@@ -0,0 +1,85 @@
+package com.coveo.pushapiclient;
+
+public class CircuitBreakerOptionsBuilder {
+  public static final float DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  public static final int DEFAULT_SLIDING_WINDOW_SIZE = 50;
+  public static final int DEFAULT_MINIMUM_NUMBER_OF_CALLS = 10;
+  public static final int DEFAULT_WAIT_DURATION_IN_OPEN_STATE = 30000;
+  public static final int DEFAULT_PERMITTED_CALLS_IN_HALF_OPEN_STATE = 3;
+
+  private float failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  private int slidingWindowSize = DEFAULT_SLIDING_WINDOW_SIZE;
+  private int minimumNumberOfCalls = DEFAULT_MINIMUM_NUMBER_OF_CALLS;
+  private int waitDurationInOpenState = DEFAULT_WAIT_DURATION_IN_OPEN_STATE;
+  private int permittedCallsInHalfOpenState = DEFAULT_PERMITTED_CALLS_IN_HALF_OPEN_STATE;
+
+  /**
+   * @param failureRateThreshold The percentage of failed requests above which the breaker opens
+   *     (default: 50).
+   */
+  public CircuitBreakerOptionsBuilder withFailureRateThreshold(float failureRateThreshold) {
+    this.failureRateThreshold = failureRateThreshold;
+    return this;
+  }
+
+  /**
+   * @param slidingWindowSize The number of most recent requests the failure rate is computed on
+   *     (default: 50).
+   */
+  public CircuitBreakerOptionsBuilder withSlidingWindowSize(int slidingWindowSize) {
+    this.slidingWindowSize = slidingWindowSize;
+    return this;
+  }
+
+  /**
+   * @param minimumNumberOfCalls The number of requests needed before the failure rate is computed
+   *     (default: 10).
+   */
+  public CircuitBreakerOptionsBuilder withMinimumNumberOfCalls(int minimumNumberOfCalls) {
+    this.minimumNumberOfCalls = minimumNumberOfCalls;
+    return this;
+  }
+
+  /**
+   * @param waitDurationInOpenState The amount of time, in milliseconds, the breaker stays open
+   *     before letting probe requests through (default: 30000).
+   */
+  public CircuitBreakerOptionsBuilder withWaitDurationInOpenState(int waitDurationInOpenState) {
+    this.waitDurationInOpenState = waitDurationInOpenState;
+    return this;
+  }
+
+  /**
+   * @param permittedCallsInHalfOpenState The number of probe requests that decide whether the
+   *     breaker closes or opens again (default: 3).
+   */
+  public CircuitBreakerOptionsBuilder withPermittedCallsInHalfOpenState(
+      int permittedCallsInHalfOpenState) {
+    this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the threshold is not a percentage, or a count or duration
+   *     is not positive.
+   */
+  public CircuitBreakerOptions build() {
+    if (this.failureRateThreshold <= 0 || this.failureRateThreshold > 100) {
+      throw new IllegalArgumentException("Failure rate threshold must be between 0 and 100");
+    }
+    if (this.slidingWindowSize < 1
+        || this.minimumNumberOfCalls < 1
+        || this.waitDurationInOpenState < 1
+        || this.permittedCallsInHalfOpenState < 1) {
+      throw new IllegalArgumentException(
+          "Sliding window, minimum number of calls, wait duration and permitted calls must be"
+              + " positive");
+    }
+    return new CircuitBreakerOptions(
+        this.failureRateThreshold,
+        this.slidingWindowSize,
+        this.minimumNumberOfCalls,
+        this.waitDurationInOpenState,
+        this.permittedCallsInHalfOpenState);
+  }
+}
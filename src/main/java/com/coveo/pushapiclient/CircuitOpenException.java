@@ -0,0 +1,21 @@
+package com.coveo.pushapiclient;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of its endpoint family is open,
+ * after too many of its requests failed. The request can be sent again once the breaker lets probe
+ * requests through and they succeed.
+ */
+public class CircuitOpenException extends IOException {
+  private final EndpointFamily endpointFamily;
+
+  public CircuitOpenException(EndpointFamily endpointFamily) {
+    super("The circuit breaker of the " + endpointFamily + " endpoints is open");
+    this.endpointFamily = endpointFamily;
+  }
+
+  public EndpointFamily getEndpointFamily() {
+    return this.endpointFamily;
+  }
+}
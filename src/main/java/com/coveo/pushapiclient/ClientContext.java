@@ -0,0 +1,45 @@
+package com.coveo.pushapiclient;
+
+import java.net.http.HttpClient;
+
+/**
+ * The HTTP client shared by the {@link PlatformClient} of every source and service it is given to,
+ * so that they share one connection pool and one executor. With HTTP/2, concurrent requests to the
+ * same host are multiplexed over a single connection, which saves TLS handshakes and threads when a
+ * JVM runs many services.
+ *
+ * <p>Clients created without a context share {@link #getDefault()}.
+ *
+ * @see ClientContextBuilder
+ */
+public final class ClientContext {
+  private static volatile ClientContext defaultContext;
+
+  private final HttpClient httpClient;
+
+  ClientContext(HttpClient httpClient) {
+    this.httpClient = httpClient;
+  }
+
+  /**
+   * @return The context shared by the clients created without one, built with the defaults of
+   *     {@link ClientContextBuilder} on first use.
+   */
+  public static ClientContext getDefault() {
+    ClientContext context = defaultContext;
+    if (context == null) {
+      synchronized (ClientContext.class) {
+        context = defaultContext;
+        if (context == null) {
+          context = new ClientContextBuilder().build();
+          defaultContext = context;
+        }
+      }
+    }
+    return context;
+  }
+
+  public HttpClient getHttpClient() {
+    return this.httpClient;
+  }
+}
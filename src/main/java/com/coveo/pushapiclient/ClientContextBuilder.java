@@ -0,0 +1,83 @@
+package com.coveo.pushapiclient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+public class ClientContextBuilder {
+  public static final HttpClient.Version DEFAULT_HTTP_VERSION = HttpClient.Version.HTTP_2;
+  public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+  private HttpClient.Version httpVersion = DEFAULT_HTTP_VERSION;
+  private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+  private Executor executor;
+  private boolean virtualThreads = false;
+
+  /**
+   * @param httpVersion The preferred HTTP version (default: HTTP/2, which falls back to HTTP/1.1
+   *     for servers that do not support it).
+   */
+  public ClientContextBuilder withHttpVersion(HttpClient.Version httpVersion) {
+    this.httpVersion = httpVersion;
+    return this;
+  }
+
+  /**
+   * @param connectTimeout The amount of time, in milliseconds, to wait for a connection to be
+   *     established (default: 10000).
+   */
+  public ClientContextBuilder withConnectTimeout(int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+    return this;
+  }
+
+  /**
+   * @param executor The executor running asynchronous requests and their callbacks (default: a
+   *     cached thread pool owned by the HTTP client).
+   */
+  public ClientContextBuilder withExecutor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Runs asynchronous requests and their callbacks on virtual threads, one per task. Requires Java
+   * 21 or later. Older runtimes log a warning and use the default executor. Ignored when an
+   * executor is set.
+   *
+   * @param virtualThreads Whether to use virtual threads (default: false).
+   */
+  public ClientContextBuilder withVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+    return this;
+  }
+
+  /**
+   * Idle connections are kept alive for the time set by the {@code
+   * jdk.httpclient.keepalive.timeout} system property, which applies to every HTTP client of the
+   * JVM.
+   *
+   * @throws IllegalArgumentException if the HTTP version is null or the connect timeout is not
+   *     positive.
+   */
+  public ClientContext build() {
+    if (this.httpVersion == null) {
+      throw new IllegalArgumentException("HTTP version cannot be null");
+    }
+    if (this.connectTimeout <= 0) {
+      throw new IllegalArgumentException("Connect timeout must be greater than 0");
+    }
+    HttpClient.Builder builder =
+        HttpClient.newBuilder()
+            .version(this.httpVersion)
+            .connectTimeout(Duration.ofMillis(this.connectTimeout));
+    Executor resolvedExecutor = this.executor;
+    if (resolvedExecutor == null && this.virtualThreads) {
+      resolvedExecutor = VirtualThreads.newThreadPerTaskExecutor("coveo-push-http-");
+    }
+    if (resolvedExecutor != null) {
+      builder.executor(resolvedExecutor);
+    }
+    return new ClientContext(builder.build());
+  }
+}
@@ -0,0 +1,157 @@
+package com.coveo.pushapiclient;
+
+import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A {@link StreamService} that documents can be added to from several threads at once.
+ *
+ * <p>Documents are spread across several upload queues, or stripes, and each thread adds its
+ * documents to its own stripe. Every stripe batches its documents independently and uploads them to
+ * its own stream chunks, all within a single open stream. Ingestion can then scale with the number
+ * of producing threads, up to the number of stripes.
+ *
+ * <p>Each stripe buffers up to one batch, so the memory used by the service grows with the number
+ * of stripes.
+ */
+public class ConcurrentStreamService {
+  private final StreamEnabledSource source;
+  private final PlatformClient platformClient;
+  private final ConcurrentStreamServiceInternal service;
+
+  /**
+   * Creates a service with one stripe per available processor.
+   *
+   * @param source The source to which you want to send your documents.
+   */
+  public ConcurrentStreamService(StreamEnabledSource source) {
+    this(source, new BackoffOptionsBuilder().build());
+  }
+
+  /**
+   * Creates a service with one stripe per available processor.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   */
+  public ConcurrentStreamService(StreamEnabledSource source, BackoffOptions options) {
+    this(
+        source,
+        options,
+        null,
+        new UploadOptionsBuilder().build(),
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a service to stream your documents from several threads to the provided source.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size and upload concurrency of each stripe. See {@link
+   *     UploadOptionsBuilder}.
+   * @param stripes The number of upload queues documents are spread across.
+   * @throws IllegalArgumentException if the number of stripes is not positive.
+   */
+  public ConcurrentStreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions,
+      int stripes) {
+    this(source, options, userAgents, uploadOptions, stripes, ClientContext.getDefault());
+  }
+
+  /**
+   * Creates a service to stream your documents from several threads to the provided source.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size and upload concurrency of each stripe. See {@link
+   *     UploadOptionsBuilder}.
+   * @param stripes The number of upload queues documents are spread across.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   * @throws IllegalArgumentException if the number of stripes is not positive.
+   */
+  public ConcurrentStreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions,
+      int stripes,
+      ClientContext context) {
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("Number of stripes must be greater than 0");
+    }
+    Logger logger = LogManager.getLogger(ConcurrentStreamService.class);
+    this.source = source;
+    this.platformClient =
+        new PlatformClient(
+            source.getApiKey(),
+            source.getOrganizationId(),
+            source.getPlatformUrl(),
+            options,
+            context);
+    this.platformClient.setUploadCompressionLevel(uploadOptions.getCompressionLevel());
+    this.platformClient.setCircuitBreakerOptions(uploadOptions.getCircuitBreakerOptions());
+    if (userAgents != null) {
+      this.platformClient.setUserAgents(userAgents);
+    }
+    List<DocumentUploadQueue> queues = new ArrayList<>(stripes);
+    for (int i = 0; i < stripes; i++) {
+      DocumentUploadQueue queue = new DocumentUploadQueue(this.getUploadStrategy(), uploadOptions);
+      queue.setThrottleCounter(this.platformClient::getThrottledResponseCountOnCurrentThread);
+      queues.add(queue);
+    }
+    this.service = new ConcurrentStreamServiceInternal(source, queues, this.platformClient, logger);
+  }
+
+  /**
+   * Adds a {@link DocumentBuilder} to the stripe of the calling thread, and uploads that stripe as
+   * a new stream chunk if it exceeds the batch size. The stream is opened by the first document
+   * added. This method can be called from several threads at once.
+   *
+   * @param document The documentBuilder to add to your source
+   * @throws IOException If opening the stream or uploading a stream chunk fails.
+   * @throws InterruptedException If opening the stream or uploading a stream chunk is interrupted.
+   */
+  public void add(DocumentBuilder document) throws IOException, InterruptedException {
+    this.service.add(document);
+  }
+
+  /**
+   * Sends the buffered documents of every stripe and <a
+   * href="https://docs.coveo.com/en/lb4a0344#step-3-close-the-stream">closes the stream</a>. Call
+   * it once every producing thread is done adding documents.
+   *
+   * <p>As with the {@link StreamService}, all documents added through this service will completely
+   * replace the previous content of the source.
+   *
+   * @throws IOException If a stripe fails to upload its remaining documents.
+   * @throws InterruptedException If an upload is interrupted.
+   * @throws NoOpenStreamException If no document was added.
+   */
+  public HttpResponse<String> close()
+      throws IOException, InterruptedException, NoOpenStreamException {
+    return this.service.close();
+  }
+
+  private UploadStrategy getUploadStrategy() {
+    return (batchUpdate) -> {
+      HttpResponse<String> resFileContainer =
+          this.platformClient.requireStreamChunk(this.source.getId(), this.service.getStreamId());
+      FileContainer fileContainer =
+          JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
+      return this.platformClient.uploadContentToFileContainer(
+          fileContainer, batchUpdate.toPayload());
+    };
+  }
+}
@@ -0,0 +1,125 @@
+package com.coveo.pushapiclient;
+
+import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.Logger;
+
+/** For internal use only. Made to easily test the service without having to use PowerMock */
+class ConcurrentStreamServiceInternal {
+  private final Logger logger;
+  private final StreamEnabledSource source;
+  private final PlatformClient platformClient;
+  private final List<DocumentUploadQueue> stripes;
+  private final AtomicInteger nextStripe = new AtomicInteger();
+  private final ThreadLocal<DocumentUploadQueue> threadStripe;
+  private volatile String streamId;
+
+  /**
+   * @param source The source to stream documents to.
+   * @param stripes The queues documents are spread across. Each queue is only used by one thread at
+   *     a time.
+   * @param platformClient The client opening and closing the stream.
+   * @param logger The logger of the service.
+   */
+  public ConcurrentStreamServiceInternal(
+      StreamEnabledSource source,
+      List<DocumentUploadQueue> stripes,
+      PlatformClient platformClient,
+      Logger logger) {
+    if (stripes.isEmpty()) {
+      throw new IllegalArgumentException("At least one stripe is required");
+    }
+    this.source = source;
+    this.stripes = stripes;
+    this.platformClient = platformClient;
+    this.logger = logger;
+    this.threadStripe =
+        ThreadLocal.withInitial(
+            () ->
+                this.stripes.get(Math.floorMod(this.nextStripe.getAndIncrement(), stripes.size())));
+  }
+
+  /**
+   * Opens the stream if needed, then adds the document to the stripe of the calling thread. Threads
+   * are assigned to stripes in turn, so that they only contend when there are more threads than
+   * stripes.
+   */
+  public String add(DocumentBuilder document) throws IOException, InterruptedException {
+    String openStreamId = this.getOrOpenStream();
+    DocumentUploadQueue stripe = this.threadStripe.get();
+    synchronized (stripe) {
+      stripe.add(document);
+    }
+    return openStreamId;
+  }
+
+  /**
+   * Flushes every stripe, then closes the stream. The stream is left open if any stripe fails to
+   * flush.
+   *
+   * @throws IOException If a stripe fails to flush. The failures of the other stripes are attached
+   *     as suppressed exceptions.
+   */
+  public HttpResponse<String> close()
+      throws IOException, InterruptedException, NoOpenStreamException {
+    if (this.streamId == null) {
+      throw new NoOpenStreamException(
+          "No open stream detected. A stream will automatically be opened once you start adding documents.");
+    }
+    IOException failure = null;
+    for (DocumentUploadQueue stripe : this.stripes) {
+      try {
+        synchronized (stripe) {
+          try {
+            stripe.flush();
+          } finally {
+            stripe.close();
+          }
+        }
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    this.logger.info("Closing open stream " + this.streamId);
+    return this.platformClient.closeStream(this.getSourceId(), this.streamId);
+  }
+
+  String getStreamId() {
+    return this.streamId;
+  }
+
+  private String getOrOpenStream() throws IOException, InterruptedException {
+    String openStreamId = this.streamId;
+    if (openStreamId == null) {
+      synchronized (this) {
+        openStreamId = this.streamId;
+        if (openStreamId == null) {
+          openStreamId = this.openStream();
+          this.streamId = openStreamId;
+        }
+      }
+    }
+    return openStreamId;
+  }
+
+  private String openStream() throws IOException, InterruptedException {
+    this.logger.info("Opening new stream");
+    HttpResponse<String> response = this.platformClient.openStream(this.getSourceId());
+    StreamResponse streamResponse = JsonCodec.GSON.fromJson(response.body(), StreamResponse.class);
+    return streamResponse.streamId;
+  }
+
+  private String getSourceId() {
+    return this.source.getId();
+  }
+}
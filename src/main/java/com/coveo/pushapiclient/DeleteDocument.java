@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
 public class DeleteDocument {
@@ -22,6 +21,6 @@ public class DeleteDocument {
   }
 
   public JsonObject marshalJsonObject() {
-    return new Gson().toJsonTree(this).getAsJsonObject();
+    return JsonCodec.GSON.toJsonTree(this).getAsJsonObject();
   }
 }
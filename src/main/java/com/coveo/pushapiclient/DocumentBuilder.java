@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import java.util.ArrayList;
 import java.util.Date;
@@ -371,21 +370,18 @@ public class DocumentBuilder {
    */
   public JsonObject marshalJsonObject() {
     this.generatePermanentId();
+    return JsonCodec.GSON.toJsonTree(this.document, Document.class).getAsJsonObject();
+  }
 
-    JsonObject jsonDocument = new Gson().toJsonTree(this.document).getAsJsonObject();
-    this.document.metadata.forEach(
-        (key, value) -> {
-          jsonDocument.add(key, new Gson().toJsonTree(value));
-        });
-    jsonDocument.remove("metadata");
-
-    if (this.document.compressedBinaryData != null) {
-      jsonDocument.addProperty(
-          "compressedBinaryData", this.document.compressedBinaryData.getData());
-    }
-
-    jsonDocument.addProperty("documentId", this.document.uri);
-    return jsonDocument;
+  /**
+   * Marshal the document into the UTF-8 JSON accepted by the push API, without building an
+   * intermediate JSON tree.
+   *
+   * @return
+   */
+  byte[] encode() {
+    this.generatePermanentId();
+    return JsonCodec.encode(this.document, Document.class);
   }
 
   private String dateFormat(DateTime dt) {
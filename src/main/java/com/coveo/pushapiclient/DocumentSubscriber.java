@@ -0,0 +1,183 @@
+package com.coveo.pushapiclient;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Feeds the items of a {@link Flow.Publisher} to a service, requesting more items only as the
+ * previous ones are queued for upload.
+ *
+ * <p>Items are handed to the service on a dedicated thread, so the publisher is never blocked. That
+ * thread blocks whenever the service does, which happens while every upload slot is busy or
+ * throttled requests are waiting to be retried. No more items are requested meanwhile, so the pace
+ * of the uploads is pushed back to the publisher and at most {@link #DEFAULT_PREFETCH} items are
+ * buffered. Once the publisher completes, the service is closed and its last response completes
+ * {@link #getResult()}.
+ *
+ * <p>If the publisher fails, an item cannot be added, or the result is cancelled, the subscription
+ * is cancelled, the worker thread stops and the service is aborted instead of closed, so that it
+ * releases the items it buffered without sending them.
+ */
+class DocumentSubscriber<T> implements Flow.Subscriber<T> {
+  private static final Logger logger = LogManager.getLogger(DocumentSubscriber.class);
+  private static final AtomicInteger threadCounter = new AtomicInteger();
+  private static final Object COMPLETE = new Object();
+
+  /** How many items are requested ahead of the ones being added to the service. */
+  static final int DEFAULT_PREFETCH = 64;
+
+  /** Adds a single item to the service. */
+  @FunctionalInterface
+  interface ItemHandler<T> {
+    void accept(T item) throws Exception;
+  }
+
+  /** Sends the buffered items once the publisher completes. */
+  @FunctionalInterface
+  interface Completion {
+    HttpResponse<String> complete() throws Exception;
+  }
+
+  /** Releases the buffered items without sending them, once they cannot all be sent. */
+  @FunctionalInterface
+  interface Abort {
+    void abort();
+  }
+
+  private final ItemHandler<T> handler;
+  private final Completion completion;
+  private final Abort abort;
+  private final int prefetch;
+  private final int replenishThreshold;
+  private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+  private final CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+  private Flow.Subscription subscription;
+  private Thread worker;
+
+  DocumentSubscriber(ItemHandler<T> handler, Completion completion, Abort abort) {
+    this(handler, completion, abort, DEFAULT_PREFETCH);
+  }
+
+  /**
+   * @param handler Adds each item to the service.
+   * @param completion Closes the service once every item was added.
+   * @param abort Releases the service once the items cannot all be added.
+   * @param prefetch The maximum number of items requested but not yet added to the service.
+   */
+  DocumentSubscriber(ItemHandler<T> handler, Completion completion, Abort abort, int prefetch) {
+    if (prefetch <= 0) {
+      throw new IllegalArgumentException("Prefetch must be greater than 0");
+    }
+    this.handler = handler;
+    this.completion = completion;
+    this.abort = abort;
+    this.prefetch = prefetch;
+    this.replenishThreshold = Math.max(1, prefetch / 2);
+  }
+
+  /**
+   * @return Completes with the response of the service once the publisher completed and every item
+   *     was uploaded. Completes exceptionally if the publisher or an upload fails. Cancelling it
+   *     cancels the subscription.
+   */
+  CompletableFuture<HttpResponse<String>> getResult() {
+    return this.result;
+  }
+
+  @Override
+  public synchronized void onSubscribe(Flow.Subscription subscription) {
+    if (this.subscription != null) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    this.worker =
+        new Thread(this::drain, "coveo-push-subscriber-" + threadCounter.incrementAndGet());
+    this.worker.setDaemon(true);
+    this.worker.start();
+    this.result.whenComplete(
+        (response, failure) -> {
+          if (this.result.isCancelled()) {
+            subscription.cancel();
+            this.worker.interrupt();
+          }
+        });
+    subscription.request(this.prefetch);
+  }
+
+  @Override
+  public void onNext(T item) {
+    if (item == null) {
+      this.onError(new NullPointerException("Publishers must not emit null items"));
+      return;
+    }
+    this.signals.add(item);
+  }
+
+  @Override
+  public void onError(Throwable failure) {
+    this.signals.add(new Failure(failure));
+  }
+
+  @Override
+  public void onComplete() {
+    this.signals.add(COMPLETE);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void drain() {
+    int added = 0;
+    try {
+      while (!this.result.isDone()) {
+        Object signal = this.signals.take();
+        if (signal == COMPLETE) {
+          this.result.complete(this.completion.complete());
+          return;
+        }
+        if (signal instanceof Failure) {
+          this.fail(((Failure) signal).cause);
+          return;
+        }
+        this.handler.accept((T) signal);
+        if (++added >= this.replenishThreshold) {
+          this.subscription.request(added);
+          added = 0;
+        }
+      }
+    } catch (InterruptedException e) {
+      // Also reached when the result is cancelled, in which case it is already complete
+      this.fail(e);
+    } catch (Throwable e) {
+      // Errors included, since the result would otherwise never complete
+      logger.error("Could not upload the published items, cancelling the subscription", e);
+      this.fail(e);
+    }
+  }
+
+  /** Stops requesting items, drops the ones received, and aborts the service. */
+  private void fail(Throwable failure) {
+    this.subscription.cancel();
+    this.signals.clear();
+    try {
+      this.abort.abort();
+    } catch (RuntimeException e) {
+      failure.addSuppressed(e);
+    }
+    this.result.completeExceptionally(failure);
+  }
+
+  /** Wraps the failure of the publisher, so that it can be queued after the items it sent. */
+  private static final class Failure {
+    private final Throwable cause;
+
+    private Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+}
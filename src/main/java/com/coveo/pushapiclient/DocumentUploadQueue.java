@@ -1,13 +1,21 @@
 package com.coveo.pushapiclient;
 
 import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /** Represents a queue for uploading documents using a specified upload strategy */
 class DocumentUploadQueue {
   private static final Logger logger = LogManager.getLogger(DocumentUploadQueue.class);
+  private static final AtomicInteger lingerCounter = new AtomicInteger();
 
   /** Maximum allowed queue size based on Stream API limit (256 MB) */
   protected static final int MAX_ALLOWED_QUEUE_SIZE = 256 * 1024 * 1024;
@@ -19,10 +27,29 @@ class DocumentUploadQueue {
   public static final String BATCH_SIZE_PROPERTY = "coveo.push.batchSize";
 
   protected UploadStrategy uploader;
+
+  /**
+   * The maximum size of a batch, in bytes of uncompressed JSON. Compressed uploads are bound by the
+   * same size, so that a batch never exceeds the API limit once decompressed.
+   */
   protected final int maxQueueSize;
+
   protected ArrayList<DocumentBuilder> documentToAddList;
   protected ArrayList<DeleteDocument> documentToDeleteList;
+  protected ArrayList<byte[]> encodedToAddList;
+  protected ArrayList<byte[]> encodedToDeleteList;
   protected int size;
+  protected final UploadPipeline pipeline;
+  protected final boolean spillToDisk;
+  protected final Path spillDirectory;
+  protected SpillFile spillFile;
+  protected final int lingerMs;
+  protected final AdaptiveBatchSizer batchSizer;
+  private LongSupplier throttleCounter = () -> 0;
+  private ScheduledThreadPoolExecutor lingerScheduler;
+  private ScheduledFuture<?> lingerTask;
+  private Exception lingerFailure;
+  private HttpResponse<String> lastResponse;
 
   /**
    * Validates batch size against constraints (> 0 and <= 256MB). Used by getConfiguredBatchSize and
@@ -105,11 +132,39 @@ class DocumentUploadQueue {
    * @throws IllegalArgumentException if maxQueueSize exceeds the API limit of 256MB.
    */
   public DocumentUploadQueue(UploadStrategy uploader, int maxQueueSize) {
-    validateBatchSize(maxQueueSize);
+    this(
+        uploader,
+        new UploadOptionsBuilder()
+            .withBatchSize(maxQueueSize)
+            .withMaxConcurrentUploads(UploadOptionsBuilder.DEFAULT_MAX_CONCURRENT_UPLOADS)
+            .build());
+  }
+
+  /**
+   * Constructs a new DocumentUploadQueue object from the provided {@link UploadOptions}.
+   *
+   * @param uploader The upload strategy to be used for document uploads.
+   * @param options The batch size and upload concurrency to use.
+   * @throws IllegalArgumentException if the batch size exceeds the API limit of 256MB.
+   */
+  public DocumentUploadQueue(UploadStrategy uploader, UploadOptions options) {
+    validateBatchSize(options.getBatchSize());
     this.documentToAddList = new ArrayList<>();
     this.documentToDeleteList = new ArrayList<>();
+    this.encodedToAddList = new ArrayList<>();
+    this.encodedToDeleteList = new ArrayList<>();
     this.uploader = uploader;
-    this.maxQueueSize = maxQueueSize;
+    this.maxQueueSize = options.getBatchSize();
+    this.pipeline =
+        new UploadPipeline(options.getMaxConcurrentUploads(), options.isVirtualThreads());
+    this.spillToDisk = options.isSpillToDisk();
+    this.spillDirectory = options.getSpillDirectory();
+    this.lingerMs = options.getLingerMs();
+    this.batchSizer =
+        options.isAdaptiveBatchSize()
+            ? new AdaptiveBatchSizer(
+                options.getMinBatchSize(), options.getMaxBatchSize(), options.getBatchSize())
+            : null;
   }
 
   /**
@@ -119,52 +174,236 @@ class DocumentUploadQueue {
   public DocumentUploadQueue() {
     this.documentToAddList = new ArrayList<>();
     this.documentToDeleteList = new ArrayList<>();
+    this.encodedToAddList = new ArrayList<>();
+    this.encodedToDeleteList = new ArrayList<>();
     this.maxQueueSize = DEFAULT_QUEUE_SIZE;
+    this.pipeline = new UploadPipeline(UploadOptionsBuilder.DEFAULT_MAX_CONCURRENT_UPLOADS);
+    this.spillToDisk = false;
+    this.spillDirectory = null;
+    this.lingerMs = 0;
+    this.batchSizer = null;
+  }
+
+  /**
+   * Flushes the accumulated documents by applying the upload strategy, then waits for every batch
+   * still being uploaded.
+   *
+   * @throws IOException If an I/O error occurs during the upload. When several batches were
+   *     uploading concurrently, the failure of the earliest batch is thrown and the others are
+   *     attached as suppressed exceptions. A failed upload of a lingering batch is also thrown.
+   * @throws InterruptedException If the upload process is interrupted.
+   */
+  public synchronized void flush() throws IOException, InterruptedException {
+    this.rethrowLingerFailure();
+    this.sealBatch();
+    this.lastResponse = this.pipeline.awaitAll();
   }
 
   /**
-   * Flushes the accumulated documents by applying the upload strategy.
+   * Seals the accumulated documents into a batch and hands it to the upload pipeline. Depending on
+   * the configured concurrency, the batch is either uploaded right away or in the background.
+   *
+   * <p>The batch is only cleared from the queue once handed to the pipeline. A batch uploaded right
+   * away is only cleared once its upload succeeded, so that a failed batch is sent again by the
+   * next {@link #flush()}. Likewise, a batch is kept when the pipeline refuses it because an
+   * earlier batch failed to upload in the background.
    *
    * @throws IOException If an I/O error occurs during the upload.
    * @throws InterruptedException If the upload process is interrupted.
    */
-  public void flush() throws IOException, InterruptedException {
+  protected synchronized void sealBatch() throws IOException, InterruptedException {
     if (this.isEmpty()) {
       logger.debug("Empty batch. Skipping upload");
       return;
     }
-    // TODO: LENS-871: support concurrent requests
+    UploadPipeline.Upload upload = this.createUpload();
+    if (this.batchSizer != null) {
+      upload = this.measure(upload, this.size);
+    }
+    this.pipeline.submit(upload);
+    this.clearQueue();
+  }
+
+  /**
+   * Captures the accumulated documents into an upload. Called before the queue is cleared.
+   *
+   * @return The upload of the current batch.
+   */
+  protected UploadPipeline.Upload createUpload() {
+    if (this.spillToDisk) {
+      BatchUpdate batch = new BatchUpdate(this.spillFile);
+      return this.deletingSpillFile(
+          () -> {
+            logger.info("Uploading spilled document batch");
+            return this.uploader.apply(batch);
+          });
+    }
     BatchUpdate batch = this.getBatch();
-    logger.info("Uploading document batch");
-    this.uploader.apply(batch);
+    return () -> {
+      logger.info("Uploading document batch");
+      return this.uploader.apply(batch);
+    };
+  }
+
+  /**
+   * Appends an encoded document to the spill file of the current batch, creating the file if
+   * needed. Only used when spilling to disk.
+   *
+   * @param section The section of the batch payload, such as {@code addOrUpdate}.
+   * @param encoded The UTF-8 JSON of the document.
+   * @throws IOException If the spill file cannot be written.
+   */
+  protected void spill(String section, byte[] encoded) throws IOException {
+    if (this.spillFile == null) {
+      this.spillFile = new SpillFile(this.spillDirectory);
+    }
+    this.spillFile.append(section, encoded);
+  }
+
+  /**
+   * Hands the spill file of the current batch over to its upload, which deletes it once done. When
+   * the upload runs on the calling thread and fails, the file is kept along with the rest of the
+   * queue, so that the batch can be sent again.
+   *
+   * @param upload The upload of the spilled batch.
+   * @return The upload, deleting the spill file afterwards.
+   */
+  protected UploadPipeline.Upload deletingSpillFile(UploadPipeline.Upload upload) {
+    SpillFile spill = this.spillFile;
+    boolean keepOnFailure = this.pipeline.isSynchronous();
+    return () -> {
+      boolean uploaded = false;
+      try {
+        HttpResponse<String> response = upload.call();
+        uploaded = true;
+        return response;
+      } finally {
+        if (uploaded || !keepOnFailure) {
+          spill.delete();
+        }
+      }
+    };
+  }
+
+  /**
+   * Reports the outcome of an upload to the batch sizer, so that the next batches are sized after
+   * it.
+   */
+  private UploadPipeline.Upload measure(UploadPipeline.Upload upload, long bytes) {
+    return () -> {
+      long throttledBefore = this.throttleCounter.getAsLong();
+      long start = System.nanoTime();
+      HttpResponse<String> response = upload.call();
+      this.batchSizer.onUpload(
+          bytes, System.nanoTime() - start, this.throttleCounter.getAsLong() > throttledBefore);
+      return response;
+    };
+  }
+
+  /**
+   * @return The size in bytes at which the current batch is sealed, which changes over time when
+   *     the batch size is adaptive.
+   */
+  protected int getMaxQueueSize() {
+    return this.batchSizer != null ? this.batchSizer.getBatchSize() : this.maxQueueSize;
+  }
+
+  /**
+   * @return The size in bytes at which batches are currently sealed.
+   */
+  int getCurrentBatchSize() {
+    return this.getMaxQueueSize();
+  }
+
+  /**
+   * Sets the source of throttling signals for the adaptive batch size. The counter is read on the
+   * thread running each upload, before and after it, and any increase is considered throttling of
+   * that upload. It must therefore only count the responses received by the calling thread, so that
+   * concurrent uploads do not see each other's throttling.
+   *
+   * @param throttleCounter The number of throttled responses received so far by the calling thread.
+   */
+  void setThrottleCounter(LongSupplier throttleCounter) {
+    this.throttleCounter = throttleCounter;
+  }
 
+  /**
+   * Drops the documents not handed to the upload pipeline yet, deleting their spill file if any,
+   * and releases the threads of the queue. Used when the documents cannot all be sent, so that the
+   * queue holds on to nothing.
+   */
+  synchronized void discard() {
+    if (this.spillFile != null) {
+      this.spillFile.delete();
+    }
+    this.clearQueue();
+    this.close();
+  }
+
+  /**
+   * Releases the threads of the queue: its linger scheduler, and its upload pool once the batches
+   * already sealed are uploaded. Queued documents are kept, and the threads are created again if
+   * the queue is used afterwards.
+   */
+  synchronized void close() {
+    if (this.lingerTask != null) {
+      this.lingerTask.cancel(false);
+      this.lingerTask = null;
+    }
+    if (this.lingerScheduler != null) {
+      this.lingerScheduler.shutdown();
+      this.lingerScheduler = null;
+    }
+    this.pipeline.close();
+  }
+
+  protected void clearQueue() {
+    if (this.lingerTask != null) {
+      this.lingerTask.cancel(false);
+      this.lingerTask = null;
+    }
     this.size = 0;
+    this.spillFile = null;
     this.documentToAddList.clear();
     this.documentToDeleteList.clear();
+    this.encodedToAddList.clear();
+    this.encodedToDeleteList.clear();
   }
 
   /**
    * Adds a {@link DocumentBuilder} to the upload queue and flushes the queue if it exceeds the
    * maximum content length. See {@link DocumentUploadQueue#flush}.
    *
+   * <p>The document is encoded once when added, and that encoding is what gets uploaded. Changes
+   * made to the document after this call are not sent.
+   *
    * @param document The document to be added to the index.
-   * @throws IOException If an I/O error occurs during the upload.
+   * @throws IOException If an I/O error occurs during the upload, or if the upload of a lingering
+   *     batch failed.
    * @throws InterruptedException If the upload process is interrupted.
    */
-  public void add(DocumentBuilder document) throws IOException, InterruptedException {
+  public synchronized void add(DocumentBuilder document) throws IOException, InterruptedException {
     if (document == null) {
       return;
     }
+    this.rethrowLingerFailure();
 
-    final int sizeOfDoc = document.marshal().getBytes().length;
-    if (this.size + sizeOfDoc >= this.maxQueueSize) {
-      this.flush();
+    final byte[] encoded = document.encode();
+    final int sizeOfDoc = encoded.length;
+    if (this.size + sizeOfDoc >= this.getMaxQueueSize()) {
+      this.sealBatch();
+    }
+    if (this.spillToDisk) {
+      this.spill("addOrUpdate", encoded);
+    } else {
+      documentToAddList.add(document);
+      encodedToAddList.add(encoded);
     }
-    documentToAddList.add(document);
     if (logger.isDebugEnabled()) {
       logger.debug("Adding document to batch: " + document.getDocument().uri);
     }
     this.size += sizeOfDoc;
+    this.scheduleLinger();
   }
 
   /**
@@ -172,33 +411,138 @@ class DocumentUploadQueue {
    * maximum content length. See {@link DocumentUploadQueue#flush}.
    *
    * @param document The document to be deleted from the index.
-   * @throws IOException If an I/O error occurs during the upload.
+   * @throws IOException If an I/O error occurs during the upload, or if the upload of a lingering
+   *     batch failed.
    * @throws InterruptedException If the upload process is interrupted.
    */
-  public void add(DeleteDocument document) throws IOException, InterruptedException {
+  public synchronized void add(DeleteDocument document) throws IOException, InterruptedException {
     if (document == null) {
       return;
     }
+    this.rethrowLingerFailure();
 
-    final int sizeOfDoc = document.marshalJsonObject().toString().getBytes().length;
-    if (this.size + sizeOfDoc >= this.maxQueueSize) {
-      this.flush();
+    final byte[] encoded = JsonCodec.encode(document, DeleteDocument.class);
+    final int sizeOfDoc = encoded.length;
+    if (this.size + sizeOfDoc >= this.getMaxQueueSize()) {
+      this.sealBatch();
+    }
+    if (this.spillToDisk) {
+      this.spill("delete", encoded);
+    } else {
+      documentToDeleteList.add(document);
+      encodedToDeleteList.add(encoded);
     }
-    documentToDeleteList.add(document);
     if (logger.isDebugEnabled()) {
       logger.debug("Adding document to batch: " + document.documentId);
     }
     this.size += sizeOfDoc;
+    this.scheduleLinger();
+  }
+
+  /**
+   * Schedules the upload of the current batch once the linger time has elapsed, unless it is
+   * already scheduled. Called after a document is added. Does nothing when lingering is disabled.
+   */
+  protected void scheduleLinger() {
+    if (this.lingerMs <= 0 || this.lingerTask != null) {
+      return;
+    }
+    if (this.lingerScheduler == null) {
+      this.lingerScheduler = createLingerScheduler();
+    }
+    this.lingerTask =
+        this.lingerScheduler.schedule(
+            this::sealLingeringBatch, this.lingerMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return The pending upload of the current batch once the linger time elapses, or null if none
+   *     is scheduled.
+   */
+  synchronized ScheduledFuture<?> getLingerTask() {
+    return this.lingerTask;
+  }
+
+  private synchronized void sealLingeringBatch() {
+    if (this.lingerTask == null) {
+      return;
+    }
+    this.lingerTask = null;
+    try {
+      logger.debug("Linger time elapsed. Sealing partial batch");
+      this.sealBatch();
+    } catch (Exception e) {
+      logger.error("Upload of a lingering batch failed", e);
+      if (this.lingerFailure == null) {
+        this.lingerFailure = e;
+      } else {
+        this.lingerFailure.addSuppressed(e);
+      }
+    }
+  }
+
+  /**
+   * Throws the failure of a lingering batch upload, if any, so that background failures are not
+   * silently lost.
+   *
+   * @throws IOException If the upload of a lingering batch failed.
+   * @throws InterruptedException If the upload of a lingering batch was interrupted.
+   */
+  protected void rethrowLingerFailure() throws IOException, InterruptedException {
+    Exception failure = this.lingerFailure;
+    if (failure == null) {
+      return;
+    }
+    this.lingerFailure = null;
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    }
+    if (failure instanceof InterruptedException) {
+      throw (InterruptedException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    throw new IOException(failure);
   }
 
-  public BatchUpdate getBatch() {
+  private static ScheduledThreadPoolExecutor createLingerScheduler() {
+    String name = "coveo-push-linger-" + lingerCounter.incrementAndGet();
+    ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, name);
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.setKeepAliveTime(30, TimeUnit.SECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  public synchronized BatchUpdate getBatch() {
     return new BatchUpdate(
         new ArrayList<DocumentBuilder>(this.documentToAddList),
-        new ArrayList<DeleteDocument>(this.documentToDeleteList));
+        new ArrayList<DeleteDocument>(this.documentToDeleteList),
+        new ArrayList<byte[]>(this.encodedToAddList),
+        new ArrayList<byte[]>(this.encodedToDeleteList));
   }
 
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
     // TODO: LENS-843: include partial document updates
-    return documentToAddList.isEmpty() && documentToDeleteList.isEmpty();
+    return documentToAddList.isEmpty()
+        && documentToDeleteList.isEmpty()
+        && (spillFile == null || spillFile.isEmpty());
+  }
+
+  /**
+   * Returns the HTTP response of the most recent batch uploaded before the last flush.
+   *
+   * @return The last response, or null if nothing was uploaded since the previous flush.
+   */
+  HttpResponse<String> getLastResponse() {
+    return this.lastResponse;
   }
 }
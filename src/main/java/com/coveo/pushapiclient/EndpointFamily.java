@@ -0,0 +1,41 @@
+package com.coveo.pushapiclient;
+
+import java.net.URI;
+
+/** The groups of endpoints that fail together, each guarded by its own circuit breaker. */
+public enum EndpointFamily {
+  /** The creation of file containers, and the uploads of their content. */
+  FILES,
+  /** The opening, chunks, updates and closing of streams. */
+  STREAM,
+  /** The documents, document batches and statuses of push sources. */
+  DOCUMENTS,
+  /** The permissions and mappings of security identity providers. */
+  PROVIDERS;
+
+  private static final String PUSH_API_PATH = "/push/v1/organizations/";
+  private static final String PLATFORM_PATH = "/rest/organizations/";
+
+  /**
+   * @param uri The URI of a request.
+   * @return The family of the endpoint, or null for endpoints that are not guarded, such as the
+   *     management of sources.
+   */
+  static EndpointFamily of(URI uri) {
+    String path = uri.getPath() != null ? uri.getPath() : "";
+    if (path.contains(PUSH_API_PATH)) {
+      if (path.contains("/providers/")) {
+        return PROVIDERS;
+      }
+      if (path.contains("/stream/")) {
+        return STREAM;
+      }
+      if (path.endsWith("/files")) {
+        return FILES;
+      }
+      return DOCUMENTS;
+    }
+    // Anything outside the platform is the storage a file container uploads to.
+    return path.contains(PLATFORM_PATH) ? null : FILES;
+  }
+}
@@ -0,0 +1,209 @@
+package com.coveo.pushapiclient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hands out file containers for batch uploads, keeping a few of them created ahead of time so that
+ * an upload does not have to wait for a file container to be created.
+ *
+ * <p>Containers are requested in the background each time one is handed out, until the pool is full
+ * again. The pool only starts filling on the first request, so a service that never uploads creates
+ * no containers. The upload URI of a file container expires an hour after its creation, so pooled
+ * containers older than {@link #DEFAULT_TIME_TO_LIVE} are discarded. With a size of 0, every
+ * container is created when requested.
+ *
+ * @see <a href="https://docs.coveo.com/en/43">Creating a FileContainer</a>
+ */
+class FileContainerPool {
+  private static final Logger logger = LogManager.getLogger(FileContainerPool.class);
+  private static final int DECODE_THREADS = 2;
+  private static final HttpResponse.BodyHandler<Supplier<FileContainer>> FILE_CONTAINER_BODY =
+      ResponseBodies.json(FileContainer.class);
+
+  /**
+   * Decodes the prefetched containers of every pool. Decoding blocks while the body streams in, so
+   * it runs on its own daemon threads rather than on the common pool, whose threads would be taken
+   * from every other asynchronous task of the application. Idle threads stop after a while.
+   */
+  private static final Executor DECODE_EXECUTOR = createDecodeExecutor();
+
+  /**
+   * How long a pooled container may be handed out after its creation. Leaves enough of the hour
+   * during which its upload URI is valid to upload a batch.
+   */
+  static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(50);
+
+  private final PlatformClient platformClient;
+  private final int size;
+  private final long timeToLiveNanos;
+  private final LongSupplier nanoTime;
+  private final Executor decodeExecutor;
+  private final Deque<PooledContainer> containers = new ArrayDeque<>();
+  private int pending = 0;
+
+  /**
+   * @param platformClient The client creating the file containers.
+   * @param size The number of containers to keep ready.
+   */
+  FileContainerPool(PlatformClient platformClient, int size) {
+    this(platformClient, size, DEFAULT_TIME_TO_LIVE, System::nanoTime, DECODE_EXECUTOR);
+  }
+
+  /**
+   * @param decodeExecutor Decodes the prefetched containers as their body streams in, off the
+   *     threads of the HTTP client.
+   */
+  FileContainerPool(
+      PlatformClient platformClient,
+      int size,
+      Duration timeToLive,
+      LongSupplier nanoTime,
+      Executor decodeExecutor) {
+    if (size < 0) {
+      throw new IllegalArgumentException("File container prefetch must not be negative");
+    }
+    this.platformClient = platformClient;
+    this.size = size;
+    this.timeToLiveNanos = timeToLive.toNanos();
+    this.nanoTime = nanoTime;
+    this.decodeExecutor = decodeExecutor;
+  }
+
+  /**
+   * Takes a container from the pool, or creates one if none is ready, then starts refilling the
+   * pool.
+   *
+   * @return A file container that was never used.
+   * @throws IOException If a container has to be created and its creation fails, or the platform
+   *     does not return one.
+   * @throws InterruptedException If a container has to be created and its creation is interrupted.
+   */
+  FileContainer acquire() throws IOException, InterruptedException {
+    FileContainer container = this.poll();
+    this.refill();
+    if (container != null) {
+      logger.debug("Using prefetched file container {}", container.fileId);
+      return container;
+    }
+    HttpResponse<Supplier<FileContainer>> response =
+        this.platformClient.createFileContainer(FILE_CONTAINER_BODY);
+    FileContainer created;
+    try {
+      created = response.body().get();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (created == null) {
+      throw new IOException(
+          "Could not create a file container. Status code: " + response.statusCode());
+    }
+    return created;
+  }
+
+  synchronized int available() {
+    this.discardExpired();
+    return this.containers.size();
+  }
+
+  private synchronized FileContainer poll() {
+    this.discardExpired();
+    PooledContainer pooled = this.containers.pollFirst();
+    return pooled != null ? pooled.container : null;
+  }
+
+  private synchronized void discardExpired() {
+    long now = this.nanoTime.getAsLong();
+    while (!this.containers.isEmpty()
+        && now - this.containers.peekFirst().createdAt >= this.timeToLiveNanos) {
+      logger.debug("Discarding expired file container {}", this.containers.pollFirst().fileId());
+    }
+  }
+
+  private void refill() {
+    int missing;
+    synchronized (this) {
+      missing = this.size - this.containers.size() - this.pending;
+      this.pending += Math.max(missing, 0);
+    }
+    for (int i = 0; i < missing; i++) {
+      long requestedAt = this.nanoTime.getAsLong();
+      this.platformClient
+          .createFileContainerAsync(FILE_CONTAINER_BODY)
+          .whenCompleteAsync(
+              (response, error) -> this.onCreated(requestedAt, response, error),
+              this.decodeExecutor);
+    }
+  }
+
+  private void onCreated(
+      long requestedAt, HttpResponse<Supplier<FileContainer>> response, Throwable error) {
+    FileContainer container = null;
+    if (error != null) {
+      logger.warn("Could not prefetch a file container", error);
+    } else {
+      try {
+        container = response.body().get();
+        if (container == null) {
+          logger.warn(
+              "Could not prefetch a file container. Status code: {}", response.statusCode());
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Could not read a prefetched file container", e);
+      }
+    }
+    synchronized (this) {
+      this.pending--;
+      if (container != null && container.uploadUri != null) {
+        this.containers.addLast(new PooledContainer(container, requestedAt));
+      }
+    }
+  }
+
+  private static Executor createDecodeExecutor() {
+    AtomicInteger threadCounter = new AtomicInteger();
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            DECODE_THREADS,
+            DECODE_THREADS,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+              Thread thread =
+                  new Thread(
+                      runnable, "coveo-push-file-container-" + threadCounter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static final class PooledContainer {
+    private final FileContainer container;
+    private final long createdAt;
+
+    private PooledContainer(FileContainer container, long createdAt) {
+      this.container = container;
+      this.createdAt = createdAt;
+    }
+
+    private String fileId() {
+      return this.container.fileId;
+    }
+  }
+}
@@ -0,0 +1,327 @@
+package com.coveo.pushapiclient;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The JSON serialization shared by the whole client.
+ *
+ * <p>{@link Gson} is thread-safe and caches the type adapter of every type it has seen, so a single
+ * instance is reused instead of creating one per call. The types on the document upload path are
+ * written by hand-written writers that stream straight to the output, without reflection or an
+ * intermediate {@link com.google.gson.JsonElement} tree. Those types are still read by the
+ * reflective adapters Gson would otherwise use.
+ */
+final class JsonCodec {
+
+  static final Gson GSON =
+      new GsonBuilder()
+          .registerTypeAdapterFactory(writtenWith(Document.class, new DocumentWriter()))
+          .registerTypeAdapterFactory(
+              writtenWith(DocumentPermissions.class, DocumentPermissionsWriter.INSTANCE))
+          .registerTypeAdapterFactory(
+              writtenWith(SecurityIdentity.class, SecurityIdentityWriter.INSTANCE))
+          .registerTypeAdapterFactory(
+              writtenWith(PartialUpdateDocument.class, new PartialUpdateDocumentWriter()))
+          .registerTypeAdapter(FileContainer.class, new FileContainerAdapter())
+          .create();
+
+  private JsonCodec() {}
+
+  /**
+   * Encodes a value into UTF-8 JSON without building an intermediate string.
+   *
+   * @param value The value to encode.
+   * @param type The type whose adapter should be used.
+   * @return The encoded bytes.
+   */
+  static byte[] encode(Object value, Type type) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonWriter writer =
+        GSON.newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+      GSON.toJson(value, type, writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeValue(JsonWriter out, Object value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+    } else if (value instanceof String) {
+      out.value((String) value);
+    } else if (value instanceof Boolean) {
+      out.value((Boolean) value);
+    } else if (value instanceof Number) {
+      out.value((Number) value);
+    } else if (value instanceof String[]) {
+      out.beginArray();
+      for (String item : (String[]) value) {
+        out.value(item);
+      }
+      out.endArray();
+    } else {
+      writeObject(out, value);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void writeObject(JsonWriter out, T value) throws IOException {
+    ((TypeAdapter<T>) GSON.getAdapter(value.getClass())).write(out, value);
+  }
+
+  private static void writeProperty(JsonWriter out, String name, String value) throws IOException {
+    if (value != null) {
+      out.name(name).value(value);
+    }
+  }
+
+  private static void writeIdentities(JsonWriter out, String name, SecurityIdentity[] identities)
+      throws IOException {
+    if (identities == null) {
+      return;
+    }
+    out.name(name).beginArray();
+    for (SecurityIdentity identity : identities) {
+      SecurityIdentityWriter.INSTANCE.write(out, identity);
+    }
+    out.endArray();
+  }
+
+  /** Writes a type sent to the Coveo Platform, in place of its reflective serialization. */
+  @FunctionalInterface
+  private interface ValueWriter<T> {
+    void write(JsonWriter out, T value) throws IOException;
+  }
+
+  /**
+   * @return A factory of adapters writing a type with a hand-written writer, and reading it with
+   *     the reflective adapter Gson would otherwise use.
+   */
+  private static <T> TypeAdapterFactory writtenWith(Class<T> type, ValueWriter<T> writer) {
+    return new TypeAdapterFactory() {
+      @Override
+      public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+        if (typeToken.getRawType() != type) {
+          return null;
+        }
+        TypeAdapter<R> reader = gson.getDelegateAdapter(this, typeToken);
+        return new TypeAdapter<R>() {
+          @Override
+          public void write(JsonWriter out, R value) throws IOException {
+            writer.write(out, type.cast(value));
+          }
+
+          @Override
+          public R read(JsonReader in) throws IOException {
+            return reader.read(in);
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Writes a document in the shape expected by the Push API: the metadata is flattened into the
+   * document, taking precedence over the fields of the same name, the compressed binary data is
+   * written as its encoded string, and the document ID is the document URI.
+   */
+  private static final class DocumentWriter implements ValueWriter<Document> {
+    @Override
+    public void write(JsonWriter out, Document document) throws IOException {
+      if (document == null) {
+        out.nullValue();
+        return;
+      }
+      Map<String, Object> metadata = document.metadata;
+      out.beginObject();
+      if (document.permissions != null && !metadata.containsKey("permissions")) {
+        out.name("permissions").beginArray();
+        for (DocumentPermissions permissions : document.permissions) {
+          DocumentPermissionsWriter.INSTANCE.write(out, permissions);
+        }
+        out.endArray();
+      }
+      this.writeField(out, metadata, "uri", document.uri);
+      this.writeField(out, metadata, "title", document.title);
+      this.writeField(out, metadata, "clickableUri", document.clickableUri);
+      this.writeField(out, metadata, "author", document.author);
+      this.writeField(out, metadata, "date", document.date);
+      this.writeField(out, metadata, "modifiedDate", document.modifiedDate);
+      this.writeField(out, metadata, "permanentId", document.permanentId);
+      this.writeField(out, metadata, "parentId", document.parentId);
+      this.writeField(out, metadata, "data", document.data);
+      if (document.compressedBinaryData != null) {
+        writeProperty(out, "compressedBinaryData", document.compressedBinaryData.getData());
+      }
+      this.writeField(
+          out, metadata, "compressedBinaryDataFileId", document.compressedBinaryDataFileId);
+      this.writeField(out, metadata, "fileExtension", document.fileExtension);
+      for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+        if (entry.getValue() != null && !this.isWrittenFromDocument(document, entry.getKey())) {
+          out.name(entry.getKey());
+          writeValue(out, entry.getValue());
+        }
+      }
+      writeProperty(out, "documentId", document.uri);
+      out.endObject();
+    }
+
+    /**
+     * @return Whether a metadata key is written from the document itself, which then takes
+     *     precedence over the metadata, so that the key is written once.
+     */
+    private boolean isWrittenFromDocument(Document document, String key) {
+      return "documentId".equals(key)
+          || ("compressedBinaryData".equals(key) && document.compressedBinaryData != null);
+    }
+
+    private void writeField(JsonWriter out, Map<String, Object> metadata, String name, String value)
+        throws IOException {
+      if (!metadata.containsKey(name)) {
+        writeProperty(out, name, value);
+      }
+    }
+  }
+
+  private static final class DocumentPermissionsWriter implements ValueWriter<DocumentPermissions> {
+    private static final DocumentPermissionsWriter INSTANCE = new DocumentPermissionsWriter();
+
+    @Override
+    public void write(JsonWriter out, DocumentPermissions permissions) throws IOException {
+      if (permissions == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      out.name("allowAnonymous").value(permissions.allowAnonymous);
+      writeIdentities(out, "allowedPermissions", permissions.allowedPermissions);
+      writeIdentities(out, "deniedPermissions", permissions.deniedPermissions);
+      out.endObject();
+    }
+  }
+
+  private static final class SecurityIdentityWriter implements ValueWriter<SecurityIdentity> {
+    private static final SecurityIdentityWriter INSTANCE = new SecurityIdentityWriter();
+
+    @Override
+    public void write(JsonWriter out, SecurityIdentity identity) throws IOException {
+      if (identity == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      writeProperty(out, "identity", identity.identity);
+      if (identity.identityType != null) {
+        out.name("identityType").value(identity.identityType.name());
+      }
+      writeProperty(out, "securityProvider", identity.securityProvider);
+      out.endObject();
+    }
+  }
+
+  private static final class PartialUpdateDocumentWriter
+      implements ValueWriter<PartialUpdateDocument> {
+    @Override
+    public void write(JsonWriter out, PartialUpdateDocument document) throws IOException {
+      if (document == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      writeProperty(out, "documentId", document.documentId);
+      if (document.operator != null) {
+        out.name("operator").value(document.operator.name());
+      }
+      writeProperty(out, "field", document.field);
+      if (document.value != null) {
+        out.name("value");
+        writeValue(out, document.value);
+      }
+      out.endObject();
+    }
+  }
+
+  private static final class FileContainerAdapter extends TypeAdapter<FileContainer> {
+    @Override
+    public void write(JsonWriter out, FileContainer fileContainer) throws IOException {
+      if (fileContainer == null) {
+        out.nullValue();
+        return;
+      }
+      out.beginObject();
+      writeProperty(out, "uploadUri", fileContainer.uploadUri);
+      writeProperty(out, "fileId", fileContainer.fileId);
+      if (fileContainer.requiredHeaders != null) {
+        out.name("requiredHeaders").beginObject();
+        for (Map.Entry<String, String> header : fileContainer.requiredHeaders.entrySet()) {
+          writeProperty(out, header.getKey(), header.getValue());
+        }
+        out.endObject();
+      }
+      out.endObject();
+    }
+
+    @Override
+    public FileContainer read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      FileContainer fileContainer = new FileContainer();
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+          continue;
+        }
+        switch (name) {
+          case "uploadUri":
+            fileContainer.uploadUri = in.nextString();
+            break;
+          case "fileId":
+            fileContainer.fileId = in.nextString();
+            break;
+          case "requiredHeaders":
+            fileContainer.requiredHeaders = this.readHeaders(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      return fileContainer;
+    }
+
+    private Map<String, String> readHeaders(JsonReader in) throws IOException {
+      Map<String, String> headers = new HashMap<>();
+      in.beginObject();
+      while (in.hasNext()) {
+        String name = in.nextName();
+        if (in.peek() == JsonToken.NULL) {
+          in.nextNull();
+        } else {
+          headers.put(name, in.nextString());
+        }
+      }
+      in.endObject();
+      return headers;
+    }
+  }
+}
@@ -0,0 +1,377 @@
+package com.coveo.pushapiclient;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the pending operations of a batch indexed by document ID, so that the operations on a same
+ * document are coalesced as they are added:
+ *
+ * <ul>
+ *   <li>A full update or a deletion supersedes every pending operation on the document.
+ *   <li>A partial update of a document with a pending full update is applied to that update.
+ *   <li>A field value replacement supersedes the pending partial updates of that field.
+ * </ul>
+ *
+ * <p>Field names are matched ignoring case, as the index does.
+ *
+ * <p>An operation that cannot be coalesced without changing the outcome, such as a partial update
+ * of a deleted document, is refused. The queue then seals the batch before adding it, so that the
+ * operations are applied in the order they were added.
+ */
+class OperationCoalescer {
+  /** Fields of the document that partial updates are never applied to, in lower case. */
+  private static final Set<String> RESERVED_FIELDS =
+      Set.of(
+          "documentid",
+          "permissions",
+          "data",
+          "compressedbinarydata",
+          "compressedbinarydatafileid",
+          "parentid",
+          "fileextension",
+          "orderingid");
+
+  private final Map<String, PendingDocument> pending = new LinkedHashMap<>();
+  private int size;
+  private long coalescedOperations;
+
+  /**
+   * @param document The document to create or replace.
+   * @param encoded The UTF-8 JSON of the document.
+   * @return Whether the operation was added. Refused if it would also drop a deletion of the
+   *     children of the document.
+   */
+  boolean addOrUpdate(DocumentBuilder document, byte[] encoded) {
+    String documentId = document.getDocument().uri;
+    PendingDocument entry = this.pending.get(documentId);
+    if (entry != null && entry.delete != null && entry.delete.deleteChildren) {
+      return false;
+    }
+    entry = this.clearedEntry(documentId);
+    entry.document = document;
+    entry.encodedDocument = encoded;
+    entry.encodedSize = encoded.length;
+    this.size += entry.size();
+    return true;
+  }
+
+  /**
+   * @param document The document to delete.
+   * @param encoded The UTF-8 JSON of the deletion.
+   * @return Whether the operation was added. Always true, since a deletion supersedes every other
+   *     operation. A pending deletion of the children of the document is kept instead of a deletion
+   *     of the document alone, so that the children are still deleted.
+   */
+  boolean delete(DeleteDocument document, byte[] encoded) {
+    PendingDocument pendingEntry = this.pending.get(document.documentId);
+    if (!document.deleteChildren
+        && pendingEntry != null
+        && pendingEntry.delete != null
+        && pendingEntry.delete.deleteChildren) {
+      this.coalescedOperations++;
+      return true;
+    }
+    PendingDocument entry = this.clearedEntry(document.documentId);
+    entry.delete = document;
+    entry.encodedDelete = encoded;
+    this.size += entry.size();
+    return true;
+  }
+
+  /**
+   * @param document The partial update.
+   * @param encoded The UTF-8 JSON of the partial update.
+   * @return Whether the operation was added. Refused if the document has a pending deletion, or a
+   *     pending full update that the partial update cannot be applied to.
+   */
+  boolean partialUpdate(PartialUpdateDocument document, byte[] encoded) {
+    PendingDocument entry = this.pending.get(document.documentId);
+    if (entry != null && entry.delete != null) {
+      return false;
+    }
+    if (entry == null) {
+      entry = new PendingDocument();
+      this.pending.put(document.documentId, entry);
+    }
+    int sizeBefore = entry.size();
+    if (entry.document != null) {
+      if (!fold(entry, document, encoded.length)) {
+        return false;
+      }
+      this.coalescedOperations++;
+    } else {
+      if (document.operator == PartialUpdateOperator.FIELDVALUEREPLACE) {
+        this.coalescedOperations += entry.removePartialUpdates(document.field);
+      }
+      entry.partialUpdates.add(document);
+      entry.encodedPartialUpdates.add(encoded);
+    }
+    this.size += entry.size() - sizeBefore;
+    return true;
+  }
+
+  /**
+   * @return The number of bytes of the pending operations, without separators. Full updates that
+   *     partial updates were folded into are estimated until {@link #toStreamUpdate()} encodes them
+   *     again.
+   */
+  int size() {
+    return this.size;
+  }
+
+  boolean isEmpty() {
+    return this.pending.isEmpty();
+  }
+
+  /**
+   * @return The number of operations dropped or folded into another one so far.
+   */
+  long getCoalescedOperations() {
+    return this.coalescedOperations;
+  }
+
+  void clear() {
+    this.pending.clear();
+    this.size = 0;
+  }
+
+  /**
+   * @return The entry of a document, after dropping its pending operations.
+   */
+  private PendingDocument clearedEntry(String documentId) {
+    PendingDocument entry = this.pending.get(documentId);
+    if (entry == null) {
+      entry = new PendingDocument();
+      this.pending.put(documentId, entry);
+      return entry;
+    }
+    this.size -= entry.size();
+    this.coalescedOperations += entry.clear();
+    return entry;
+  }
+
+  /**
+   * @return The pending operations. Full updates are sent as their encoded JSON, with the partial
+   *     updates folded into them, so the documents of the update may not reflect them.
+   */
+  StreamUpdate toStreamUpdate() {
+    List<DocumentBuilder> documents = new ArrayList<>();
+    List<byte[]> encodedDocuments = new ArrayList<>();
+    List<DeleteDocument> deletes = new ArrayList<>();
+    List<byte[]> encodedDeletes = new ArrayList<>();
+    List<PartialUpdateDocument> partialUpdates = new ArrayList<>();
+    List<byte[]> encodedPartialUpdates = new ArrayList<>();
+    for (PendingDocument entry : this.pending.values()) {
+      if (entry.document != null) {
+        byte[] encoded = entry.encodedDocument();
+        this.size += encoded.length - entry.encodedSize;
+        entry.encodedSize = encoded.length;
+        documents.add(entry.document);
+        encodedDocuments.add(encoded);
+      }
+      if (entry.delete != null) {
+        deletes.add(entry.delete);
+        encodedDeletes.add(entry.encodedDelete);
+      }
+      partialUpdates.addAll(entry.partialUpdates);
+      encodedPartialUpdates.addAll(entry.encodedPartialUpdates);
+    }
+    return new StreamUpdate(
+        documents,
+        deletes,
+        partialUpdates,
+        encodedDocuments,
+        encodedDeletes,
+        encodedPartialUpdates);
+  }
+
+  /**
+   * Applies a partial update to the pending full update of its document, if possible. The full
+   * update is only encoded again when the batch is built, so its size grows by the size of the
+   * partial update meanwhile, which is an upper bound for most operators.
+   */
+  private static boolean fold(
+      PendingDocument entry, PartialUpdateDocument update, int encodedUpdateSize) {
+    if (RESERVED_FIELDS.contains(normalize(update.field))) {
+      return false;
+    }
+    JsonObject tree = entry.tree();
+    String field = null;
+    for (String key : tree.keySet()) {
+      if (normalize(key).equals(normalize(update.field))) {
+        if (field != null) {
+          // The document has several spellings of the field, so the one updated is ambiguous
+          return false;
+        }
+        field = key;
+      }
+    }
+    if (field == null) {
+      field = update.field;
+    }
+    JsonElement current = tree.get(field);
+    JsonElement value = JsonCodec.GSON.toJsonTree(update.value);
+    switch (update.operator) {
+      case FIELDVALUEREPLACE:
+        if (value.isJsonNull()) {
+          tree.remove(field);
+        } else {
+          tree.add(field, value);
+        }
+        break;
+      case ARRAYAPPEND:
+        if (current == null) {
+          tree.add(field, value);
+        } else if (current.isJsonArray()) {
+          current.getAsJsonArray().addAll(value.getAsJsonArray());
+        } else {
+          return false;
+        }
+        break;
+      case ARRAYREMOVE:
+        if (current != null && !current.isJsonArray()) {
+          return false;
+        }
+        if (current != null) {
+          JsonArray remaining = new JsonArray();
+          for (JsonElement element : current.getAsJsonArray()) {
+            if (!value.getAsJsonArray().contains(element)) {
+              remaining.add(element);
+            }
+          }
+          tree.add(field, remaining);
+        }
+        break;
+      case DICTIONARYPUT:
+        if (current == null) {
+          tree.add(field, value);
+        } else if (current.isJsonObject()) {
+          for (Map.Entry<String, JsonElement> put : value.getAsJsonObject().entrySet()) {
+            current.getAsJsonObject().add(put.getKey(), put.getValue());
+          }
+        } else {
+          return false;
+        }
+        break;
+      case DICTIONARYREMOVE:
+        if (current != null && !current.isJsonObject()) {
+          return false;
+        }
+        if (current != null) {
+          if (value.isJsonArray()) {
+            for (JsonElement key : value.getAsJsonArray()) {
+              current.getAsJsonObject().remove(key.getAsString());
+            }
+          } else {
+            current.getAsJsonObject().remove(value.getAsString());
+          }
+        }
+        break;
+      default:
+        return false;
+    }
+    entry.encodedDocument = null;
+    entry.encodedSize += encodedUpdateSize;
+    return true;
+  }
+
+  private static String normalize(String field) {
+    return field.toLowerCase(Locale.ROOT);
+  }
+
+  /** The pending operations on a single document. */
+  private static final class PendingDocument {
+    private DocumentBuilder document;
+    private byte[] encodedDocument;
+    private JsonObject tree;
+    private int encodedSize;
+    private DeleteDocument delete;
+    private byte[] encodedDelete;
+    private final List<PartialUpdateDocument> partialUpdates = new ArrayList<>();
+    private final List<byte[]> encodedPartialUpdates = new ArrayList<>();
+
+    /**
+     * @return The number of bytes of the pending operations on the document.
+     */
+    private int size() {
+      int size = this.document != null ? this.encodedSize : 0;
+      if (this.encodedDelete != null) {
+        size += this.encodedDelete.length;
+      }
+      for (byte[] encoded : this.encodedPartialUpdates) {
+        size += encoded.length;
+      }
+      return size;
+    }
+
+    /**
+     * Drops the pending partial updates of a field.
+     *
+     * @return The number of partial updates dropped.
+     */
+    private int removePartialUpdates(String field) {
+      int removed = 0;
+      Iterator<PartialUpdateDocument> documents = this.partialUpdates.iterator();
+      Iterator<byte[]> encoded = this.encodedPartialUpdates.iterator();
+      while (documents.hasNext()) {
+        encoded.next();
+        if (normalize(documents.next().field).equals(normalize(field))) {
+          documents.remove();
+          encoded.remove();
+          removed++;
+        }
+      }
+      return removed;
+    }
+
+    /** Parses the full update once, when the first partial update is applied to it. */
+    private JsonObject tree() {
+      if (this.tree == null) {
+        this.tree =
+            JsonParser.parseString(new String(this.encodedDocument, StandardCharsets.UTF_8))
+                .getAsJsonObject();
+      }
+      return this.tree;
+    }
+
+    /** Encodes the full update again after partial updates were applied to it. */
+    private byte[] encodedDocument() {
+      if (this.encodedDocument == null) {
+        this.encodedDocument = JsonCodec.GSON.toJson(this.tree).getBytes(StandardCharsets.UTF_8);
+      }
+      return this.encodedDocument;
+    }
+
+    /**
+     * Drops every operation.
+     *
+     * @return The number of operations dropped.
+     */
+    private int clear() {
+      int dropped =
+          (this.document != null ? 1 : 0)
+              + (this.delete != null ? 1 : 0)
+              + this.partialUpdates.size();
+      this.document = null;
+      this.encodedDocument = null;
+      this.tree = null;
+      this.encodedSize = 0;
+      this.delete = null;
+      this.encodedDelete = null;
+      this.partialUpdates.clear();
+      this.encodedPartialUpdates.clear();
+      return dropped;
+    }
+  }
+}
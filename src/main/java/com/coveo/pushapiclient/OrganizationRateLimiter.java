@@ -0,0 +1,87 @@
+package com.coveo.pushapiclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of the requests sent to an organization by every {@link PlatformClient} of the
+ * JVM, including those created by the services and sources.
+ *
+ * <p>Each organization has a single limiter, consulted before every request and every retry. Many
+ * services working against the same organization then share its limits rather than all being
+ * throttled by the platform together. Organizations are not limited until {@link #configure} is
+ * called.
+ *
+ * <pre>{@code
+ * OrganizationRateLimiter.configure(
+ *     "my_org_id",
+ *     new RateLimitOptionsBuilder().withRequestsPerSecond(50).withBytesPerSecond(20_000_000).build());
+ * }</pre>
+ */
+public final class OrganizationRateLimiter {
+  private static final ConcurrentMap<String, OrganizationRateLimiter> limiters =
+      new ConcurrentHashMap<>();
+
+  private volatile TokenBucket requests;
+  private volatile TokenBucket bytes;
+
+  private OrganizationRateLimiter() {}
+
+  /**
+   * Sets the limits of an organization, replacing any previous ones. Takes effect immediately for
+   * every client of the organization, including those already created.
+   *
+   * @param organizationId The Coveo Organization identifier.
+   * @param options The limits, where 0 means no limit.
+   */
+  public static void configure(String organizationId, RateLimitOptions options) {
+    OrganizationRateLimiter limiter = forOrganization(organizationId);
+    long now = System.nanoTime();
+    limiter.requests =
+        options.getRequestsPerSecond() > 0
+            ? new TokenBucket(options.getRequestsPerSecond(), now)
+            : null;
+    limiter.bytes =
+        options.getBytesPerSecond() > 0 ? new TokenBucket(options.getBytesPerSecond(), now) : null;
+  }
+
+  /**
+   * @param organizationId The Coveo Organization identifier.
+   * @return The limiter shared by every client of the organization.
+   */
+  static OrganizationRateLimiter forOrganization(String organizationId) {
+    return limiters.computeIfAbsent(
+        String.valueOf(organizationId), id -> new OrganizationRateLimiter());
+  }
+
+  /**
+   * Reserves the capacity to send one request.
+   *
+   * @param bodyLength The length of the request body, or a negative value if unknown.
+   * @return How long to wait, in nanoseconds, before sending the request.
+   */
+  long reserve(long bodyLength) {
+    long now = System.nanoTime();
+    TokenBucket requestBucket = this.requests;
+    TokenBucket byteBucket = this.bytes;
+    long wait = requestBucket != null ? requestBucket.reserve(1, now) : 0;
+    if (byteBucket != null && bodyLength > 0) {
+      wait = Math.max(wait, byteBucket.reserve(bodyLength, now));
+    }
+    return wait;
+  }
+
+  /**
+   * Waits until one request can be sent.
+   *
+   * @param bodyLength The length of the request body, or a negative value if unknown.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  void acquire(long bodyLength) throws InterruptedException {
+    long wait = this.reserve(bodyLength);
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+}
@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import java.util.Map;
 
@@ -19,7 +18,7 @@ public class PartialUpdateDocument {
   public Object value;
 
   public JsonObject marshalJsonObject() {
-    return new Gson().toJsonTree(this).getAsJsonObject();
+    return JsonCodec.GSON.toJsonTree(this, PartialUpdateDocument.class).getAsJsonObject();
   }
 
   /**
@@ -1,27 +1,44 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import java.io.FileReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import org.apache.logging.log4j.LogManager;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.logging.log4j.Logger;
 
 /** PlatformClient handles network requests to the Coveo platform */
 public class PlatformClient {
+  private static final Logger logger = LogManager.getLogger(PlatformClient.class);
+
+  /** The version sent in the User-Agent header when the build did not record one. */
+  static final String UNKNOWN_SDK_VERSION = "Not-Available";
+
+  private static final String SDK_VERSION = loadSdkVersion();
+  private static final String[] BINARY_HEADERS = {
+    "x-amz-server-side-encryption", "AES256", "Content-Type", "application/octet-stream"
+  };
+  private static final String[] GZIP_CONTENT_ENCODING_HEADER = {"Content-Encoding", "gzip"};
   private final String apiKey;
   private final String organizationId;
   private final ApiCore api;
   private final PlatformUrl platformUrl;
+  private final String basePushUrl;
+  private final String baseSourceUrl;
   private String[] userAgents;
+  private Integer uploadCompressionLevel;
+  private volatile String[] jsonHeaders;
 
   /**
    * Construct a PlatformClient
@@ -76,10 +93,33 @@ public class PlatformClient {
    */
   public PlatformClient(
       String apiKey, String organizationId, PlatformUrl platformUrl, BackoffOptions options) {
+    this(apiKey, organizationId, platformUrl, options, ClientContext.getDefault());
+  }
+
+  /**
+   * Construct a PlatformClient
+   *
+   * @param apiKey An apiKey capable of pushing documents and managing sources in a Coveo
+   *     organization.
+   * @see <a href="https://docs.coveo.com/en/1718">Manage API Keys</a>
+   * @param organizationId The Coveo Organization identifier.
+   * @param platformUrl The PlatformUrl.
+   * @param options The configuration options for exponential backoff.
+   * @param context The HTTP client to share with other clients.
+   */
+  public PlatformClient(
+      String apiKey,
+      String organizationId,
+      PlatformUrl platformUrl,
+      BackoffOptions options,
+      ClientContext context) {
     this.apiKey = apiKey;
     this.organizationId = organizationId;
-    this.api = new ApiCore();
+    this.api = new ApiCore(context.getHttpClient(), LogManager.getLogger(ApiCore.class), options);
+    this.api.setRateLimiter(OrganizationRateLimiter.forOrganization(organizationId));
     this.platformUrl = platformUrl;
+    this.basePushUrl = basePushUrl(this.platformUrl, organizationId);
+    this.baseSourceUrl = baseSourceUrl(this.platformUrl, organizationId);
   }
 
   /**
@@ -110,7 +150,10 @@ public class PlatformClient {
     this.apiKey = apiKey;
     this.organizationId = organizationId;
     this.api = new ApiCore(httpClient, LogManager.getLogger(ApiCore.class), options);
+    this.api.setRateLimiter(OrganizationRateLimiter.forOrganization(organizationId));
     this.platformUrl = new PlatformUrlBuilder().build();
+    this.basePushUrl = basePushUrl(this.platformUrl, organizationId);
+    this.baseSourceUrl = baseSourceUrl(this.platformUrl, organizationId);
   }
 
   /**
@@ -127,7 +170,10 @@ public class PlatformClient {
     this.apiKey = apiKey;
     this.organizationId = organizationId;
     this.api = new ApiCore();
+    this.api.setRateLimiter(OrganizationRateLimiter.forOrganization(organizationId));
     this.platformUrl = new PlatformUrlBuilder().withEnvironment(environment).build();
+    this.basePushUrl = basePushUrl(this.platformUrl, organizationId);
+    this.baseSourceUrl = baseSourceUrl(this.platformUrl, organizationId);
   }
 
   /**
@@ -162,26 +208,32 @@ public class PlatformClient {
   public HttpResponse<String> createSource(
       String name, final SourceType sourceType, SourceVisibility sourceVisibility)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    String json =
-        this.toJSON(
-            new HashMap<>() {
-              {
-                put("sourceType", sourceType.toString());
-                put("pushEnabled", sourceType.isPushEnabled());
-                put("streamEnabled", sourceType.isStreamEnabled());
-                put("name", name);
-                put("sourceVisibility", sourceVisibility);
-              }
-            });
-
+    String[] headers = this.getJsonHeaders();
+    String json = this.getCreateSourceJSON(name, sourceType, sourceVisibility);
     URI uri = URI.create(this.getBaseSourceURL());
 
     return this.api.post(uri, headers, HttpRequest.BodyPublishers.ofString(json));
   }
 
+  /**
+   * Create a new source without blocking the calling thread.
+   *
+   * @see PlatformClient#createSource(String, SourceType, SourceVisibility)
+   * @param name The name of the source to create
+   * @param sourceType The type of the source to create
+   * @param sourceVisibility The security option that should be applied to the content of the
+   *     source.
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> createSourceAsync(
+      String name, final SourceType sourceType, SourceVisibility sourceVisibility) {
+    String[] headers = this.getJsonHeaders();
+    String json = this.getCreateSourceJSON(name, sourceType, sourceVisibility);
+    URI uri = URI.create(this.getBaseSourceURL());
+
+    return this.api.postAsync(uri, headers, HttpRequest.BodyPublishers.ofString(json));
+  }
+
   /**
    * Create or update a security identity.
    *
@@ -196,15 +248,32 @@ public class PlatformClient {
   public HttpResponse<String> createOrUpdateSecurityIdentity(
       String securityProviderId, SecurityIdentityModel securityIdentityModel)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri = URI.create(this.getBaseProviderURL(securityProviderId) + "/permissions");
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPermissionsURI(securityProviderId);
 
-    String json = new Gson().toJson(securityIdentityModel);
+    String json = JsonCodec.GSON.toJson(securityIdentityModel);
 
     return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(json));
   }
 
+  /**
+   * Create or update a security identity without blocking the calling thread.
+   *
+   * @see PlatformClient#createOrUpdateSecurityIdentity(String, SecurityIdentityModel)
+   * @param securityProviderId
+   * @param securityIdentityModel
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> createOrUpdateSecurityIdentityAsync(
+      String securityProviderId, SecurityIdentityModel securityIdentityModel) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPermissionsURI(securityProviderId);
+
+    String json = JsonCodec.GSON.toJson(securityIdentityModel);
+
+    return this.api.putAsync(uri, headers, HttpRequest.BodyPublishers.ofString(json));
+  }
+
   /**
    * Create or update a security identity alias.
    *
@@ -219,15 +288,32 @@ public class PlatformClient {
   public HttpResponse<String> createOrUpdateSecurityIdentityAlias(
       String securityProviderId, SecurityIdentityAliasModel securityIdentityAlias)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri = URI.create(this.getBaseProviderURL(securityProviderId) + "/mappings");
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getMappingsURI(securityProviderId);
 
-    String json = new Gson().toJson(securityIdentityAlias);
+    String json = JsonCodec.GSON.toJson(securityIdentityAlias);
 
     return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(json));
   }
 
+  /**
+   * Create or update a security identity alias without blocking the calling thread.
+   *
+   * @see PlatformClient#createOrUpdateSecurityIdentityAlias(String, SecurityIdentityAliasModel)
+   * @param securityProviderId
+   * @param securityIdentityAlias
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> createOrUpdateSecurityIdentityAliasAsync(
+      String securityProviderId, SecurityIdentityAliasModel securityIdentityAlias) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getMappingsURI(securityProviderId);
+
+    String json = JsonCodec.GSON.toJson(securityIdentityAlias);
+
+    return this.api.putAsync(uri, headers, HttpRequest.BodyPublishers.ofString(json));
+  }
+
   /**
    * Delete a security identity.
    *
@@ -241,15 +327,32 @@ public class PlatformClient {
   public HttpResponse<String> deleteSecurityIdentity(
       String securityProviderId, SecurityIdentityDelete securityIdentityToDelete)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri = URI.create(this.getBaseProviderURL(securityProviderId) + "/permissions");
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPermissionsURI(securityProviderId);
 
-    String json = new Gson().toJson(securityIdentityToDelete);
+    String json = JsonCodec.GSON.toJson(securityIdentityToDelete);
 
     return this.api.delete(uri, headers, HttpRequest.BodyPublishers.ofString(json));
   }
 
+  /**
+   * Delete a security identity without blocking the calling thread.
+   *
+   * @see PlatformClient#deleteSecurityIdentity(String, SecurityIdentityDelete)
+   * @param securityProviderId
+   * @param securityIdentityToDelete
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> deleteSecurityIdentityAsync(
+      String securityProviderId, SecurityIdentityDelete securityIdentityToDelete) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPermissionsURI(securityProviderId);
+
+    String json = JsonCodec.GSON.toJson(securityIdentityToDelete);
+
+    return this.api.deleteAsync(uri, headers, HttpRequest.BodyPublishers.ofString(json));
+  }
+
   /**
    * Delete old security identities.
    *
@@ -263,19 +366,28 @@ public class PlatformClient {
   public HttpResponse<String> deleteOldSecurityIdentities(
       String securityProviderId, SecurityIdentityDeleteOptions batchDelete)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBaseProviderURL(securityProviderId)
-                + String.format(
-                    "/permissions/olderthan?queueDelay=%s%s",
-                    batchDelete.getQueueDelay(), appendOrderingId(batchDelete.getOrderingId())));
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getDeleteOldSecurityIdentitiesURI(securityProviderId, batchDelete);
 
     return this.api.delete(uri, headers);
   }
 
+  /**
+   * Delete old security identities without blocking the calling thread.
+   *
+   * @see PlatformClient#deleteOldSecurityIdentities(String, SecurityIdentityDeleteOptions)
+   * @param securityProviderId
+   * @param batchDelete
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> deleteOldSecurityIdentitiesAsync(
+      String securityProviderId, SecurityIdentityDeleteOptions batchDelete) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getDeleteOldSecurityIdentitiesURI(securityProviderId, batchDelete);
+
+    return this.api.deleteAsync(uri, headers);
+  }
+
   /**
    * Returns the orderingId for the query string only when a valid orderingId is available.
    *
@@ -302,19 +414,28 @@ public class PlatformClient {
   public HttpResponse<String> manageSecurityIdentities(
       String securityProviderId, SecurityIdentityBatchConfig batchConfig)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBaseProviderURL(securityProviderId)
-                + String.format(
-                    "/permissions/batch?fileId=%s%s",
-                    batchConfig.getFileId(), appendOrderingId(batchConfig.getOrderingId())));
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getManageSecurityIdentitiesURI(securityProviderId, batchConfig);
 
     return this.api.put(uri, headers, HttpRequest.BodyPublishers.noBody());
   }
 
+  /**
+   * Manage batches of security identities without blocking the calling thread.
+   *
+   * @see PlatformClient#manageSecurityIdentities(String, SecurityIdentityBatchConfig)
+   * @param securityProviderId
+   * @param batchConfig
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> manageSecurityIdentitiesAsync(
+      String securityProviderId, SecurityIdentityBatchConfig batchConfig) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getManageSecurityIdentitiesURI(securityProviderId, batchConfig);
+
+    return this.api.putAsync(uri, headers, HttpRequest.BodyPublishers.noBody());
+  }
+
   /**
    * Adds or updates an individual item in a push source.
    *
@@ -330,19 +451,30 @@ public class PlatformClient {
   public HttpResponse<String> pushDocument(
       String sourceId, String documentJSON, String documentId, CompressionType compressionType)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format(
-                    "/sources/%s/documents?documentId=%s&compressionType=%s",
-                    sourceId, documentId, compressionType.toString()));
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPushDocumentURI(sourceId, documentId, compressionType);
 
     return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(documentJSON));
   }
 
+  /**
+   * Adds or updates an individual item in a push source without blocking the calling thread.
+   *
+   * @see PlatformClient#pushDocument(String, String, String, CompressionType)
+   * @param sourceId
+   * @param documentJSON
+   * @param documentId
+   * @param compressionType
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> pushDocumentAsync(
+      String sourceId, String documentJSON, String documentId, CompressionType compressionType) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getPushDocumentURI(sourceId, documentId, compressionType);
+
+    return this.api.putAsync(uri, headers, HttpRequest.BodyPublishers.ofString(documentJSON));
+  }
+
   /**
    * Deletes a specific item from a Push source. Optionally, the child items of that item can also
    * be deleted.
@@ -358,52 +490,57 @@ public class PlatformClient {
   public HttpResponse<String> deleteDocument(
       String sourceId, String documentId, Boolean deleteChildren)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format(
-                    "/sources/%s/documents?documentId=%s&deleteChildren=%s",
-                    sourceId, documentId, deleteChildren));
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getDeleteDocumentURI(sourceId, documentId, deleteChildren);
 
     return this.api.delete(uri, headers);
   }
 
-  public HttpResponse<String> openStream(String sourceId) throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
+  /**
+   * Deletes a specific item from a Push source without blocking the calling thread.
+   *
+   * @see PlatformClient#deleteDocument(String, String, Boolean)
+   * @param sourceId
+   * @param documentId
+   * @param deleteChildren
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> deleteDocumentAsync(
+      String sourceId, String documentId, Boolean deleteChildren) {
+    String[] headers = this.getJsonHeaders();
+    URI uri = this.getDeleteDocumentURI(sourceId, documentId, deleteChildren);
 
-    URI uri =
-        URI.create(this.getBasePushURL() + String.format("/sources/%s/stream/open", sourceId));
+    return this.api.deleteAsync(uri, headers);
+  }
+
+  public HttpResponse<String> openStream(String sourceId) throws IOException, InterruptedException {
+    return this.api.post(this.getOpenStreamURI(sourceId), this.getJsonHeaders());
+  }
 
-    return this.api.post(uri, headers);
+  public CompletableFuture<HttpResponse<String>> openStreamAsync(String sourceId) {
+    return this.api.postAsync(this.getOpenStreamURI(sourceId), this.getJsonHeaders());
   }
 
   public HttpResponse<String> closeStream(String sourceId, String streamId)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format("/sources/%s/stream/%s/close", sourceId, streamId));
+    return this.api.post(this.getStreamURI(sourceId, streamId, "close"), this.getJsonHeaders());
+  }
 
-    return this.api.post(uri, headers);
+  public CompletableFuture<HttpResponse<String>> closeStreamAsync(
+      String sourceId, String streamId) {
+    return this.api.postAsync(
+        this.getStreamURI(sourceId, streamId, "close"), this.getJsonHeaders());
   }
 
   public HttpResponse<String> requireStreamChunk(String sourceId, String streamId)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format("/sources/%s/stream/%s/chunk", sourceId, streamId));
+    return this.api.post(this.getStreamURI(sourceId, streamId, "chunk"), this.getJsonHeaders());
+  }
 
-    return this.api.post(uri, headers);
+  public CompletableFuture<HttpResponse<String>> requireStreamChunkAsync(
+      String sourceId, String streamId) {
+    return this.api.postAsync(
+        this.getStreamURI(sourceId, streamId, "chunk"), this.getJsonHeaders());
   }
 
   /**
@@ -415,12 +552,37 @@ public class PlatformClient {
    * @throws InterruptedException
    */
   public HttpResponse<String> createFileContainer() throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
+    return this.api.post(this.getFilesURI(), this.getJsonHeaders());
+  }
 
-    URI uri = URI.create(this.getBasePushURL() + "/files");
+  /**
+   * Create a file container without blocking the calling thread.
+   *
+   * @see PlatformClient#createFileContainer()
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> createFileContainerAsync() {
+    return this.api.postAsync(this.getFilesURI(), this.getJsonHeaders());
+  }
+
+  /**
+   * Create a file container, reading the body of the response with a handler such as {@link
+   * ResponseBodies#json(Class)}.
+   *
+   * @see PlatformClient#createFileContainer()
+   * @param bodyHandler
+   * @return
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  <T> HttpResponse<T> createFileContainer(HttpResponse.BodyHandler<T> bodyHandler)
+      throws IOException, InterruptedException {
+    return this.api.post(this.getFilesURI(), this.getJsonHeaders(), bodyHandler);
+  }
 
-    return this.api.post(uri, headers);
+  <T> CompletableFuture<HttpResponse<T>> createFileContainerAsync(
+      HttpResponse.BodyHandler<T> bodyHandler) {
+    return this.api.postAsync(this.getFilesURI(), this.getJsonHeaders(), bodyHandler);
   }
 
   /**
@@ -434,15 +596,19 @@ public class PlatformClient {
    */
   public HttpResponse<String> updateSourceStatus(String sourceId, PushAPIStatus status)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format("/sources/%s/status?statusType=%s", sourceId, status.toString()));
+    return this.api.post(this.getSourceStatusURI(sourceId, status), this.getJsonHeaders());
+  }
 
-    return this.api.post(uri, headers);
+  /**
+   * Update the status of a Push source without blocking the calling thread.
+   *
+   * @see PlatformClient#updateSourceStatus(String, PushAPIStatus)
+   * @param status
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> updateSourceStatusAsync(
+      String sourceId, PushAPIStatus status) {
+    return this.api.postAsync(this.getSourceStatusURI(sourceId, status), this.getJsonHeaders());
   }
 
   /**
@@ -460,14 +626,107 @@ public class PlatformClient {
   public HttpResponse<String> uploadContentToFileContainer(
       FileContainer fileContainer, String batchUpdateJson)
       throws IOException, InterruptedException {
-    String[] headers =
-        fileContainer.requiredHeaders.entrySet().stream()
-            .flatMap(entry -> Stream.of(entry.getKey(), entry.getValue()))
-            .toArray(String[]::new);
+    URI uri = URI.create(fileContainer.uploadUri);
+
+    if (this.uploadCompressionLevel != null) {
+      byte[] compressed = this.gzip(batchUpdateJson);
+      return this.api.put(
+          uri,
+          this.getCompressedFileContainerHeaders(fileContainer),
+          HttpRequest.BodyPublishers.ofByteArray(compressed),
+          ResponseBodies.discardingOnSuccess());
+    }
+    String[] headers = this.getFileContainerHeaders(fileContainer);
+
+    return this.api.put(
+        uri,
+        headers,
+        HttpRequest.BodyPublishers.ofString(batchUpdateJson),
+        ResponseBodies.discardingOnSuccess());
+  }
+
+  /**
+   * Upload content update into a file container without blocking the calling thread.
+   *
+   * @see PlatformClient#uploadContentToFileContainer(FileContainer, String)
+   * @param fileContainer
+   * @param batchUpdateJson
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> uploadContentToFileContainerAsync(
+      FileContainer fileContainer, String batchUpdateJson) {
+    URI uri = URI.create(fileContainer.uploadUri);
 
+    if (this.uploadCompressionLevel != null) {
+      byte[] compressed;
+      try {
+        compressed = this.gzip(batchUpdateJson);
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      return this.api.putAsync(
+          uri,
+          this.getCompressedFileContainerHeaders(fileContainer),
+          HttpRequest.BodyPublishers.ofByteArray(compressed),
+          ResponseBodies.discardingOnSuccess());
+    }
+    String[] headers = this.getFileContainerHeaders(fileContainer);
+
+    return this.api.putAsync(
+        uri,
+        headers,
+        HttpRequest.BodyPublishers.ofString(batchUpdateJson),
+        ResponseBodies.discardingOnSuccess());
+  }
+
+  /**
+   * Upload a batch into a file container, streaming its JSON as the request body is sent.
+   *
+   * @param fileContainer
+   * @param payload
+   * @return
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  HttpResponse<String> uploadContentToFileContainer(
+      FileContainer fileContainer, BatchPayload payload) throws IOException, InterruptedException {
     URI uri = URI.create(fileContainer.uploadUri);
 
-    return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(batchUpdateJson));
+    if (this.uploadCompressionLevel != null) {
+      byte[] compressed = this.gzip(payload);
+      return this.api.put(
+          uri,
+          this.getCompressedFileContainerHeaders(fileContainer),
+          HttpRequest.BodyPublishers.ofByteArray(compressed),
+          ResponseBodies.discardingOnSuccess());
+    }
+    String[] headers = this.getFileContainerHeaders(fileContainer);
+
+    return this.api.put(
+        uri, headers, payload.toBodyPublisher(), ResponseBodies.discardingOnSuccess());
+  }
+
+  CompletableFuture<HttpResponse<String>> uploadContentToFileContainerAsync(
+      FileContainer fileContainer, BatchPayload payload) {
+    URI uri = URI.create(fileContainer.uploadUri);
+
+    if (this.uploadCompressionLevel != null) {
+      byte[] compressed;
+      try {
+        compressed = this.gzip(payload);
+      } catch (IOException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+      return this.api.putAsync(
+          uri,
+          this.getCompressedFileContainerHeaders(fileContainer),
+          HttpRequest.BodyPublishers.ofByteArray(compressed),
+          ResponseBodies.discardingOnSuccess());
+    }
+    String[] headers = this.getFileContainerHeaders(fileContainer);
+
+    return this.api.putAsync(
+        uri, headers, payload.toBodyPublisher(), ResponseBodies.discardingOnSuccess());
   }
 
   /**
@@ -484,15 +743,24 @@ public class PlatformClient {
    */
   public HttpResponse<String> pushFileContainerContent(String sourceId, FileContainer fileContainer)
       throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format(
-                    "/sources/%s/documents/batch?fileId=%s", sourceId, fileContainer.fileId));
+    URI uri = this.getPushFileContainerURI(sourceId, fileContainer);
 
-    return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(""));
+    return this.api.put(uri, this.getJsonHeaders(), HttpRequest.BodyPublishers.ofString(""));
+  }
+
+  /**
+   * Push a file container into a push source without blocking the calling thread.
+   *
+   * @see PlatformClient#pushFileContainerContent(String, FileContainer)
+   * @param sourceId
+   * @param fileContainer
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> pushFileContainerContentAsync(
+      String sourceId, FileContainer fileContainer) {
+    URI uri = this.getPushFileContainerURI(sourceId, fileContainer);
+
+    return this.api.putAsync(uri, this.getJsonHeaders(), HttpRequest.BodyPublishers.ofString(""));
   }
 
   /**
@@ -507,15 +775,24 @@ public class PlatformClient {
    */
   public HttpResponse<String> pushFileContainerContentToStreamSource(
       String sourceId, FileContainer fileContainer) throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
-    URI uri =
-        URI.create(
-            this.getBasePushURL()
-                + String.format(
-                    "/sources/%s/stream/update?fileId=%s", sourceId, fileContainer.fileId));
+    URI uri = this.getStreamUpdateURI(sourceId, fileContainer);
 
-    return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofString(""));
+    return this.api.put(uri, this.getJsonHeaders(), HttpRequest.BodyPublishers.ofString(""));
+  }
+
+  /**
+   * Push a file container into a stream source without blocking the calling thread.
+   *
+   * @see PlatformClient#pushFileContainerContentToStreamSource(String, FileContainer)
+   * @param sourceId
+   * @param fileContainer
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> pushFileContainerContentToStreamSourceAsync(
+      String sourceId, FileContainer fileContainer) {
+    URI uri = this.getStreamUpdateURI(sourceId, fileContainer);
+
+    return this.api.putAsync(uri, this.getJsonHeaders(), HttpRequest.BodyPublishers.ofString(""));
   }
 
   /**
@@ -532,48 +809,182 @@ public class PlatformClient {
    */
   public HttpResponse<String> pushBinaryToFileContainer(
       FileContainer fileContainer, byte[] fileAsBytes) throws IOException, InterruptedException {
-    String[] headers =
-        this.getHeaders(this.getAes256Header(), this.getContentTypeApplicationOctetStreamHeader());
+    String[] headers = this.getBinaryHeaders();
+
+    URI uri = URI.create(fileContainer.uploadUri);
+
+    return this.api.put(
+        uri,
+        headers,
+        HttpRequest.BodyPublishers.ofByteArray(fileAsBytes),
+        ResponseBodies.discardingOnSuccess());
+  }
+
+  /**
+   * Push a binary to a File Container without blocking the calling thread.
+   *
+   * @see PlatformClient#pushBinaryToFileContainer(FileContainer, byte[])
+   * @param fileContainer
+   * @param fileAsBytes
+   * @return
+   */
+  public CompletableFuture<HttpResponse<String>> pushBinaryToFileContainerAsync(
+      FileContainer fileContainer, byte[] fileAsBytes) {
+    String[] headers = this.getBinaryHeaders();
 
     URI uri = URI.create(fileContainer.uploadUri);
 
-    return this.api.put(uri, headers, HttpRequest.BodyPublishers.ofByteArray(fileAsBytes));
+    return this.api.putAsync(
+        uri,
+        headers,
+        HttpRequest.BodyPublishers.ofByteArray(fileAsBytes),
+        ResponseBodies.discardingOnSuccess());
+  }
+
+  private String getCreateSourceJSON(
+      String name, SourceType sourceType, SourceVisibility sourceVisibility) {
+    return this.toJSON(
+        new HashMap<>() {
+          {
+            put("sourceType", sourceType.toString());
+            put("pushEnabled", sourceType.isPushEnabled());
+            put("streamEnabled", sourceType.isStreamEnabled());
+            put("name", name);
+            put("sourceVisibility", sourceVisibility);
+          }
+        });
+  }
+
+  private URI getPermissionsURI(String securityProviderId) {
+    return URI.create(this.getBaseProviderURL(securityProviderId) + "/permissions");
+  }
+
+  private URI getMappingsURI(String securityProviderId) {
+    return URI.create(this.getBaseProviderURL(securityProviderId) + "/mappings");
+  }
+
+  private URI getDeleteOldSecurityIdentitiesURI(
+      String securityProviderId, SecurityIdentityDeleteOptions batchDelete) {
+    return URI.create(
+        this.getBaseProviderURL(securityProviderId)
+            + "/permissions/olderthan?queueDelay="
+            + batchDelete.getQueueDelay()
+            + appendOrderingId(batchDelete.getOrderingId()));
+  }
+
+  private URI getManageSecurityIdentitiesURI(
+      String securityProviderId, SecurityIdentityBatchConfig batchConfig) {
+    return URI.create(
+        this.getBaseProviderURL(securityProviderId)
+            + "/permissions/batch?fileId="
+            + batchConfig.getFileId()
+            + appendOrderingId(batchConfig.getOrderingId()));
+  }
+
+  private URI getPushDocumentURI(
+      String sourceId, String documentId, CompressionType compressionType) {
+    return URI.create(
+        this.getBaseSourcePushURL(sourceId)
+            + "/documents?documentId="
+            + encodeQueryValue(documentId)
+            + "&compressionType="
+            + compressionType);
+  }
+
+  private URI getDeleteDocumentURI(String sourceId, String documentId, Boolean deleteChildren) {
+    return URI.create(
+        this.getBaseSourcePushURL(sourceId)
+            + "/documents?documentId="
+            + encodeQueryValue(documentId)
+            + "&deleteChildren="
+            + deleteChildren);
+  }
+
+  private URI getOpenStreamURI(String sourceId) {
+    return URI.create(this.getBaseSourcePushURL(sourceId) + "/stream/open");
+  }
+
+  private URI getStreamURI(String sourceId, String streamId, String action) {
+    return URI.create(this.getBaseSourcePushURL(sourceId) + "/stream/" + streamId + "/" + action);
+  }
+
+  private URI getFilesURI() {
+    return URI.create(this.basePushUrl + "/files");
+  }
+
+  private URI getSourceStatusURI(String sourceId, PushAPIStatus status) {
+    return URI.create(this.getBaseSourcePushURL(sourceId) + "/status?statusType=" + status);
+  }
+
+  private URI getPushFileContainerURI(String sourceId, FileContainer fileContainer) {
+    return URI.create(
+        this.getBaseSourcePushURL(sourceId) + "/documents/batch?fileId=" + fileContainer.fileId);
+  }
+
+  private URI getStreamUpdateURI(String sourceId, FileContainer fileContainer) {
+    return URI.create(
+        this.getBaseSourcePushURL(sourceId) + "/stream/update?fileId=" + fileContainer.fileId);
   }
 
   private String getBaseSourceURL() {
-    return String.format("%s/sources", this.getBasePlatformURL());
+    return this.baseSourceUrl;
   }
 
-  private String getBasePlatformURL() {
-    return String.format(
-        "%s/rest/organizations/%s", this.platformUrl.getPlatformUrl(), this.organizationId);
+  private String getBaseSourcePushURL(String sourceId) {
+    return this.basePushUrl + "/sources/" + sourceId;
   }
 
-  private String getBasePushURL() {
+  private String getBaseProviderURL(String providerId) {
+    return this.basePushUrl + "/providers/" + providerId;
+  }
+
+  private static String baseSourceUrl(PlatformUrl platformUrl, String organizationId) {
     return String.format(
-        "%s/push/v1/organizations/%s", this.platformUrl.getApiUrl(), this.organizationId);
+        "%s/rest/organizations/%s/sources", platformUrl.getPlatformUrl(), organizationId);
   }
 
-  private String getBaseProviderURL(String providerId) {
-    return String.format("%s/providers/%s", this.getBasePushURL(), providerId);
+  private static String basePushUrl(PlatformUrl platformUrl, String organizationId) {
+    return String.format("%s/push/v1/organizations/%s", platformUrl.getApiUrl(), organizationId);
   }
 
-  private String[] getHeaders(String[]... headers) {
-    String[] out = new String[] {};
-    for (String[] header : headers) {
-      out = Stream.concat(Arrays.stream(out), Arrays.stream(header)).toArray(String[]::new);
-    }
+  /**
+   * Encodes a value for a query string. Document IDs are URIs themselves, and their {@code &},
+   * {@code #} or {@code ?} would otherwise change the meaning of the query.
+   */
+  static String encodeQueryValue(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+  }
+
+  private static String[] concat(String[] first, String[] second) {
+    String[] out = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, out, first.length, second.length);
     return out;
   }
 
+  /**
+   * @return The headers of JSON requests, built once and rebuilt when the user agents change.
+   *     Callers must not modify the array.
+   */
+  private String[] getJsonHeaders() {
+    String[] headers = this.jsonHeaders;
+    if (headers == null) {
+      headers = concat(this.getAuthorizationHeader(), this.getContentTypeApplicationJSONHeader());
+      this.jsonHeaders = headers;
+    }
+    return headers;
+  }
+
+  private String[] getBinaryHeaders() {
+    return BINARY_HEADERS;
+  }
+
   private String[] getAuthorizationHeader() {
     return new String[] {"Authorization", String.format("Bearer %s", this.apiKey)};
   }
 
   private String[] getContentTypeApplicationJSONHeader() {
     StringBuilder userAgentValue = new StringBuilder();
-    String sdkVersion = getSdkVersion();
-    userAgentValue.append(String.format("CoveoSDKJava/%s", sdkVersion));
+    userAgentValue.append(String.format("CoveoSDKJava/%s", SDK_VERSION));
 
     if (userAgents != null && userAgents.length > 0) {
       userAgentValue.append(" ").append(String.join(" ", userAgents));
@@ -589,26 +1000,131 @@ public class PlatformClient {
     };
   }
 
-  private String getSdkVersion() {
-    MavenXpp3Reader reader = new MavenXpp3Reader();
-    try {
-      Model model = reader.read(new FileReader("pom.xml"));
-      return model.getVersion();
-    } catch (Exception e) {
-      return "Not-Available";
+  /**
+   * @return The version of this SDK, recorded in a resource when it is built.
+   */
+  private static String loadSdkVersion() {
+    try (InputStream resource = PlatformClient.class.getResourceAsStream("sdk.properties")) {
+      return readSdkVersion(resource);
+    } catch (IOException e) {
+      logger.debug("Could not read the SDK version", e);
+      return UNKNOWN_SDK_VERSION;
+    }
+  }
+
+  /**
+   * @param resource The properties recording the version, or null if the resource is missing.
+   * @return The recorded version, or {@link #UNKNOWN_SDK_VERSION} if the resource is missing or was
+   *     not filtered by the build.
+   * @throws IOException If the resource cannot be read.
+   */
+  static String readSdkVersion(InputStream resource) throws IOException {
+    if (resource == null) {
+      return UNKNOWN_SDK_VERSION;
     }
+    Properties properties = new Properties();
+    properties.load(resource);
+    String version = properties.getProperty("version");
+    if (version == null || version.isEmpty() || version.startsWith("${")) {
+      return UNKNOWN_SDK_VERSION;
+    }
+    return version;
   }
 
-  private String[] getAes256Header() {
-    return new String[] {"x-amz-server-side-encryption", "AES256"};
+  private String[] getFileContainerHeaders(FileContainer fileContainer) {
+    String[] headers = new String[fileContainer.requiredHeaders.size() * 2];
+    int i = 0;
+    for (Map.Entry<String, String> entry : fileContainer.requiredHeaders.entrySet()) {
+      headers[i++] = entry.getKey();
+      headers[i++] = entry.getValue();
+    }
+    return headers;
   }
 
-  private String[] getContentTypeApplicationOctetStreamHeader() {
-    return new String[] {"Content-Type", "application/octet-stream"};
+  private String[] getCompressedFileContainerHeaders(FileContainer fileContainer) {
+    return concat(this.getFileContainerHeaders(fileContainer), GZIP_CONTENT_ENCODING_HEADER);
+  }
+
+  private byte[] gzip(String batchUpdateJson) throws IOException {
+    byte[] raw = batchUpdateJson.getBytes(StandardCharsets.UTF_8);
+    byte[] compressed =
+        BatchPayload.gzip(new ByteArrayInputStream(raw), this.uploadCompressionLevel);
+    this.logCompression(raw.length, compressed.length);
+    return compressed;
+  }
+
+  private byte[] gzip(BatchPayload payload) throws IOException {
+    byte[] compressed = payload.gzip(this.uploadCompressionLevel);
+    if (logger.isDebugEnabled()) {
+      this.logCompression(payload.contentLength(), compressed.length);
+    }
+    return compressed;
+  }
+
+  private void logCompression(long rawLength, long compressedLength) {
+    logger.debug(
+        "Compressed file container content from {} to {} bytes", rawLength, compressedLength);
   }
 
   private String toJSON(HashMap<String, Object> hashMap) {
-    return new Gson().toJson(hashMap, new TypeToken<HashMap<String, Object>>() {}.getType());
+    return JsonCodec.GSON.toJson(hashMap, new TypeToken<HashMap<String, Object>>() {}.getType());
+  }
+
+  /**
+   * @return The GZIP compression level of file container uploads, or null if they are not
+   *     compressed.
+   */
+  public Integer getUploadCompressionLevel() {
+    return this.uploadCompressionLevel;
+  }
+
+  /**
+   * Compresses the content uploaded to file containers with GZIP, and sends it with a {@code
+   * Content-Encoding: gzip} header. The compressed content is held in memory until it is sent.
+   *
+   * @param uploadCompressionLevel The compression level, from 1 (fastest) to 9 (smallest), or null
+   *     to upload uncompressed content.
+   */
+  public void setUploadCompressionLevel(Integer uploadCompressionLevel) {
+    if (uploadCompressionLevel != null
+        && (uploadCompressionLevel < 1 || uploadCompressionLevel > 9)) {
+      throw new IllegalArgumentException("Compression level must be between 1 and 9");
+    }
+    this.uploadCompressionLevel = uploadCompressionLevel;
+  }
+
+  /**
+   * Guards each {@link EndpointFamily} with its own circuit breaker. Once too many requests of a
+   * family fail, with server errors or I/O failures, the breaker opens and the requests of that
+   * family throw a {@link CircuitOpenException} without being sent or retried. After a while, the
+   * breaker lets a few probe requests through, and closes again if they succeed.
+   *
+   * @param circuitBreakerOptions When circuit breakers open and close, or null to always send
+   *     requests.
+   */
+  public void setCircuitBreakerOptions(CircuitBreakerOptions circuitBreakerOptions) {
+    this.api.setCircuitBreakerOptions(circuitBreakerOptions);
+  }
+
+  /**
+   * @return The number of throttled responses this client received so far.
+   */
+  long getThrottledResponseCount() {
+    return this.api.getThrottledResponseCount();
+  }
+
+  /**
+   * @return The number of throttled responses the calling thread received from this client so far.
+   */
+  long getThrottledResponseCountOnCurrentThread() {
+    return this.api.getThrottledResponseCountOnCurrentThread();
+  }
+
+  /**
+   * @return The retries this client made so far, for example to export them as metrics.
+   */
+  public RetryMetrics getRetryMetrics() {
+    return this.api.getRetryMetrics();
   }
 
   public String[] getUserAgents() {
@@ -623,6 +1139,7 @@ public class PlatformClient {
       throw new IllegalArgumentException("Invalid user agents");
     }
     this.userAgents = userAgents;
+    this.jsonHeaders = null;
   }
 
   protected boolean validUserAgents(String[] userAgents) {
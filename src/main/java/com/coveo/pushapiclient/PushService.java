@@ -1,12 +1,14 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.util.function.Supplier;
 
 public class PushService {
   private final PushEnabledSource source;
   private final PlatformClient platformClient;
+  private final FileContainerPool fileContainers;
+  private final DocumentUploadQueue queue;
   private PushServiceInternal service;
 
   public PushService(PushEnabledSource source) {
@@ -35,14 +37,50 @@ public class PushService {
    * @throws IllegalArgumentException if maxQueueSize exceeds 256MB or is not positive.
    */
   public PushService(PushEnabledSource source, BackoffOptions options, int maxQueueSize) {
+    this(source, options, new UploadOptionsBuilder().withBatchSize(maxQueueSize).build());
+  }
+
+  /**
+   * Creates a new PushService with configurable batch size and upload concurrency.
+   *
+   * @param source The source to push documents to.
+   * @param options The configuration options for exponential backoff.
+   * @param uploadOptions The batch size, upload concurrency and file container prefetch to use. See
+   *     {@link UploadOptionsBuilder}.
+   */
+  public PushService(
+      PushEnabledSource source, BackoffOptions options, UploadOptions uploadOptions) {
+    this(source, options, uploadOptions, ClientContext.getDefault());
+  }
+
+  /**
+   * Creates a new PushService with configurable batch size and upload concurrency.
+   *
+   * @param source The source to push documents to.
+   * @param options The configuration options for exponential backoff.
+   * @param uploadOptions The batch size, upload concurrency and file container prefetch to use. See
+   *     {@link UploadOptionsBuilder}.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public PushService(
+      PushEnabledSource source,
+      BackoffOptions options,
+      UploadOptions uploadOptions,
+      ClientContext context) {
     String apiKey = source.getApiKey();
     String organizationId = source.getOrganizationId();
     PlatformUrl platformUrl = source.getPlatformUrl();
-    UploadStrategy uploader = this.getUploadStrategy();
-    DocumentUploadQueue queue = new DocumentUploadQueue(uploader, maxQueueSize);
-
-    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options);
-    this.service = new PushServiceInternal(queue);
+    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options, context);
+    this.platformClient.setUploadCompressionLevel(uploadOptions.getCompressionLevel());
+    this.platformClient.setCircuitBreakerOptions(uploadOptions.getCircuitBreakerOptions());
+    this.fileContainers =
+        new FileContainerPool(this.platformClient, uploadOptions.getFileContainerPrefetch());
+    UploadStrategy uploader =
+        fileContainerUpload(this.platformClient, this.fileContainers, this::getSourceId);
+    this.queue = new DocumentUploadQueue(uploader, uploadOptions);
+    this.queue.setThrottleCounter(this.platformClient::getThrottledResponseCountOnCurrentThread);
+    this.service = new PushServiceInternal(this.queue);
     this.source = source;
   }
 
@@ -59,15 +97,35 @@ public class PushService {
     this.service.close();
   }
 
-  private UploadStrategy getUploadStrategy() {
+  /**
+   * @return The size in bytes at which batches are currently uploaded. Changes over time when the
+   *     batch size is adaptive. See {@link UploadOptionsBuilder#withAdaptiveBatchSize}.
+   */
+  public int getCurrentBatchSize() {
+    return this.queue.getCurrentBatchSize();
+  }
+
+  /**
+   * Pushes each batch into a Push source through a file container.
+   *
+   * @param platformClient The client uploading and pushing the batches.
+   * @param fileContainers The pool the file containers are taken from.
+   * @param sourceId The ID of the source to push into.
+   * @return An upload strategy throwing an {@link IOException} with the status code when the batch
+   *     cannot be uploaded into its file container, in which case the container is not pushed.
+   */
+  static UploadStrategy fileContainerUpload(
+      PlatformClient platformClient, FileContainerPool fileContainers, Supplier<String> sourceId) {
     return (batchUpdate) -> {
-      String sourceId = this.getSourceId();
-      HttpResponse<String> resFileContainer = this.platformClient.createFileContainer();
-      FileContainer fileContainer =
-          new Gson().fromJson(resFileContainer.body(), FileContainer.class);
-      this.platformClient.uploadContentToFileContainer(
-          fileContainer, new Gson().toJson(batchUpdate.marshal()));
-      return this.platformClient.pushFileContainerContent(sourceId, fileContainer);
+      FileContainer fileContainer = fileContainers.acquire();
+      HttpResponse<String> upload =
+          platformClient.uploadContentToFileContainer(fileContainer, batchUpdate.toPayload());
+      if (!ResponseBodies.isSuccess(upload.statusCode())) {
+        throw new IOException(
+            "Could not upload the batch to its file container. Status code: "
+                + upload.statusCode());
+      }
+      return platformClient.pushFileContainerContent(sourceId.get(), fileContainer);
     };
   }
 
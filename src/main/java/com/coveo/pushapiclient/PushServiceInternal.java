@@ -18,6 +18,10 @@ public class PushServiceInternal {
   }
 
   public void close() throws IOException, InterruptedException {
-    queue.flush();
+    try {
+      queue.flush();
+    } finally {
+      queue.close();
+    }
   }
 }
@@ -1,15 +1,27 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 public class PushSource implements PushEnabledSource {
+  /**
+   * The number of documents up to which {@link #addOrUpdateDocuments(Iterable)} sends one request
+   * per document. Pushing a batch takes three requests: creating a file container, uploading to it
+   * and pushing it.
+   */
+  public static final int DEFAULT_SINGLE_REQUEST_THRESHOLD = 3;
+
   private final String apiKey;
   private final ApiUrl urlExtractor;
   private final PlatformClient platformClient;
+  private final UploadOptions uploadOptions;
+  private final FileContainerPool fileContainers;
 
   @Override
   public String getOrganizationId() {
@@ -78,6 +90,8 @@ public class PushSource implements PushEnabledSource {
     String organizationId = urlExtractor.getOrganizationId();
     PlatformUrl platformUrl = urlExtractor.getPlatformUrl();
     this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl);
+    this.uploadOptions = new UploadOptionsBuilder().build();
+    this.fileContainers = prepareUploads(this.platformClient, this.uploadOptions);
   }
 
   /**
@@ -151,7 +165,73 @@ public class PushSource implements PushEnabledSource {
       String sourceId,
       PlatformUrl platformUrl,
       BackoffOptions options) {
-    return new PushSource(apiKey, organizationId, sourceId, platformUrl, options);
+    return fromPlatformUrl(
+        apiKey, organizationId, sourceId, platformUrl, options, ClientContext.getDefault());
+  }
+
+  /**
+   * Create a Push source instance
+   *
+   * @param apiKey The API key used for all operations regarding your source.
+   *     <p>Ensure your API key has the required privileges for the operation you will be performing
+   *     *
+   *     <p>For more information about which privileges are required, see <a href=
+   *     "https://docs.coveo.com/en/1707#sources-domain">Privilege Reference.</a>
+   * @param organizationId The unique identifier of your organization.
+   *     <p>The Organization Id can be retrieved in the URL of your Coveo organization.
+   * @param sourceId The unique identifier of the target Push source.
+   *     <p>The Source Id can be retrieved when you edit your source in the <a href=
+   *     "https://docs.coveo.com/en/183/glossary/coveo-administration-console">Coveo Administration
+   *     Console</a>
+   * @param platformUrl The object containing additional information on the URL endpoint. You can
+   *     use the {@link PlatformUrl} when your organization is located in a non-default Coveo
+   *     environement and/or region. When not specified, the default platform URL values will be
+   *     used: {@link PlatformUrl#DEFAULT_ENVIRONMENT} and {@link PlatformUrl#DEFAULT_REGION}
+   * @param options The configuration options for exponential backoff.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public static PushSource fromPlatformUrl(
+      String apiKey,
+      String organizationId,
+      String sourceId,
+      PlatformUrl platformUrl,
+      BackoffOptions options,
+      ClientContext context) {
+    return fromPlatformUrl(
+        apiKey,
+        organizationId,
+        sourceId,
+        platformUrl,
+        options,
+        new UploadOptionsBuilder().build(),
+        context);
+  }
+
+  /**
+   * Create a Push source instance
+   *
+   * @param apiKey The API key used for all operations regarding your source.
+   * @param organizationId The unique identifier of your organization.
+   * @param sourceId The unique identifier of the target Push source.
+   * @param platformUrl The object containing additional information on the URL endpoint.
+   * @param options The configuration options for exponential backoff.
+   * @param uploadOptions The batch size, upload concurrency, compression and circuit breakers used
+   *     by {@link #deleteDocuments} and {@link #addOrUpdateDocuments}, as for a {@link
+   *     PushService}. See {@link UploadOptionsBuilder}.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public static PushSource fromPlatformUrl(
+      String apiKey,
+      String organizationId,
+      String sourceId,
+      PlatformUrl platformUrl,
+      BackoffOptions options,
+      UploadOptions uploadOptions,
+      ClientContext context) {
+    return new PushSource(
+        apiKey, organizationId, sourceId, platformUrl, options, uploadOptions, context);
   }
 
   private PushSource(
@@ -159,6 +239,8 @@ public class PushSource implements PushEnabledSource {
     this.apiKey = apiKey;
     this.urlExtractor = new ApiUrl(organizationId, sourceId, platformUrl);
     this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl);
+    this.uploadOptions = new UploadOptionsBuilder().build();
+    this.fileContainers = prepareUploads(this.platformClient, this.uploadOptions);
   }
 
   private PushSource(
@@ -166,10 +248,42 @@ public class PushSource implements PushEnabledSource {
       String organizationId,
       String sourceId,
       PlatformUrl platformUrl,
-      BackoffOptions options) {
+      BackoffOptions options,
+      UploadOptions uploadOptions,
+      ClientContext context) {
     this.apiKey = apiKey;
     this.urlExtractor = new ApiUrl(organizationId, sourceId, platformUrl);
-    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options);
+    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options, context);
+    this.uploadOptions = uploadOptions;
+    this.fileContainers = prepareUploads(this.platformClient, this.uploadOptions);
+  }
+
+  PushSource(String apiKey, ApiUrl urlExtractor, PlatformClient platformClient) {
+    this(apiKey, urlExtractor, platformClient, new UploadOptionsBuilder().build());
+  }
+
+  PushSource(
+      String apiKey,
+      ApiUrl urlExtractor,
+      PlatformClient platformClient,
+      UploadOptions uploadOptions) {
+    this.apiKey = apiKey;
+    this.urlExtractor = urlExtractor;
+    this.platformClient = platformClient;
+    this.uploadOptions = uploadOptions;
+    this.fileContainers = prepareUploads(this.platformClient, this.uploadOptions);
+  }
+
+  /**
+   * Applies the upload options to the client of the source, as a {@link PushService} does.
+   *
+   * @return The pool the batch methods take their file containers from.
+   */
+  private static FileContainerPool prepareUploads(
+      PlatformClient platformClient, UploadOptions uploadOptions) {
+    platformClient.setUploadCompressionLevel(uploadOptions.getCompressionLevel());
+    platformClient.setCircuitBreakerOptions(uploadOptions.getCircuitBreakerOptions());
+    return new FileContainerPool(platformClient, uploadOptions.getFileContainerPrefetch());
   }
 
   /**
@@ -286,8 +400,9 @@ public class PushSource implements PushEnabledSource {
     SecurityIdentityBatchResponse securityIdentityBatchResponse =
         new SecurityIdentityBatchResponse();
     HttpResponse<String> resFileContainer = this.platformClient.createFileContainer();
-    FileContainer fileContainer = new Gson().fromJson(resFileContainer.body(), FileContainer.class);
-    String batchIdJson = new Gson().toJson(batchIdentity.marshal());
+    FileContainer fileContainer =
+        JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
+    String batchIdJson = JsonCodec.GSON.toJson(batchIdentity.marshal());
     securityIdentityBatchResponse.s3Response =
         this.platformClient.uploadContentToFileContainer(fileContainer, batchIdJson);
     if (securityIdentityBatchResponse.s3Response.statusCode() >= 200
@@ -334,4 +449,117 @@ public class PushSource implements PushEnabledSource {
       throws IOException, InterruptedException {
     return this.platformClient.deleteDocument(this.getId(), documentId, deleteChildren);
   }
+
+  /**
+   * Deletes many items from a Push source in a few requests. The deletions are packed into batches
+   * of up to the configured batch size, and each batch is uploaded to a file container then pushed
+   * to the source, instead of sending one request per item. Batches are sent according to the
+   * upload options of the source, like those of a {@link PushService}.
+   *
+   * @see <a href="https://docs.coveo.com/en/90">Manage Batches of Items in a Push Source</a>
+   * @param documents The items to delete, each with its own option to delete its children. A stream
+   *     can be passed as {@code stream::iterator}.
+   * @return The responses of the batch pushes, in the order they completed.
+   * @throws IOException If a batch cannot be uploaded or pushed.
+   * @throws InterruptedException If the thread is interrupted while pushing a batch.
+   */
+  public List<HttpResponse<String>> deleteDocuments(Iterable<DeleteDocument> documents)
+      throws IOException, InterruptedException {
+    List<HttpResponse<String>> responses = Collections.synchronizedList(new ArrayList<>());
+    DocumentUploadQueue queue = this.createBatchQueue(responses);
+    try {
+      for (DeleteDocument document : documents) {
+        queue.add(document);
+      }
+      queue.flush();
+    } finally {
+      queue.close();
+    }
+    return responses;
+  }
+
+  /**
+   * Adds or updates many items in a Push source, choosing the cheapest way to send them. Up to
+   * {@link #DEFAULT_SINGLE_REQUEST_THRESHOLD} items are sent one request each, like {@link
+   * #addOrUpdateDocument}. Larger sets are packed into batches uploaded to file containers, like
+   * {@link PushService} does.
+   *
+   * @param documents The items to add or update. A stream can be passed as {@code
+   *     stream::iterator}. Items are read once, as they are sent.
+   * @return The responses of the single-item requests, in order, or of the batch pushes, in the
+   *     order they completed.
+   * @throws IOException If an item or a batch cannot be sent.
+   * @throws InterruptedException If the thread is interrupted while sending.
+   */
+  public List<HttpResponse<String>> addOrUpdateDocuments(Iterable<DocumentBuilder> documents)
+      throws IOException, InterruptedException {
+    return this.addOrUpdateDocuments(documents, DEFAULT_SINGLE_REQUEST_THRESHOLD);
+  }
+
+  /**
+   * Adds or updates many items in a Push source, choosing the cheapest way to send them.
+   *
+   * @see #addOrUpdateDocuments(Iterable)
+   * @param documents The items to add or update.
+   * @param singleRequestThreshold The number of items up to which each item is sent with its own
+   *     request. Larger sets are sent in batches. With 0, every item is sent in batches.
+   * @return The responses of the single-item requests, in order, or of the batch pushes, in the
+   *     order they completed.
+   * @throws IOException If an item or a batch cannot be sent.
+   * @throws InterruptedException If the thread is interrupted while sending.
+   * @throws IllegalArgumentException If the threshold is negative.
+   */
+  public List<HttpResponse<String>> addOrUpdateDocuments(
+      Iterable<DocumentBuilder> documents, int singleRequestThreshold)
+      throws IOException, InterruptedException {
+    if (singleRequestThreshold < 0) {
+      throw new IllegalArgumentException("Single request threshold must not be negative");
+    }
+    Iterator<DocumentBuilder> remaining = documents.iterator();
+    List<DocumentBuilder> first = new ArrayList<>();
+    while (remaining.hasNext() && first.size() <= singleRequestThreshold) {
+      first.add(remaining.next());
+    }
+
+    List<HttpResponse<String>> responses = Collections.synchronizedList(new ArrayList<>());
+    if (first.size() <= singleRequestThreshold) {
+      for (DocumentBuilder document : first) {
+        responses.add(this.addOrUpdateDocument(document));
+      }
+      return responses;
+    }
+
+    DocumentUploadQueue queue = this.createBatchQueue(responses);
+    try {
+      for (DocumentBuilder document : first) {
+        queue.add(document);
+      }
+      while (remaining.hasNext()) {
+        queue.add(remaining.next());
+      }
+      queue.flush();
+    } finally {
+      queue.close();
+    }
+    return responses;
+  }
+
+  /**
+   * @param responses Collects the response of each batch push, from the upload threads.
+   * @return A queue pushing its batches through file containers, according to the upload options.
+   */
+  private DocumentUploadQueue createBatchQueue(List<HttpResponse<String>> responses) {
+    UploadStrategy pushBatch =
+        PushService.fileContainerUpload(this.platformClient, this.fileContainers, this::getId);
+    DocumentUploadQueue queue =
+        new DocumentUploadQueue(
+            batchUpdate -> {
+              HttpResponse<String> response = pushBatch.apply(batchUpdate);
+              responses.add(response);
+              return response;
+            },
+            this.uploadOptions);
+    queue.setThrottleCounter(this.platformClient::getThrottledResponseCountOnCurrentThread);
+    return queue;
+  }
 }
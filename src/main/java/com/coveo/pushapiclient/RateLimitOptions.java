@@ -0,0 +1,29 @@
+package com.coveo.pushapiclient;
+
+/**
+ * The rate at which requests can be sent to an organization. See {@link
+ * OrganizationRateLimiter#configure}.
+ *
+ * @see RateLimitOptionsBuilder
+ */
+public class RateLimitOptions {
+  private final double requestsPerSecond;
+  private final long bytesPerSecond;
+
+  /**
+   * @param requestsPerSecond The maximum number of requests per second, or 0 for no limit.
+   * @param bytesPerSecond The maximum number of request body bytes per second, or 0 for no limit.
+   */
+  public RateLimitOptions(double requestsPerSecond, long bytesPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  public double getRequestsPerSecond() {
+    return this.requestsPerSecond;
+  }
+
+  public long getBytesPerSecond() {
+    return this.bytesPerSecond;
+  }
+}
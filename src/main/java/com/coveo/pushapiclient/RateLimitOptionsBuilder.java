@@ -0,0 +1,33 @@
+package com.coveo.pushapiclient;
+
+public class RateLimitOptionsBuilder {
+  private double requestsPerSecond = 0;
+  private long bytesPerSecond = 0;
+
+  /**
+   * @param requestsPerSecond The maximum number of requests per second (default: 0, for no limit).
+   */
+  public RateLimitOptionsBuilder withRequestsPerSecond(double requestsPerSecond) {
+    this.requestsPerSecond = requestsPerSecond;
+    return this;
+  }
+
+  /**
+   * @param bytesPerSecond The maximum number of request body bytes per second, such as uploaded
+   *     batches (default: 0, for no limit).
+   */
+  public RateLimitOptionsBuilder withBytesPerSecond(long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if a rate is negative.
+   */
+  public RateLimitOptions build() {
+    if (this.requestsPerSecond < 0 || this.bytesPerSecond < 0) {
+      throw new IllegalArgumentException("Rate limits must not be negative");
+    }
+    return new RateLimitOptions(this.requestsPerSecond, this.bytesPerSecond);
+  }
+}
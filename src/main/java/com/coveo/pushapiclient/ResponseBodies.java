@@ -0,0 +1,81 @@
+package com.coveo.pushapiclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Body handlers for the endpoints whose response body is not needed as text.
+ *
+ * <p>Successful responses are either discarded or decoded as they are read into their target type,
+ * without building an intermediate string or byte array. Unsuccessful responses are reported by
+ * {@link ApiCore}.
+ */
+final class ResponseBodies {
+
+  /** How many characters of a response body are logged before it is truncated. */
+  static final int MAX_LOGGED_LENGTH = 1024;
+
+  private ResponseBodies() {}
+
+  /**
+   * @return A handler ignoring the body of successful responses, which then have an empty body, and
+   *     reading the body of other responses as text.
+   */
+  static BodyHandler<String> discardingOnSuccess() {
+    return responseInfo ->
+        isSuccess(responseInfo.statusCode())
+            ? BodySubscribers.replacing("")
+            : BodySubscribers.ofString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes the JSON body of successful responses while it streams in. Reading the stream blocks
+   * until the body arrives, which must not happen on the threads of the HTTP client, so the body is
+   * a supplier decoding it on the thread that calls {@link Supplier#get()}, once.
+   *
+   * @param type The type the JSON body of successful responses is decoded into.
+   * @return A handler whose body supplies the decoded JSON of successful responses. The body of
+   *     other responses is discarded and supplies null.
+   */
+  static <T> BodyHandler<Supplier<T>> json(Class<T> type) {
+    return responseInfo -> {
+      if (!isSuccess(responseInfo.statusCode())) {
+        return BodySubscribers.replacing(() -> null);
+      }
+      return BodySubscribers.mapping(
+          BodySubscribers.ofInputStream(), body -> () -> decode(body, type));
+    };
+  }
+
+  private static <T> T decode(InputStream body, Class<T> type) {
+    try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+      return JsonCodec.GSON.fromJson(reader, type);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static boolean isSuccess(int statusCode) {
+    return statusCode >= 200 && statusCode < 300;
+  }
+
+  /**
+   * @return The body, cut after {@link #MAX_LOGGED_LENGTH} characters.
+   */
+  static String truncate(String body) {
+    if (body == null || body.length() <= MAX_LOGGED_LENGTH) {
+      return body;
+    }
+    return body.substring(0, MAX_LOGGED_LENGTH)
+        + "... ("
+        + (body.length() - MAX_LOGGED_LENGTH)
+        + " more characters)";
+  }
+}
@@ -0,0 +1,72 @@
+package com.coveo.pushapiclient;
+
+/**
+ * Caps the retries of every {@link PlatformClient} of the JVM to a fraction of the requests they
+ * send, so that retries cannot multiply the load on a struggling platform.
+ *
+ * <p>Each request adds a fraction of a token to the budget, and each retry spends a whole token.
+ * Tokens accumulate up to a reserve, which allows bursts of retries after a quiet period. Once the
+ * budget is spent, failed requests are returned or thrown without being retried.
+ */
+public final class RetryBudget {
+  /** The default fraction of requests that can be retried. */
+  public static final double DEFAULT_RETRY_RATIO = 0.2;
+
+  /** The default number of retries that can be spent in a burst. */
+  public static final int DEFAULT_RESERVE = 100;
+
+  private static final RetryBudget global = new RetryBudget(DEFAULT_RETRY_RATIO, DEFAULT_RESERVE);
+
+  private double retryRatio;
+  private double reserve;
+  private double tokens;
+
+  RetryBudget(double retryRatio, int reserve) {
+    this.setLimits(retryRatio, reserve);
+    this.tokens = reserve;
+  }
+
+  /**
+   * Changes the budget shared by every client of the JVM.
+   *
+   * @param retryRatio The fraction of requests that can be retried, such as 0.2 for 20%.
+   * @param reserve The number of retries that can be spent in a burst.
+   * @throws IllegalArgumentException if a value is negative.
+   */
+  public static void configure(double retryRatio, int reserve) {
+    global.setLimits(retryRatio, reserve);
+  }
+
+  static RetryBudget global() {
+    return global;
+  }
+
+  private synchronized void setLimits(double retryRatio, int reserve) {
+    if (retryRatio < 0 || reserve < 0) {
+      throw new IllegalArgumentException("Retry ratio and reserve must not be negative");
+    }
+    this.retryRatio = retryRatio;
+    this.reserve = reserve;
+    this.tokens = Math.min(this.tokens, reserve);
+  }
+
+  /** Records a request, earning a fraction of a retry. */
+  synchronized void onRequest() {
+    this.tokens = Math.min(this.reserve, this.tokens + this.retryRatio);
+  }
+
+  /**
+   * @return Whether the budget allows a retry.
+   */
+  synchronized boolean canRetry() {
+    return this.tokens >= 1;
+  }
+
+  /**
+   * Spends a retry once it is scheduled. Concurrent requests may be allowed the same last token, in
+   * which case the budget goes below zero and allows no retry until requests earned it back.
+   */
+  synchronized void spend() {
+    this.tokens -= 1;
+  }
+}
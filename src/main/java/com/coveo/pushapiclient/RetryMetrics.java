@@ -0,0 +1,46 @@
+package com.coveo.pushapiclient;
+
+/** A snapshot of the retries made by a {@link PlatformClient} since it was created. */
+public final class RetryMetrics {
+  private final long retryAttempts;
+  private final long successfulCallsAfterRetry;
+  private final long exhaustedCalls;
+
+  RetryMetrics(long retryAttempts, long successfulCallsAfterRetry, long exhaustedCalls) {
+    this.retryAttempts = retryAttempts;
+    this.successfulCallsAfterRetry = successfulCallsAfterRetry;
+    this.exhaustedCalls = exhaustedCalls;
+  }
+
+  /**
+   * @return The number of retries, not counting the first attempt of each request.
+   */
+  public long getRetryAttempts() {
+    return this.retryAttempts;
+  }
+
+  /**
+   * @return The number of requests that succeeded after being retried at least once.
+   */
+  public long getSuccessfulCallsAfterRetry() {
+    return this.successfulCallsAfterRetry;
+  }
+
+  /**
+   * @return The number of requests that still failed once their retries were exhausted.
+   */
+  public long getExhaustedCalls() {
+    return this.exhaustedCalls;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryMetrics{retryAttempts="
+        + this.retryAttempts
+        + ", successfulCallsAfterRetry="
+        + this.successfulCallsAfterRetry
+        + ", exhaustedCalls="
+        + this.exhaustedCalls
+        + "}";
+  }
+}
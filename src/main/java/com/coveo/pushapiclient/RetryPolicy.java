@@ -0,0 +1,136 @@
+package com.coveo.pushapiclient;
+
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.vavr.control.Either;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which requests are retried, and how long to wait before each retry.
+ *
+ * <ul>
+ *   <li>Throttled requests (429) are always retried.
+ *   <li>Idempotent requests (GET, PUT, DELETE, HEAD) are also retried on server errors (5xx) and on
+ *       I/O failures such as connection resets.
+ *   <li>The wait honors the {@code Retry-After} header of the response when there is one, up to the
+ *       maximum interval. Otherwise it grows exponentially up to that interval, with a random
+ *       jitter of up to half of it.
+ *   <li>Requests stopped by an open circuit breaker are not retried.
+ *   <li>Every retry is spent from the {@link RetryBudget}. A request is only retried while the
+ *       budget allows it, and the budget is only spent once the retry is scheduled, so that the
+ *       last attempt of a request does not spend a retry it will not make.
+ * </ul>
+ */
+class RetryPolicy {
+  private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "PUT", "DELETE", "HEAD");
+
+  private final BackoffOptions options;
+  private final RetryBudget budget;
+
+  RetryPolicy(BackoffOptions options, RetryBudget budget) {
+    this.options = options;
+    this.budget = budget;
+  }
+
+  static boolean isIdempotent(String method) {
+    return IDEMPOTENT_METHODS.contains(method);
+  }
+
+  /** Records a request against the retry budget. Called once per request, not per attempt. */
+  void onRequest() {
+    this.budget.onRequest();
+  }
+
+  /** Spends a retry from the budget. Called once a retry is scheduled. */
+  void onRetry() {
+    this.budget.spend();
+  }
+
+  boolean shouldRetry(HttpResponse<?> response, boolean idempotent) {
+    if (response == null) {
+      return false;
+    }
+    int status = response.statusCode();
+    boolean retryable = status == 429 || (idempotent && status >= 500 && status <= 599);
+    return retryable && this.budget.canRetry();
+  }
+
+  boolean shouldRetry(Throwable failure, boolean idempotent) {
+    while (failure instanceof CompletionException && failure.getCause() != null) {
+      failure = failure.getCause();
+    }
+    return idempotent
+        && failure instanceof IOException
+        && !(failure instanceof CircuitOpenException)
+        && this.budget.canRetry();
+  }
+
+  /**
+   * @return The wait before each retry, in milliseconds. Asynchronous retries stop on a wait below
+   *     a millisecond, so the wait is never shorter than that.
+   */
+  IntervalBiFunction<HttpResponse<?>> intervalFunction() {
+    return (attempt, outcome) -> this.interval(attempt, outcome);
+  }
+
+  long interval(int attempt, Either<Throwable, ? extends HttpResponse<?>> outcome) {
+    if (outcome != null && outcome.isRight()) {
+      Optional<Long> retryAfter = retryAfterMillis(outcome.get());
+      if (retryAfter.isPresent()) {
+        // A server or proxy could ask for hours, which would park the calling thread as long
+        return Math.max(1, Math.min(retryAfter.get(), this.options.getMaxInterval()));
+      }
+    }
+    return Math.max(1, this.backoff(attempt));
+  }
+
+  /**
+   * @param attempt The number of attempts made so far, starting at 1.
+   * @return An exponential backoff capped at the maximum interval, of which up to half is random.
+   */
+  long backoff(int attempt) {
+    double exponential =
+        this.options.getRetryAfter() * Math.pow(this.options.getTimeMultiple(), attempt - 1);
+    long capped = (long) Math.min(exponential, this.options.getMaxInterval());
+    long half = capped / 2;
+    return half + (half > 0 ? ThreadLocalRandom.current().nextLong(half + 1) : 0);
+  }
+
+  /**
+   * Reads the {@code Retry-After} header, either a number of seconds or an HTTP date.
+   *
+   * @return The wait it asks for, in milliseconds, if any.
+   */
+  static Optional<Long> retryAfterMillis(HttpResponse<?> response) {
+    if (response.headers() == null) {
+      return Optional.empty();
+    }
+    return response
+        .headers()
+        .firstValue("Retry-After")
+        .map(String::trim)
+        .flatMap(
+            value -> {
+              try {
+                return Optional.of(Math.max(0, Long.parseLong(value) * 1000));
+              } catch (NumberFormatException e) {
+                try {
+                  ZonedDateTime date =
+                      ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                  return Optional.of(
+                      Math.max(0, Duration.between(ZonedDateTime.now(), date).toMillis()));
+                } catch (DateTimeParseException ignored) {
+                  return Optional.empty();
+                }
+              }
+            });
+  }
+}
@@ -1,6 +1,5 @@
 package com.coveo.pushapiclient;
 
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.http.HttpResponse;
 
@@ -29,6 +28,25 @@ public class Source {
     this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl);
   }
 
+  /**
+   * @param apiKey An apiKey capable of pushing documents and managing sources in a Coveo
+   *     organization.
+   * @see <a href="https://docs.coveo.com/en/1718">Manage API Keys</a>.
+   * @param organizationId The Coveo Organization identifier.
+   * @param platformUrl
+   * @param options The configuration options for exponential backoff.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public Source(
+      String apiKey,
+      String organizationId,
+      PlatformUrl platformUrl,
+      BackoffOptions options,
+      ClientContext context) {
+    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options, context);
+  }
+
   /**
    * @deprecated Please now use PlatformUrl to define your Platform environment
    * @see PlatformUrl Construct a PlatformUrl
@@ -209,9 +227,9 @@ public class Source {
   public HttpResponse<String> batchUpdateDocuments(String sourceId, BatchUpdate batchUpdate)
       throws IOException, InterruptedException {
     HttpResponse<String> resFileContainer = this.platformClient.createFileContainer();
-    FileContainer fileContainer = new Gson().fromJson(resFileContainer.body(), FileContainer.class);
-    this.platformClient.uploadContentToFileContainer(
-        fileContainer, new Gson().toJson(batchUpdate.marshal()));
+    FileContainer fileContainer =
+        JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
+    this.platformClient.uploadContentToFileContainer(fileContainer, batchUpdate.toPayload());
     return this.platformClient.pushFileContainerContent(sourceId, fileContainer);
   }
 
@@ -231,8 +249,9 @@ public class Source {
     SecurityIdentityBatchResponse securityIdentityBatchResponse =
         new SecurityIdentityBatchResponse();
     HttpResponse<String> resFileContainer = this.platformClient.createFileContainer();
-    FileContainer fileContainer = new Gson().fromJson(resFileContainer.body(), FileContainer.class);
-    String batchIdJson = new Gson().toJson(batchIdentity.marshal());
+    FileContainer fileContainer =
+        JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
+    String batchIdJson = JsonCodec.GSON.toJson(batchIdentity.marshal());
     securityIdentityBatchResponse.s3Response =
         this.platformClient.uploadContentToFileContainer(fileContainer, batchIdJson);
     if (securityIdentityBatchResponse.s3Response.statusCode() >= 200
@@ -255,7 +274,7 @@ public class Source {
    */
   public FileContainer createFileContainer() throws IOException, InterruptedException {
     HttpResponse<String> resFileContainer = this.platformClient.createFileContainer();
-    return new Gson().fromJson(resFileContainer.body(), FileContainer.class);
+    return JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
   }
 
   /**
@@ -0,0 +1,129 @@
+package com.coveo.pushapiclient;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds the encoded documents of a batch on disk instead of in memory, with one temporary file per
+ * section of the batch payload. Documents are appended as they are queued, and the files are read
+ * back as the batch is uploaded.
+ */
+class SpillFile {
+  private static final Logger logger = LogManager.getLogger(SpillFile.class);
+  private static final byte COMMA = ',';
+
+  private final Path directory;
+  private final Map<String, Section> sections = new LinkedHashMap<>();
+
+  /**
+   * @param directory The directory of the temporary files, or null for the default temporary-file
+   *     directory.
+   */
+  SpillFile(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Appends an encoded document to a section.
+   *
+   * @param name The section of the batch payload, such as {@code addOrUpdate}.
+   * @param encoded The UTF-8 JSON of the document.
+   * @throws IOException If the temporary file cannot be created or written.
+   */
+  void append(String name, byte[] encoded) throws IOException {
+    Section section = this.sections.get(name);
+    if (section == null) {
+      section = new Section(this.createTempFile());
+      this.sections.put(name, section);
+    }
+    section.append(encoded);
+  }
+
+  boolean isEmpty() {
+    return this.sections.isEmpty();
+  }
+
+  /**
+   * Appends a section to a payload, reading its documents from disk. A section without documents is
+   * appended as an empty array.
+   *
+   * @param payload The payload to append to.
+   * @param name The section of the batch payload.
+   * @return The payload.
+   */
+  BatchPayload appendTo(BatchPayload payload, String name) {
+    Section section = this.sections.get(name);
+    if (section == null) {
+      return payload.section(name, Collections.<byte[]>emptyList());
+    }
+    section.close();
+    return payload.section(name, section.file, section.length);
+  }
+
+  /** Closes and deletes every temporary file. */
+  void delete() {
+    for (Section section : this.sections.values()) {
+      section.close();
+      try {
+        Files.deleteIfExists(section.file);
+      } catch (IOException e) {
+        logger.warn("Could not delete spill file " + section.file, e);
+      }
+    }
+    this.sections.clear();
+  }
+
+  private Path createTempFile() throws IOException {
+    return this.directory != null
+        ? Files.createTempFile(this.directory, "coveo-push-", ".json")
+        : Files.createTempFile("coveo-push-", ".json");
+  }
+
+  private static final class Section {
+    private final Path file;
+    private OutputStream out;
+    private long length;
+
+    private Section(Path file) throws IOException {
+      this.file = file;
+      this.out = new BufferedOutputStream(Files.newOutputStream(file));
+    }
+
+    private void append(byte[] encoded) throws IOException {
+      if (this.out == null) {
+        // The section was read by an upload that failed, and the batch is being filled again
+        this.out =
+            new BufferedOutputStream(Files.newOutputStream(this.file, StandardOpenOption.APPEND));
+      }
+      if (this.length > 0) {
+        this.out.write(COMMA);
+        this.length++;
+      }
+      this.out.write(encoded);
+      this.length += encoded.length;
+    }
+
+    private void close() {
+      if (this.out == null) {
+        return;
+      }
+      try {
+        this.out.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        this.out = null;
+      }
+    }
+  }
+}
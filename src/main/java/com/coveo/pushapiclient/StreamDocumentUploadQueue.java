@@ -1,8 +1,8 @@
 package com.coveo.pushapiclient;
 
 import java.io.IOException;
-import java.net.http.HttpResponse;
 import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,41 +11,103 @@ public class StreamDocumentUploadQueue extends DocumentUploadQueue {
   private static final Logger logger = LogManager.getLogger(StreamDocumentUploadQueue.class);
   private StreamUploadHandler streamHandler;
   protected ArrayList<PartialUpdateDocument> documentToPartiallyUpdateList;
-  private HttpResponse<String> lastResponse;
+  protected ArrayList<byte[]> encodedToPartiallyUpdateList;
+  private final OperationCoalescer coalescer;
 
   public StreamDocumentUploadQueue(StreamUploadHandler handler, int maxQueueSize) {
     super(null, maxQueueSize);
     this.streamHandler = handler;
     this.documentToPartiallyUpdateList = new ArrayList<>();
+    this.encodedToPartiallyUpdateList = new ArrayList<>();
+    this.coalescer = null;
+  }
+
+  public StreamDocumentUploadQueue(StreamUploadHandler handler, UploadOptions options) {
+    super(null, options);
+    this.streamHandler = handler;
+    this.documentToPartiallyUpdateList = new ArrayList<>();
+    this.encodedToPartiallyUpdateList = new ArrayList<>();
+    this.coalescer = options.isCoalescing() ? new OperationCoalescer() : null;
   }
 
-  /**
-   * Flushes the accumulated documents by applying the upload strategy.
-   *
-   * @throws IOException If an I/O error occurs during the upload.
-   * @throws InterruptedException If the upload process is interrupted.
-   */
   @Override
-  public void flush() throws IOException, InterruptedException {
-    if (this.isEmpty()) {
-      logger.debug("Empty batch. Skipping upload");
-      this.lastResponse = null;
-      return;
+  protected UploadPipeline.Upload createUpload() {
+    if (this.spillToDisk) {
+      StreamUpdate stream = new StreamUpdate(this.spillFile);
+      return this.deletingSpillFile(
+          () -> {
+            logger.info("Uploading spilled document Stream");
+            return this.streamHandler.uploadAndPush(stream);
+          });
     }
-    // TODO: LENS-871: support concurrent requests
     StreamUpdate stream = this.getStream();
-    logger.info("Uploading document Stream");
+    return () -> {
+      logger.info("Uploading document Stream");
+      return this.streamHandler.uploadAndPush(stream);
+    };
+  }
 
-    this.lastResponse = this.streamHandler.uploadAndPush(stream);
+  @Override
+  protected void clearQueue() {
+    super.clearQueue();
+    this.documentToPartiallyUpdateList.clear();
+    this.encodedToPartiallyUpdateList.clear();
+    if (this.coalescer != null) {
+      this.coalescer.clear();
+    }
+  }
 
-    clearQueue();
+  @Override
+  public synchronized void add(DocumentBuilder document) throws IOException, InterruptedException {
+    if (this.coalescer == null || document == null) {
+      super.add(document);
+      return;
+    }
+    this.rethrowLingerFailure();
+    final byte[] encoded = document.encode();
+    this.coalesce(encoded.length, () -> this.coalescer.addOrUpdate(document, encoded));
   }
 
-  private void clearQueue() {
-    this.size = 0;
-    this.documentToAddList.clear();
-    this.documentToDeleteList.clear();
-    this.documentToPartiallyUpdateList.clear();
+  @Override
+  public synchronized void add(DeleteDocument document) throws IOException, InterruptedException {
+    if (this.coalescer == null || document == null) {
+      super.add(document);
+      return;
+    }
+    this.rethrowLingerFailure();
+    final byte[] encoded = JsonCodec.encode(document, DeleteDocument.class);
+    this.coalesce(encoded.length, () -> this.coalescer.delete(document, encoded));
+  }
+
+  /**
+   * Adds an operation to the coalesced batch. The batch is sealed first if the operation may not
+   * fit in it, or if it cannot be coalesced with the pending operations on its document without
+   * changing the order in which they apply.
+   *
+   * @param sizeOfOperation The size of the encoded operation, which is at most what it adds to the
+   *     batch.
+   * @param operation Adds the operation, and returns whether it could.
+   */
+  private void coalesce(int sizeOfOperation, BooleanSupplier operation)
+      throws IOException, InterruptedException {
+    if (this.size + sizeOfOperation >= this.getMaxQueueSize()) {
+      this.sealBatch();
+    }
+    if (!operation.getAsBoolean()) {
+      logger.debug("Operation conflicts with the pending batch. Sealing it first");
+      this.sealBatch();
+      operation.getAsBoolean();
+    }
+    this.size = this.coalescer.size();
+    this.scheduleLinger();
+  }
+
+  /**
+   * @return The number of operations dropped or folded into another one so far, or 0 when
+   *     operations are not coalesced.
+   */
+  long getCoalescedOperations() {
+    return this.coalescer != null ? this.coalescer.getCoalescedOperations() : 0;
   }
 
   /**
@@ -53,30 +115,50 @@ public class StreamDocumentUploadQueue extends DocumentUploadQueue {
    * the maximum content length. See {@link PartialUpdateDocument#flush}.
    *
    * @param document The document to be deleted from the index.
-   * @throws IOException If an I/O error occurs during the upload.
+   * @throws IOException If an I/O error occurs during the upload, or if the upload of a lingering
+   *     batch failed.
    * @throws InterruptedException If the upload process is interrupted.
    */
-  public void add(PartialUpdateDocument document) throws IOException, InterruptedException {
+  public synchronized void add(PartialUpdateDocument document)
+      throws IOException, InterruptedException {
     if (document == null) {
       return;
     }
+    this.rethrowLingerFailure();
 
-    final int sizeOfDoc = document.marshalJsonObject().toString().getBytes().length;
-    if (this.size + sizeOfDoc >= this.maxQueueSize) {
-      this.flush();
+    final byte[] encoded = JsonCodec.encode(document, PartialUpdateDocument.class);
+    if (this.coalescer != null) {
+      this.coalesce(encoded.length, () -> this.coalescer.partialUpdate(document, encoded));
+      return;
+    }
+    final int sizeOfDoc = encoded.length;
+    if (this.size + sizeOfDoc >= this.getMaxQueueSize()) {
+      this.sealBatch();
+    }
+    if (this.spillToDisk) {
+      this.spill("partialUpdate", encoded);
+    } else {
+      documentToPartiallyUpdateList.add(document);
+      encodedToPartiallyUpdateList.add(encoded);
     }
-    documentToPartiallyUpdateList.add(document);
     if (logger.isDebugEnabled()) {
       logger.debug("Adding document to batch: " + document.documentId);
     }
     this.size += sizeOfDoc;
+    this.scheduleLinger();
   }
 
-  public StreamUpdate getStream() {
+  public synchronized StreamUpdate getStream() {
+    if (this.coalescer != null) {
+      return this.coalescer.toStreamUpdate();
+    }
     return new StreamUpdate(
         new ArrayList<>(this.documentToAddList),
         new ArrayList<>(this.documentToDeleteList),
-        new ArrayList<>(this.documentToPartiallyUpdateList));
+        new ArrayList<>(this.documentToPartiallyUpdateList),
+        new ArrayList<>(this.encodedToAddList),
+        new ArrayList<>(this.encodedToDeleteList),
+        new ArrayList<>(this.encodedToPartiallyUpdateList));
   }
 
   @Override
@@ -85,16 +167,10 @@ public class StreamDocumentUploadQueue extends DocumentUploadQueue {
   }
 
   @Override
-  public boolean isEmpty() {
+  public synchronized boolean isEmpty() {
+    if (this.coalescer != null) {
+      return this.coalescer.isEmpty();
+    }
     return super.isEmpty() && documentToPartiallyUpdateList.isEmpty();
   }
-
-  /**
-   * Returns the HTTP response from the last flush operation.
-   *
-   * @return The last response, or null if no flush has occurred or queue was empty.
-   */
-  HttpResponse<String> getLastResponse() {
-    return this.lastResponse;
-  }
 }
@@ -1,9 +1,10 @@
 package com.coveo.pushapiclient;
 
 import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -112,6 +113,59 @@ public class StreamService {
    */
   public StreamService(
       StreamEnabledSource source, BackoffOptions options, String[] userAgents, int maxQueueSize) {
+    this(
+        source,
+        options,
+        userAgents,
+        new UploadOptionsBuilder().withBatchSize(maxQueueSize).build());
+  }
+
+  /**
+   * Creates a service to stream your documents to the provided source by interacting with the
+   * Stream API.
+   *
+   * <p>To perform <a href="https://docs.coveo.com/en/l62e0540">full document updates or
+   * deletions</a>, use the {@UpdateStreamService}, since pushing documents with the
+   * {@StreamService} is equivalent to triggering a full source rebuild. The {@StreamService} can
+   * also be used for an initial catalog upload.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size and upload concurrency to use. See {@link
+   *     UploadOptionsBuilder}.
+   */
+  public StreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions) {
+    this(source, options, userAgents, uploadOptions, ClientContext.getDefault());
+  }
+
+  /**
+   * Creates a service to stream your documents to the provided source by interacting with the
+   * Stream API.
+   *
+   * <p>To perform <a href="https://docs.coveo.com/en/l62e0540">full document updates or
+   * deletions</a>, use the {@UpdateStreamService}, since pushing documents with the
+   * {@StreamService} is equivalent to triggering a full source rebuild. The {@StreamService} can
+   * also be used for an initial catalog upload.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size and upload concurrency to use. See {@link
+   *     UploadOptionsBuilder}.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public StreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions,
+      ClientContext context) {
     String apiKey = source.getApiKey();
     String organizationId = source.getOrganizationId();
     PlatformUrl platformUrl = source.getPlatformUrl();
@@ -119,11 +173,14 @@ public class StreamService {
     Logger logger = LogManager.getLogger(StreamService.class);
 
     this.source = source;
-    this.queue = new DocumentUploadQueue(uploader, maxQueueSize);
-    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options);
+    this.queue = new DocumentUploadQueue(uploader, uploadOptions);
+    this.platformClient = new PlatformClient(apiKey, organizationId, platformUrl, options, context);
+    this.platformClient.setUploadCompressionLevel(uploadOptions.getCompressionLevel());
+    this.platformClient.setCircuitBreakerOptions(uploadOptions.getCircuitBreakerOptions());
     if (userAgents != null) {
       platformClient.setUserAgents(userAgents);
     }
+    this.queue.setThrottleCounter(this.platformClient::getThrottledResponseCountOnCurrentThread);
     this.service = new StreamServiceInternal(this.source, this.queue, this.platformClient, logger);
   }
 
@@ -161,6 +218,29 @@ public class StreamService {
     this.streamId = this.service.add(document);
   }
 
+  /**
+   * Subscribes to a publisher of documents, and adds each of them like {@link #add} would. Once the
+   * publisher completes, the stream is {@link #close closed}.
+   *
+   * <p>Documents are requested as they are queued for upload, and no more are requested while every
+   * upload slot is busy or throttled requests are waiting to be retried. This pushes the pace of
+   * the uploads back to the publisher, rather than buffering its documents.
+   *
+   * <p>Documents must not be added to the service by other means until the returned future
+   * completes.
+   *
+   * @param publisher The documents to add to your source.
+   * @return Completes with the response of {@link #close} once every document was uploaded, or
+   *     exceptionally if the publisher or an upload fails. Cancelling it cancels the subscription.
+   */
+  public CompletableFuture<HttpResponse<String>> ingest(
+      Flow.Publisher<? extends DocumentBuilder> publisher) {
+    DocumentSubscriber<DocumentBuilder> subscriber =
+        new DocumentSubscriber<>(this::add, this::close, this.queue::discard);
+    publisher.subscribe(subscriber);
+    return subscriber.getResult();
+  }
+
   /**
    * Sends any buffered documents and <a
    * href="https://docs.coveo.com/en/lb4a0344#step-3-close-the-stream">closes the stream</a>.
@@ -183,15 +263,23 @@ public class StreamService {
     return this.service.close();
   }
 
+  /**
+   * @return The size in bytes at which batches are currently uploaded. Changes over time when the
+   *     batch size is adaptive. See {@link UploadOptionsBuilder#withAdaptiveBatchSize}.
+   */
+  public int getCurrentBatchSize() {
+    return this.queue.getCurrentBatchSize();
+  }
+
   private UploadStrategy getUploadStrategy() {
     return (batchUpdate) -> {
       String sourceId = this.getSourceId();
       HttpResponse<String> resFileContainer =
           this.platformClient.requireStreamChunk(sourceId, this.streamId);
       FileContainer fileContainer =
-          new Gson().fromJson(resFileContainer.body(), FileContainer.class);
-      String batchUpdateJson = new Gson().toJson(batchUpdate.marshal());
-      return this.platformClient.uploadContentToFileContainer(fileContainer, batchUpdateJson);
+          JsonCodec.GSON.fromJson(resFileContainer.body(), FileContainer.class);
+      return this.platformClient.uploadContentToFileContainer(
+          fileContainer, batchUpdate.toPayload());
     };
   }
 
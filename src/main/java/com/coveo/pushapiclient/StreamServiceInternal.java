@@ -1,7 +1,6 @@
 package com.coveo.pushapiclient;
 
 import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.http.HttpResponse;
 import org.apache.logging.log4j.Logger;
@@ -39,7 +38,11 @@ class StreamServiceInternal {
       throw new NoOpenStreamException(
           "No open stream detected. A stream will automatically be opened once you start adding documents.");
     }
-    queue.flush();
+    try {
+      queue.flush();
+    } finally {
+      queue.close();
+    }
     String sourceId = this.getSourceId();
     this.logger.info("Closing open stream " + this.streamId);
     return this.platformClient.closeStream(sourceId, this.streamId);
@@ -49,7 +52,7 @@ class StreamServiceInternal {
     this.logger.info("Opening new stream");
     String sourceId = this.getSourceId();
     HttpResponse<String> response = this.platformClient.openStream(sourceId);
-    StreamResponse streamResponse = new Gson().fromJson(response.body(), StreamResponse.class);
+    StreamResponse streamResponse = JsonCodec.GSON.fromJson(response.body(), StreamResponse.class);
     return streamResponse.streamId;
   }
 
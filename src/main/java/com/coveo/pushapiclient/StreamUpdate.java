@@ -1,18 +1,45 @@
 package com.coveo.pushapiclient;
 
 import com.google.gson.JsonObject;
+import java.util.Collections;
 import java.util.List;
 
 public class StreamUpdate extends BatchUpdate {
 
   private final List<PartialUpdateDocument> partialUpdate;
+  private final List<byte[]> encodedPartialUpdate;
 
   public StreamUpdate(
       List<DocumentBuilder> addOrUpdate,
       List<DeleteDocument> delete,
       List<PartialUpdateDocument> partialUpdate) {
-    super(addOrUpdate, delete);
+    this(addOrUpdate, delete, partialUpdate, null, null, null);
+  }
+
+  /**
+   * Creates a stream update whose documents were already encoded. See {@link
+   * BatchUpdate#BatchUpdate(List, List, List, List)}.
+   */
+  StreamUpdate(
+      List<DocumentBuilder> addOrUpdate,
+      List<DeleteDocument> delete,
+      List<PartialUpdateDocument> partialUpdate,
+      List<byte[]> encodedAddOrUpdate,
+      List<byte[]> encodedDelete,
+      List<byte[]> encodedPartialUpdate) {
+    super(addOrUpdate, delete, encodedAddOrUpdate, encodedDelete);
     this.partialUpdate = partialUpdate;
+    this.encodedPartialUpdate = encodedPartialUpdate;
+  }
+
+  /**
+   * Creates a stream update whose documents were spilled to disk. See {@link
+   * BatchUpdate#BatchUpdate(SpillFile)}.
+   */
+  StreamUpdate(SpillFile spillFile) {
+    super(spillFile);
+    this.partialUpdate = Collections.emptyList();
+    this.encodedPartialUpdate = null;
   }
 
   @Override
@@ -27,6 +54,21 @@ public class StreamUpdate extends BatchUpdate {
             .toArray(JsonObject[]::new));
   }
 
+  @Override
+  BatchPayload toPayload() {
+    BatchPayload payload = super.toPayload();
+    if (this.getSpillFile() != null) {
+      return this.getSpillFile().appendTo(payload, "partialUpdate");
+    }
+    if (this.encodedPartialUpdate != null) {
+      return payload.section("partialUpdate", this.encodedPartialUpdate);
+    }
+    return payload.section(
+        "partialUpdate",
+        this.partialUpdate,
+        document -> JsonCodec.encode(document, PartialUpdateDocument.class));
+  }
+
   public List<PartialUpdateDocument> getPartialUpdate() {
     return partialUpdate;
   }
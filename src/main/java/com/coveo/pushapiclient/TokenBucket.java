@@ -0,0 +1,45 @@
+package com.coveo.pushapiclient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket refilled at a constant rate, holding up to one second of tokens.
+ *
+ * <p>Tokens are reserved rather than waited for: a reservation always succeeds, possibly leaving
+ * the bucket in debt, and tells how long the caller must wait before going ahead. A request larger
+ * than the bucket is therefore delayed in proportion to its size instead of being refused.
+ */
+class TokenBucket {
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long refilledAt;
+
+  /**
+   * @param tokensPerSecond The refill rate.
+   * @param now The current time, from {@link System#nanoTime()}.
+   */
+  TokenBucket(double tokensPerSecond, long now) {
+    this.tokensPerNano = tokensPerSecond / NANOS_PER_SECOND;
+    this.capacity = tokensPerSecond;
+    this.tokens = this.capacity;
+    this.refilledAt = now;
+  }
+
+  /**
+   * Takes tokens from the bucket.
+   *
+   * @param amount The number of tokens to take.
+   * @param now The current time, from {@link System#nanoTime()}.
+   * @return How long to wait, in nanoseconds, before the tokens are actually available.
+   */
+  synchronized long reserve(double amount, long now) {
+    this.tokens =
+        Math.min(this.capacity, this.tokens + (now - this.refilledAt) * this.tokensPerNano);
+    this.refilledAt = now;
+    this.tokens -= amount;
+    return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.tokensPerNano);
+  }
+}
@@ -3,6 +3,8 @@ package com.coveo.pushapiclient;
 import com.coveo.pushapiclient.exceptions.NoOpenFileContainerException;
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -10,6 +12,7 @@ public class UpdateStreamService {
 
   private final PlatformClient platformClient;
   private final UpdateStreamServiceInternal updateStreamServiceInternal;
+  private final StreamDocumentUploadQueue queue;
 
   /**
    * Creates a service to stream your documents to the provided source by interacting with the
@@ -106,20 +109,81 @@ public class UpdateStreamService {
    */
   public UpdateStreamService(
       StreamEnabledSource source, BackoffOptions options, String[] userAgents, int maxQueueSize) {
+    this(
+        source,
+        options,
+        userAgents,
+        new UploadOptionsBuilder().withBatchSize(maxQueueSize).build());
+  }
+
+  /**
+   * Creates a service to stream your documents to the provided source by interacting with the
+   * Stream API. This provides the ability to incrementally add, update, or delete documents via a
+   * stream.
+   *
+   * <p>To perform <a href="https://docs.coveo.com/en/lb4a0344">a full source rebuild</a>, use the
+   * {@link StreamService}.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size, upload concurrency and file container prefetch to use. See
+   *     {@link UploadOptionsBuilder}.
+   */
+  public UpdateStreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions) {
+    this(source, options, userAgents, uploadOptions, ClientContext.getDefault());
+  }
+
+  /**
+   * Creates a service to stream your documents to the provided source by interacting with the
+   * Stream API. This provides the ability to incrementally add, update, or delete documents via a
+   * stream.
+   *
+   * <p>To perform <a href="https://docs.coveo.com/en/lb4a0344">a full source rebuild</a>, use the
+   * {@link StreamService}.
+   *
+   * @param source The source to which you want to send your documents.
+   * @param options The configuration options for exponential backoff.
+   * @param userAgents The user agent to use for the requests.
+   * @param uploadOptions The batch size, upload concurrency and file container prefetch to use. See
+   *     {@link UploadOptionsBuilder}.
+   * @param context The HTTP client to share with other services and sources. See {@link
+   *     ClientContext}.
+   */
+  public UpdateStreamService(
+      StreamEnabledSource source,
+      BackoffOptions options,
+      String[] userAgents,
+      UploadOptions uploadOptions,
+      ClientContext context) {
     Logger logger = LogManager.getLogger(UpdateStreamService.class);
     this.platformClient =
         new PlatformClient(
-            source.getApiKey(), source.getOrganizationId(), source.getPlatformUrl(), options);
+            source.getApiKey(),
+            source.getOrganizationId(),
+            source.getPlatformUrl(),
+            options,
+            context);
+    this.platformClient.setUploadCompressionLevel(uploadOptions.getCompressionLevel());
+    this.platformClient.setCircuitBreakerOptions(uploadOptions.getCircuitBreakerOptions());
     if (userAgents != null) {
       this.platformClient.setUserAgents(userAgents);
     }
 
     CatalogStreamUploadHandler handler =
-        new CatalogStreamUploadHandler(source, this.platformClient);
-    StreamDocumentUploadQueue queue = new StreamDocumentUploadQueue(handler, maxQueueSize);
+        new CatalogStreamUploadHandler(
+            source,
+            this.platformClient,
+            new FileContainerPool(this.platformClient, uploadOptions.getFileContainerPrefetch()));
+    this.queue = new StreamDocumentUploadQueue(handler, uploadOptions);
+    this.queue.setThrottleCounter(this.platformClient::getThrottledResponseCountOnCurrentThread);
 
     this.updateStreamServiceInternal =
-        new UpdateStreamServiceInternal(source, queue, this.platformClient, logger);
+        new UpdateStreamServiceInternal(source, this.queue, this.platformClient, logger);
   }
 
   /**
@@ -238,6 +302,53 @@ public class UpdateStreamService {
     updateStreamServiceInternal.delete(document);
   }
 
+  /**
+   * Subscribes to a publisher of {@link DocumentBuilder}, {@link PartialUpdateDocument} and {@link
+   * DeleteDocument} items, and adds each of them like {@link #addOrUpdate}, {@link
+   * #addPartialUpdate} and {@link #delete} would. Once the publisher completes, the service is
+   * {@link #close closed}.
+   *
+   * <p>Items are requested as they are queued for upload, and no more are requested while every
+   * upload slot is busy or throttled requests are waiting to be retried. This pushes the pace of
+   * the uploads back to the publisher, rather than buffering its items.
+   *
+   * <p>
+   *
+   * <pre>{@code
+   * //...
+   * UpdateStreamService service = new UpdateStreamService(source);
+   * Flow.Publisher<Object> updates = JdkFlowAdapter.publisherToFlowPublisher(fictionalFlux);
+   * HttpResponse<String> response = service.ingest(updates).join();
+   * }</pre>
+   *
+   * <p>Documents must not be added to the service by other means until the returned future
+   * completes.
+   *
+   * @param publisher The documents to create, update or delete.
+   * @return Completes with the response of {@link #close} once every item was uploaded, or
+   *     exceptionally if the publisher fails, an item is of another type, or an upload fails.
+   *     Cancelling it cancels the subscription.
+   */
+  public CompletableFuture<HttpResponse<String>> ingest(Flow.Publisher<?> publisher) {
+    DocumentSubscriber<Object> subscriber =
+        new DocumentSubscriber<>(this::add, this::close, this.queue::discard);
+    publisher.subscribe(subscriber);
+    return subscriber.getResult();
+  }
+
+  private void add(Object item) throws IOException, InterruptedException {
+    if (item instanceof DocumentBuilder) {
+      this.addOrUpdate((DocumentBuilder) item);
+    } else if (item instanceof PartialUpdateDocument) {
+      this.addPartialUpdate((PartialUpdateDocument) item);
+    } else if (item instanceof DeleteDocument) {
+      this.delete((DeleteDocument) item);
+    } else {
+      throw new IllegalArgumentException(
+          "Cannot add a " + item.getClass().getName() + " to an update stream");
+    }
+  }
+
   /**
    * Sends any buffered documents and <a
    * href="https://docs.coveo.com/en/l62e0540/how-to-update-your-catalog#step-3-send-the-file-container-to-update-your-catalog">pushes
@@ -255,4 +366,12 @@ public class UpdateStreamService {
       throws IOException, InterruptedException, NoOpenFileContainerException {
     return updateStreamServiceInternal.close();
   }
+
+  /**
+   * @return The size in bytes at which batches are currently uploaded. Changes over time when the
+   *     batch size is adaptive. See {@link UploadOptionsBuilder#withAdaptiveBatchSize}.
+   */
+  public int getCurrentBatchSize() {
+    return this.queue.getCurrentBatchSize();
+  }
 }
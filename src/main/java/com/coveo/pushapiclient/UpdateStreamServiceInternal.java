@@ -32,7 +32,11 @@ class UpdateStreamServiceInternal {
 
   public HttpResponse<String> close()
       throws IOException, InterruptedException, NoOpenFileContainerException {
-    queue.flush();
+    try {
+      queue.flush();
+    } finally {
+      queue.close();
+    }
     return queue.getLastResponse();
   }
 }
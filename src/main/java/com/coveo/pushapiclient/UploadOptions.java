@@ -0,0 +1,135 @@
+package com.coveo.pushapiclient;
+
+import java.nio.file.Path;
+
+/**
+ * Options controlling how documents are batched and uploaded by the {@link PushService}, {@link
+ * StreamService} and {@link UpdateStreamService}.
+ *
+ * @see UploadOptionsBuilder
+ */
+public class UploadOptions {
+  private final int batchSize;
+  private final int maxConcurrentUploads;
+  private final boolean spillToDisk;
+  private final Path spillDirectory;
+  private final int fileContainerPrefetch;
+  private final Integer compressionLevel;
+  private final int lingerMs;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final CircuitBreakerOptions circuitBreakerOptions;
+  private final boolean virtualThreads;
+  private final boolean coalescing;
+
+  /**
+   * @param batchSize The maximum batch size in bytes before auto-flushing (max: 256MB).
+   * @param maxConcurrentUploads The maximum number of batches that can be uploading at the same
+   *     time. When set to 1, batches are uploaded on the calling thread.
+   */
+  public UploadOptions(int batchSize, int maxConcurrentUploads) {
+    this(batchSize, maxConcurrentUploads, false, null, 0, null, 0, 0, 0, null, false, false);
+  }
+
+  /** Creates options with every setting of {@link UploadOptionsBuilder}. */
+  UploadOptions(
+      int batchSize,
+      int maxConcurrentUploads,
+      boolean spillToDisk,
+      Path spillDirectory,
+      int fileContainerPrefetch,
+      Integer compressionLevel,
+      int lingerMs,
+      int minBatchSize,
+      int maxBatchSize,
+      CircuitBreakerOptions circuitBreakerOptions,
+      boolean virtualThreads,
+      boolean coalescing) {
+    this.batchSize = batchSize;
+    this.maxConcurrentUploads = maxConcurrentUploads;
+    this.spillToDisk = spillToDisk;
+    this.spillDirectory = spillDirectory;
+    this.fileContainerPrefetch = fileContainerPrefetch;
+    this.compressionLevel = compressionLevel;
+    this.lingerMs = lingerMs;
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.circuitBreakerOptions = circuitBreakerOptions;
+    this.virtualThreads = virtualThreads;
+    this.coalescing = coalescing;
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  public int getMaxConcurrentUploads() {
+    return this.maxConcurrentUploads;
+  }
+
+  public boolean isSpillToDisk() {
+    return this.spillToDisk;
+  }
+
+  public Path getSpillDirectory() {
+    return this.spillDirectory;
+  }
+
+  public int getFileContainerPrefetch() {
+    return this.fileContainerPrefetch;
+  }
+
+  /**
+   * @return The GZIP compression level of uploaded batches, or null if they are not compressed.
+   */
+  public Integer getCompressionLevel() {
+    return this.compressionLevel;
+  }
+
+  /**
+   * @return The time, in milliseconds, after which a partial batch is uploaded, or 0 if partial
+   *     batches are only uploaded on flush.
+   */
+  public int getLingerMs() {
+    return this.lingerMs;
+  }
+
+  /**
+   * @return Whether the batch size is tuned between {@link #getMinBatchSize()} and {@link
+   *     #getMaxBatchSize()}, starting from {@link #getBatchSize()}.
+   */
+  public boolean isAdaptiveBatchSize() {
+    return this.maxBatchSize > 0;
+  }
+
+  public int getMinBatchSize() {
+    return this.minBatchSize;
+  }
+
+  public int getMaxBatchSize() {
+    return this.maxBatchSize;
+  }
+
+  /**
+   * @return When the circuit breakers of the upload endpoints open and close, or null if requests
+   *     are always sent.
+   */
+  public CircuitBreakerOptions getCircuitBreakerOptions() {
+    return this.circuitBreakerOptions;
+  }
+
+  /**
+   * @return Whether concurrent uploads run on virtual threads, when the runtime supports them.
+   */
+  public boolean isVirtualThreads() {
+    return this.virtualThreads;
+  }
+
+  /**
+   * @return Whether the operations on a same document within a batch are coalesced into as few
+   *     operations as possible.
+   */
+  public boolean isCoalescing() {
+    return this.coalescing;
+  }
+}
@@ -0,0 +1,250 @@
+package com.coveo.pushapiclient;
+
+import java.nio.file.Path;
+
+public class UploadOptionsBuilder {
+  public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 1;
+
+  /** System property name for configuring the default number of concurrent batch uploads */
+  public static final String MAX_CONCURRENT_UPLOADS_PROPERTY = "coveo.push.maxConcurrentUploads";
+
+  private Integer batchSize;
+  private Integer maxConcurrentUploads;
+  private boolean spillToDisk = false;
+  private Path spillDirectory;
+  private int fileContainerPrefetch = 0;
+  private Integer compressionLevel;
+  private int lingerMs = 0;
+  private int minBatchSize = 0;
+  private int maxBatchSize = 0;
+  private CircuitBreakerOptions circuitBreakerOptions;
+  private boolean virtualThreads = false;
+  private boolean coalescing = false;
+
+  /**
+   * Gets the configured number of concurrent uploads from system properties, or returns the default
+   * if not set.
+   *
+   * @return The configured number of concurrent uploads.
+   * @throws IllegalArgumentException if the configured value is not a positive integer.
+   */
+  public static int getConfiguredMaxConcurrentUploads() {
+    String propertyValue = System.getProperty(MAX_CONCURRENT_UPLOADS_PROPERTY);
+    if (propertyValue == null || propertyValue.trim().isEmpty()) {
+      return DEFAULT_MAX_CONCURRENT_UPLOADS;
+    }
+    try {
+      return Integer.parseInt(propertyValue.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid value for system property %s: '%s'. Must be a valid integer.",
+              MAX_CONCURRENT_UPLOADS_PROPERTY, propertyValue),
+          e);
+    }
+  }
+
+  /**
+   * @param batchSize The maximum batch size in bytes before auto-flushing (default: 5MB, max:
+   *     256MB).
+   */
+  public UploadOptionsBuilder withBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Allows several batches to be uploaded at the same time, so that the next batch can be built
+   * while the previous ones are still being uploaded. When every upload slot is busy, adding a
+   * document that seals a new batch blocks until a slot frees up.
+   *
+   * <p>Batches uploaded concurrently may be processed by the Coveo Platform in any order. Keep the
+   * default of 1 if the same document can appear in different batches.
+   *
+   * @param maxConcurrentUploads The maximum number of batches uploading at the same time (default:
+   *     1).
+   */
+  public UploadOptionsBuilder withMaxConcurrentUploads(int maxConcurrentUploads) {
+    this.maxConcurrentUploads = maxConcurrentUploads;
+    return this;
+  }
+
+  /**
+   * Keeps queued documents in temporary files instead of in memory, and streams each batch from its
+   * file when uploading it. The memory needed by the queue then no longer grows with the batch
+   * size, which allows large batches on a small heap. The files are deleted once their batch is
+   * uploaded.
+   *
+   * @param spillToDisk Whether to spill queued documents to disk (default: false).
+   */
+  public UploadOptionsBuilder withSpillToDisk(boolean spillToDisk) {
+    this.spillToDisk = spillToDisk;
+    return this;
+  }
+
+  /**
+   * @param spillDirectory The directory in which spilled batches are written (default: the
+   *     directory of the {@code java.io.tmpdir} system property). Only used when spilling to disk.
+   */
+  public UploadOptionsBuilder withSpillDirectory(Path spillDirectory) {
+    this.spillDirectory = spillDirectory;
+    return this;
+  }
+
+  /**
+   * Keeps file containers created ahead of time, so that the upload of a sealed batch can start
+   * without first waiting for a file container to be created. Only applies to the {@link
+   * PushService} and {@link UpdateStreamService}, which upload each batch to its own file
+   * container. Prefetched containers that are about to expire are discarded unused.
+   *
+   * @param fileContainerPrefetch The number of file containers to keep ready (default: 0, which
+   *     creates each file container when its batch is uploaded).
+   */
+  public UploadOptionsBuilder withFileContainerPrefetch(int fileContainerPrefetch) {
+    this.fileContainerPrefetch = fileContainerPrefetch;
+    return this;
+  }
+
+  /**
+   * Compresses each batch with GZIP before uploading it, trading CPU time for upload bandwidth.
+   * Batch JSON usually compresses to a fraction of its size. The batch size still applies to the
+   * uncompressed JSON, which is what the API limits. See {@link
+   * PlatformClient#setUploadCompressionLevel}.
+   *
+   * @param compressionLevel The compression level, from 1 (fastest) to 9 (smallest) (default:
+   *     uncompressed uploads).
+   */
+  public UploadOptionsBuilder withCompressionLevel(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+    return this;
+  }
+
+  /**
+   * Bounds how long a document can wait in a partially filled batch. The batch is uploaded once its
+   * first document has waited for the linger time, even if it is not full. Under load, batches
+   * still fill up and are uploaded before lingering.
+   *
+   * <p>If the upload of a lingering batch fails, the failure is thrown by the next call that adds a
+   * document or flushes the queue.
+   *
+   * @param lingerMs The time, in milliseconds, after which a partial batch is uploaded (default: 0,
+   *     which only uploads partial batches on flush).
+   */
+  public UploadOptionsBuilder withLinger(int lingerMs) {
+    this.lingerMs = lingerMs;
+    return this;
+  }
+
+  /**
+   * Tunes the batch size while uploading, instead of using a fixed size. Each throttled or
+   * unusually slow upload halves the batch size, and each other upload grows it by a small step.
+   * The batch size set with {@link #withBatchSize} is the starting point. The current size is
+   * reported by {@link PushService#getCurrentBatchSize()} and the stream services.
+   *
+   * @param minBatchSize The smallest batch size, in bytes.
+   * @param maxBatchSize The largest batch size, in bytes (max: 256MB).
+   */
+  public UploadOptionsBuilder withAdaptiveBatchSize(int minBatchSize, int maxBatchSize) {
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    return this;
+  }
+
+  /**
+   * Stops sending requests to a family of endpoints that keeps failing, such as the file container
+   * storage, instead of retrying each request with long backoffs. While the circuit breaker of a
+   * family is open, its requests throw a {@link CircuitOpenException} right away. See {@link
+   * PlatformClient#setCircuitBreakerOptions}.
+   *
+   * @param circuitBreakerOptions When circuit breakers open and close (default: none, which always
+   *     sends requests).
+   */
+  public UploadOptionsBuilder withCircuitBreaker(CircuitBreakerOptions circuitBreakerOptions) {
+    this.circuitBreakerOptions = circuitBreakerOptions;
+    return this;
+  }
+
+  /**
+   * Uploads batches on virtual threads instead of a pool of platform threads, so that hundreds of
+   * concurrent uploads do not need hundreds of platform threads. Requires Java 21 or later. Older
+   * runtimes log a warning and use platform threads. Pair it with a {@link ClientContext} built
+   * with {@link ClientContextBuilder#withVirtualThreads} for asynchronous requests.
+   *
+   * @param virtualThreads Whether to upload on virtual threads (default: false).
+   */
+  public UploadOptionsBuilder withVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+    return this;
+  }
+
+  /**
+   * Coalesces the operations on a same document within a pending batch of an {@link
+   * UpdateStreamService}: only the last full update or deletion of a document is sent, partial
+   * updates are folded into a pending full update where possible, and a field value replacement
+   * supersedes the earlier partial updates of that field. Change feeds that update a same document
+   * several times in a row then send smaller batches, and the index does less work.
+   *
+   * <p>Documents are kept in memory until their batch is sealed, so coalescing cannot be combined
+   * with {@link #withSpillToDisk}.
+   *
+   * @param coalescing Whether to coalesce the operations on a same document (default: false).
+   */
+  public UploadOptionsBuilder withCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+    return this;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the batch size exceeds 256MB, if the batch size or
+   *     concurrent uploads are not positive, if the file container prefetch is negative, or if the
+   *     compression level is not between 1 and 9, if the linger time is negative, or if the
+   *     adaptive batch size bounds are not positive, exceed 256MB or are reversed, or if coalescing
+   *     is combined with spilling to disk.
+   */
+  public UploadOptions build() {
+    int resolvedBatchSize =
+        this.batchSize != null ? this.batchSize : DocumentUploadQueue.getConfiguredBatchSize();
+    int resolvedMaxConcurrentUploads =
+        this.maxConcurrentUploads != null
+            ? this.maxConcurrentUploads
+            : getConfiguredMaxConcurrentUploads();
+
+    DocumentUploadQueue.validateBatchSize(resolvedBatchSize);
+    if (resolvedMaxConcurrentUploads <= 0) {
+      throw new IllegalArgumentException("Maximum concurrent uploads must be greater than 0");
+    }
+    if (this.fileContainerPrefetch < 0) {
+      throw new IllegalArgumentException("File container prefetch must not be negative");
+    }
+    if (this.compressionLevel != null && (this.compressionLevel < 1 || this.compressionLevel > 9)) {
+      throw new IllegalArgumentException("Compression level must be between 1 and 9");
+    }
+    if (this.lingerMs < 0) {
+      throw new IllegalArgumentException("Linger time must not be negative");
+    }
+    if (this.maxBatchSize != 0 || this.minBatchSize != 0) {
+      DocumentUploadQueue.validateBatchSize(this.minBatchSize);
+      DocumentUploadQueue.validateBatchSize(this.maxBatchSize);
+      if (this.minBatchSize > this.maxBatchSize) {
+        throw new IllegalArgumentException(
+            "Minimum batch size must not exceed the maximum batch size");
+      }
+    }
+    if (this.coalescing && this.spillToDisk) {
+      throw new IllegalArgumentException("Coalescing cannot be combined with spilling to disk");
+    }
+    return new UploadOptions(
+        resolvedBatchSize,
+        resolvedMaxConcurrentUploads,
+        this.spillToDisk,
+        this.spillDirectory,
+        this.fileContainerPrefetch,
+        this.compressionLevel,
+        this.lingerMs,
+        this.minBatchSize,
+        this.maxBatchSize,
+        this.circuitBreakerOptions,
+        this.virtualThreads,
+        this.coalescing);
+  }
+}
@@ -0,0 +1,238 @@
+package com.coveo.pushapiclient;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Dispatches sealed batches for upload, keeping at most a fixed number of them in flight.
+ *
+ * <p>With a single upload slot, batches are uploaded on the calling thread and failures propagate
+ * immediately. With more slots, batches are uploaded on a dedicated pool, or on virtual threads,
+ * {@link #submit} blocks while every slot is busy, and failures are reported by {@link #awaitAll}
+ * in submission order. A failure is also thrown by the next {@link #submit} once its upload
+ * completed, so that the caller does not keep adding documents after a batch was lost.
+ *
+ * <p>The pool is created with the first concurrent upload and released by {@link #close}.
+ */
+class UploadPipeline {
+  private static final Logger logger = LogManager.getLogger(UploadPipeline.class);
+  private static final AtomicInteger poolCounter = new AtomicInteger();
+
+  /** An upload of a single sealed batch. */
+  @FunctionalInterface
+  interface Upload {
+    HttpResponse<String> call() throws IOException, InterruptedException;
+  }
+
+  private final int maxConcurrentUploads;
+  private final boolean virtualThreads;
+  private final Semaphore slots;
+  private ExecutorService executor;
+  private final List<Future<HttpResponse<String>>> inFlight;
+  private HttpResponse<String> lastResponse;
+
+  UploadPipeline(int maxConcurrentUploads) {
+    this(maxConcurrentUploads, false);
+  }
+
+  /**
+   * @param maxConcurrentUploads The maximum number of batches uploading at the same time.
+   * @param virtualThreads Whether to upload each batch on its own virtual thread, when the runtime
+   *     supports them, rather than on a pool of platform threads.
+   */
+  UploadPipeline(int maxConcurrentUploads, boolean virtualThreads) {
+    if (maxConcurrentUploads <= 0) {
+      throw new IllegalArgumentException("Maximum concurrent uploads must be greater than 0");
+    }
+    this.maxConcurrentUploads = maxConcurrentUploads;
+    this.virtualThreads = virtualThreads;
+    this.slots = new Semaphore(maxConcurrentUploads);
+    this.inFlight = new ArrayList<>();
+  }
+
+  int getMaxConcurrentUploads() {
+    return this.maxConcurrentUploads;
+  }
+
+  /**
+   * @return Whether batches are uploaded on the calling thread, so that {@link #submit} only
+   *     returns once the upload completed.
+   */
+  boolean isSynchronous() {
+    return this.maxConcurrentUploads == 1;
+  }
+
+  /**
+   * Starts the upload of a sealed batch, blocking until an upload slot is available.
+   *
+   * @param upload The upload to run.
+   * @throws IOException If the upload runs on the calling thread and fails, or if a batch submitted
+   *     earlier already failed to upload. The upload is not started in either case.
+   * @throws InterruptedException If interrupted while waiting for an upload slot.
+   */
+  synchronized void submit(Upload upload) throws IOException, InterruptedException {
+    if (this.isSynchronous()) {
+      this.lastResponse = upload.call();
+      return;
+    }
+
+    this.rethrowCompletedFailure();
+    this.slots.acquire();
+    if (this.executor == null) {
+      this.executor = createExecutor(this.maxConcurrentUploads, this.virtualThreads);
+    }
+    try {
+      this.inFlight.add(
+          this.executor.submit(
+              () -> {
+                try {
+                  return upload.call();
+                } finally {
+                  this.slots.release();
+                }
+              }));
+    } catch (RuntimeException e) {
+      this.slots.release();
+      throw e;
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          String.format(
+              "Batch upload submitted (%d/%d slots in use)",
+              this.maxConcurrentUploads - this.slots.availablePermits(),
+              this.maxConcurrentUploads));
+    }
+  }
+
+  /**
+   * Waits for every submitted upload to complete.
+   *
+   * @return The response of the most recently submitted upload since the last call, or null if
+   *     nothing was uploaded.
+   * @throws IOException The first upload failure, in submission order. Any later failure is
+   *     attached as a suppressed exception.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  synchronized HttpResponse<String> awaitAll() throws IOException, InterruptedException {
+    Exception failure = null;
+    for (Future<HttpResponse<String>> upload : this.inFlight) {
+      try {
+        this.lastResponse = upload.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        if (failure == null) {
+          failure = (Exception) cause;
+        } else {
+          failure.addSuppressed(cause);
+        }
+      }
+    }
+    this.inFlight.clear();
+
+    HttpResponse<String> response = this.lastResponse;
+    this.lastResponse = null;
+    if (failure != null) {
+      rethrow(failure);
+    }
+    return response;
+  }
+
+  /**
+   * Releases the upload pool once the batches already submitted are uploaded. A later {@link
+   * #submit} creates a new pool.
+   */
+  synchronized void close() {
+    if (this.executor != null) {
+      this.executor.shutdown();
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Throws the failure of the first upload found to have failed, forgetting it. The successful
+   * uploads at the head of the submission order are forgotten too, keeping the last response.
+   */
+  private void rethrowCompletedFailure() throws IOException, InterruptedException {
+    boolean head = true;
+    Iterator<Future<HttpResponse<String>>> uploads = this.inFlight.iterator();
+    while (uploads.hasNext()) {
+      Future<HttpResponse<String>> upload = uploads.next();
+      if (!upload.isDone()) {
+        head = false;
+        continue;
+      }
+      try {
+        HttpResponse<String> response = upload.get();
+        if (head) {
+          this.lastResponse = response;
+          uploads.remove();
+        }
+      } catch (ExecutionException e) {
+        uploads.remove();
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        rethrow((Exception) cause);
+      }
+    }
+  }
+
+  private static void rethrow(Exception failure) throws IOException, InterruptedException {
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    }
+    if (failure instanceof InterruptedException) {
+      throw (InterruptedException) failure;
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    }
+    throw new IOException(failure);
+  }
+
+  private static ExecutorService createExecutor(int maxConcurrentUploads, boolean virtualThreads) {
+    String prefix = "coveo-push-upload-" + poolCounter.incrementAndGet() + "-";
+    if (virtualThreads) {
+      // The upload slots bound the concurrency, so there is no need to pool virtual threads.
+      ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor(prefix);
+      if (executor != null) {
+        return executor;
+      }
+    }
+    AtomicInteger threadCounter = new AtomicInteger();
+    ThreadFactory threadFactory =
+        runnable -> {
+          Thread thread = new Thread(runnable, prefix + threadCounter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            maxConcurrentUploads,
+            maxConcurrentUploads,
+            30,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
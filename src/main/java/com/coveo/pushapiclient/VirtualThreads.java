@@ -0,0 +1,71 @@
+package com.coveo.pushapiclient;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates virtual threads on JDK 21 and later. The SDK targets Java 11, so the virtual thread API
+ * is looked up reflectively, and platform threads are used instead on older runtimes.
+ */
+final class VirtualThreads {
+  private static final Logger logger = LogManager.getLogger(VirtualThreads.class);
+
+  private static final Method ofVirtual;
+  private static final Method name;
+  private static final Method factory;
+  private static final Method newThreadPerTaskExecutor;
+
+  static {
+    Method ofVirtualMethod = null;
+    Method nameMethod = null;
+    Method factoryMethod = null;
+    Method newThreadPerTaskExecutorMethod = null;
+    try {
+      Class<?> builder = Class.forName("java.lang.Thread$Builder");
+      ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+      nameMethod = builder.getMethod("name", String.class, long.class);
+      factoryMethod = builder.getMethod("factory");
+      newThreadPerTaskExecutorMethod =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (ReflectiveOperationException e) {
+      ofVirtualMethod = null;
+    }
+    ofVirtual = ofVirtualMethod;
+    name = nameMethod;
+    factory = factoryMethod;
+    newThreadPerTaskExecutor = newThreadPerTaskExecutorMethod;
+  }
+
+  private VirtualThreads() {}
+
+  /**
+   * @return Whether the runtime supports virtual threads.
+   */
+  static boolean isSupported() {
+    return ofVirtual != null;
+  }
+
+  /**
+   * @param prefix The prefix of the thread names, followed by a counter.
+   * @return An executor starting a new virtual thread per task, or null if the runtime does not
+   *     support virtual threads.
+   */
+  static ExecutorService newThreadPerTaskExecutor(String prefix) {
+    if (!isSupported()) {
+      logger.warn("Virtual threads require Java 21 or later, using platform threads instead");
+      return null;
+    }
+    try {
+      Object builder = name.invoke(ofVirtual.invoke(null), prefix, 1L);
+      ThreadFactory threadFactory = (ThreadFactory) factory.invoke(builder);
+      return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Could not create virtual threads", e);
+    }
+  }
+}
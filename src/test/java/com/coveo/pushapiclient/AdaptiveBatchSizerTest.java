@@ -0,0 +1,82 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+  private static final int MB = 1024 * 1024;
+  private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void shouldClampInitialBatchSize() {
+    assertEquals(8 * MB, new AdaptiveBatchSizer(MB, 8 * MB, 64 * MB).getBatchSize());
+    assertEquals(MB, new AdaptiveBatchSizer(MB, 8 * MB, 1).getBatchSize());
+  }
+
+  @Test
+  public void successfulUploadsShouldIncreaseBatchSizeAdditively() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 33 * MB, 4 * MB);
+
+    sizer.onUpload(4 * MB, ONE_SECOND, false);
+    assertEquals(5 * MB, sizer.getBatchSize());
+    sizer.onUpload(5 * MB, ONE_SECOND, false);
+    assertEquals(6 * MB, sizer.getBatchSize());
+  }
+
+  @Test
+  public void batchSizeShouldNotExceedMaximum() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 33 * MB, 33 * MB);
+
+    sizer.onUpload(33 * MB, ONE_SECOND, false);
+
+    assertEquals(33 * MB, sizer.getBatchSize());
+  }
+
+  @Test
+  public void throttledUploadShouldHalveBatchSize() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 33 * MB, 16 * MB);
+
+    sizer.onUpload(16 * MB, ONE_SECOND, true);
+    assertEquals(8 * MB, sizer.getBatchSize());
+    sizer.onUpload(8 * MB, ONE_SECOND, true);
+    sizer.onUpload(4 * MB, ONE_SECOND, true);
+    sizer.onUpload(2 * MB, ONE_SECOND, true);
+    sizer.onUpload(MB, ONE_SECOND, true);
+    assertEquals(MB, sizer.getBatchSize());
+  }
+
+  @Test
+  public void slowUploadShouldHalveBatchSize() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 33 * MB, 16 * MB);
+    sizer.onUpload(16 * MB, ONE_SECOND, false);
+    assertEquals(17 * MB, sizer.getBatchSize());
+
+    sizer.onUpload(17 * MB, 10 * ONE_SECOND, false);
+
+    assertEquals(17 * MB / 2, sizer.getBatchSize());
+  }
+
+  @Test
+  public void smallerBatchesAfterThrottlingShouldNotCountAsSlow() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(MB, 33 * MB, 16 * MB);
+    sizer.onUpload(16 * MB, ONE_SECOND, false);
+    sizer.onUpload(17 * MB, ONE_SECOND, true);
+    sizer.onUpload(17 * MB / 2, ONE_SECOND, true);
+    int throttledSize = sizer.getBatchSize();
+
+    // Every upload takes as long as the larger ones, so the smaller batches have a lower throughput
+    for (int i = 0; i < 8; i++) {
+      sizer.onUpload(sizer.getBatchSize(), ONE_SECOND, false);
+    }
+
+    assertEquals(throttledSize + 8 * MB, sizer.getBatchSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectReversedBounds() {
+    new AdaptiveBatchSizer(8 * MB, MB, 4 * MB);
+  }
+}
@@ -1,10 +1,17 @@
 package com.coveo.pushapiclient;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -12,11 +19,13 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandler;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.Logger;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -28,7 +37,7 @@ public class ApiCoreTest {
   @Mock private BackoffOptions backoffOptions;
   @Mock private HttpResponse<String> httpResponse;
 
-  @InjectMocks private ApiCore api;
+  private ApiCore api;
 
   private AutoCloseable closeable;
   private static final String[] headers = {
@@ -65,7 +74,10 @@ public class ApiCoreTest {
 
     when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class))).thenReturn(httpResponse);
     when(httpResponse.request()).thenReturn(httpRequest);
+    when(logger.isDebugEnabled()).thenReturn(true);
     mockBackoffOptions();
+    this.api = new ApiCore(httpClient, logger, backoffOptions);
+    this.api.setRetryBudget(new RetryBudget(0.2, 100));
   }
 
   @After
@@ -94,6 +106,33 @@ public class ApiCoreTest {
     verify(logger, times(1)).error("DELETE response: BAD_REQUEST");
   }
 
+  @Test
+  public void testShouldNotLogSuccessfulResponsesWithoutDebug()
+      throws IOException, InterruptedException, URISyntaxException {
+    this.mockSuccessResponse();
+    when(logger.isDebugEnabled()).thenReturn(false);
+
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    verify(logger, never()).debug(anyString());
+    verify(httpResponse, never()).body();
+  }
+
+  @Test
+  public void testShouldTruncateLoggedResponses()
+      throws IOException, InterruptedException, URISyntaxException {
+    this.mockErrorResponse();
+    when(httpResponse.body()).thenReturn("x".repeat(ResponseBodies.MAX_LOGGED_LENGTH + 10));
+
+    this.api.delete(new URI("https://perdu.com/"), headers);
+
+    verify(logger, times(1))
+        .error(
+            "DELETE response: "
+                + "x".repeat(ResponseBodies.MAX_LOGGED_LENGTH)
+                + "... (10 more characters)");
+  }
+
   @Test
   public void testShouldHandleBackoffOptions()
       throws IOException, InterruptedException, URISyntaxException {
@@ -105,4 +144,278 @@ public class ApiCoreTest {
     verify(logger, times(2)).error("POST status: 429");
     verify(logger, times(2)).error("POST response: THROTTLED_REQUEST");
   }
+
+  @Test
+  public void testShouldCountThrottledResponses()
+      throws IOException, InterruptedException, URISyntaxException {
+    this.mockThrottledResponse();
+
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    assertEquals(2, this.api.getThrottledResponseCount());
+  }
+
+  @Test
+  public void testLastAttemptShouldNotSpendTheRetryBudget() throws Exception {
+    this.mockThrottledResponse();
+    this.api.setRetryBudget(new RetryBudget(0, 2));
+
+    // Each call makes a single retry, so the budget allows a retry to both calls
+    this.api.post(new URI("https://perdu.com/"), headers);
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    verify(httpClient, times(4)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldCountThrottledResponsesPerThread() throws Exception {
+    this.mockThrottledResponse();
+
+    Thread other =
+        new Thread(
+            () -> {
+              try {
+                this.api.post(new URI("https://perdu.com/"), headers);
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    other.start();
+    other.join();
+
+    assertEquals(2, this.api.getThrottledResponseCount());
+    assertEquals(0, this.api.getThrottledResponseCountOnCurrentThread());
+    this.api.post(new URI("https://perdu.com/"), headers);
+    assertEquals(2, this.api.getThrottledResponseCountOnCurrentThread());
+  }
+
+  @Test
+  public void testShouldRetryThrottledAsyncRequests() throws Exception {
+    this.mockThrottledResponse();
+    when(httpClient.sendAsync(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(httpResponse));
+
+    HttpResponse<String> response =
+        this.api.postAsync(new URI("https://perdu.com/"), headers).get(5, TimeUnit.SECONDS);
+
+    assertSame(httpResponse, response);
+    verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), any(BodyHandler.class));
+    verify(logger, times(2)).error("POST status: 429");
+  }
+
+  @Test
+  public void testAsyncRequestFailureShouldCompleteExceptionally() throws Exception {
+    when(httpClient.sendAsync(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+
+    try {
+      this.api
+          .putAsync(new URI("https://perdu.com/"), headers, HttpRequest.BodyPublishers.noBody())
+          .get(5, TimeUnit.SECONDS);
+      fail("Expected the request to fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldRetryServerErrorsOfIdempotentRequests() throws Exception {
+    when(httpResponse.statusCode()).thenReturn(503);
+    when(httpRequest.method()).thenReturn("PUT");
+
+    this.api.put(new URI("https://perdu.com/"), headers, HttpRequest.BodyPublishers.noBody());
+
+    verify(httpClient, times(2)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldNotRetryServerErrorsOfNonIdempotentRequests() throws Exception {
+    when(httpResponse.statusCode()).thenReturn(503);
+    when(httpRequest.method()).thenReturn("POST");
+
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    verify(httpClient, times(1)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldThrowIOExceptionOfNonIdempotentRequests() throws Exception {
+    when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenThrow(new IOException("Connection reset"));
+
+    try {
+      this.api.post(new URI("https://perdu.com/"), headers);
+      fail("Expected the request to fail");
+    } catch (IOException e) {
+      assertEquals("Connection reset", e.getMessage());
+    }
+    verify(httpClient, times(1)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldRetryIOExceptionOfIdempotentRequests() throws Exception {
+    when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenThrow(new IOException("Connection reset"))
+        .thenReturn(httpResponse);
+    this.mockSuccessResponse();
+
+    HttpResponse<String> response = this.api.delete(new URI("https://perdu.com/"), headers);
+
+    assertSame(httpResponse, response);
+    verify(httpClient, times(2)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testShouldCountSuccessfulCallsAfterRetry() throws Exception {
+    when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenThrow(new IOException("Connection reset"))
+        .thenReturn(httpResponse);
+    this.mockSuccessResponse();
+
+    this.api.delete(new URI("https://perdu.com/"), headers);
+    this.api.delete(new URI("https://perdu.com/"), headers);
+
+    RetryMetrics metrics = this.api.getRetryMetrics();
+    assertEquals(1, metrics.getRetryAttempts());
+    assertEquals(1, metrics.getSuccessfulCallsAfterRetry());
+    assertEquals(0, metrics.getExhaustedCalls());
+  }
+
+  @Test
+  public void testShouldCountExhaustedCalls() throws Exception {
+    when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenThrow(new IOException("Connection reset"));
+
+    try {
+      this.api.delete(new URI("https://perdu.com/"), headers);
+      fail("Expected the request to fail");
+    } catch (IOException e) {
+      // Expected
+    }
+
+    RetryMetrics metrics = this.api.getRetryMetrics();
+    assertEquals(1, metrics.getRetryAttempts());
+    assertEquals(0, metrics.getSuccessfulCallsAfterRetry());
+    assertEquals(1, metrics.getExhaustedCalls());
+  }
+
+  @Test
+  public void testShouldCountThrottledCallsThatExhaustedTheirRetries() throws Exception {
+    this.mockThrottledResponse();
+
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    RetryMetrics metrics = this.api.getRetryMetrics();
+    assertEquals(1, metrics.getRetryAttempts());
+    assertEquals(1, metrics.getExhaustedCalls());
+  }
+
+  @Test
+  public void testShouldNotRetryOnceTheBudgetIsSpent() throws Exception {
+    this.mockThrottledResponse();
+    this.api.setRetryBudget(new RetryBudget(0, 0));
+
+    this.api.post(new URI("https://perdu.com/"), headers);
+
+    verify(httpClient, times(1)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testOpenCircuitShouldFailFastUntilProbeSucceeds() throws Exception {
+    URI batch =
+        new URI(
+            "https://api.cloud.coveo.com/push/v1/organizations/org/sources/src/documents/batch");
+    when(httpResponse.statusCode()).thenReturn(503);
+    when(httpRequest.method()).thenReturn("POST");
+    this.api.setCircuitBreakerOptions(
+        new CircuitBreakerOptionsBuilder()
+            .withSlidingWindowSize(2)
+            .withMinimumNumberOfCalls(2)
+            .withWaitDurationInOpenState(60000)
+            .withPermittedCallsInHalfOpenState(1)
+            .build());
+
+    this.api.post(batch, headers);
+    this.api.post(batch, headers);
+    try {
+      this.api.post(batch, headers);
+      fail("Expected the circuit to be open");
+    } catch (CircuitOpenException e) {
+      assertEquals(EndpointFamily.DOCUMENTS, e.getEndpointFamily());
+    }
+    verify(httpClient, times(2)).send(any(HttpRequest.class), any(BodyHandler.class));
+
+    // Stands for the wait in the open state elapsing
+    this.api.getCircuitBreaker(EndpointFamily.DOCUMENTS).transitionToHalfOpenState();
+    assertEquals(
+        CircuitBreaker.State.HALF_OPEN, this.api.getCircuitBreakerState(EndpointFamily.DOCUMENTS));
+    when(httpResponse.statusCode()).thenReturn(200);
+    this.api.post(batch, headers);
+
+    assertEquals(
+        CircuitBreaker.State.CLOSED, this.api.getCircuitBreakerState(EndpointFamily.DOCUMENTS));
+    verify(httpClient, times(3)).send(any(HttpRequest.class), any(BodyHandler.class));
+  }
+
+  @Test
+  public void testUnexpectedFailureShouldNotUseUpAHalfOpenProbe() throws Exception {
+    URI batch =
+        new URI(
+            "https://api.cloud.coveo.com/push/v1/organizations/org/sources/src/documents/batch");
+    when(httpResponse.statusCode()).thenReturn(200);
+    when(httpRequest.method()).thenReturn("POST");
+    this.api.setCircuitBreakerOptions(
+        new CircuitBreakerOptionsBuilder().withPermittedCallsInHalfOpenState(1).build());
+    CircuitBreaker breaker = this.api.getCircuitBreaker(EndpointFamily.DOCUMENTS);
+    breaker.transitionToOpenState();
+    breaker.transitionToHalfOpenState();
+    when(httpClient.send(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenThrow(new IllegalArgumentException("Invalid header"))
+        .thenReturn(httpResponse);
+
+    try {
+      this.api.post(batch, headers);
+      fail("Expected the request to fail");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Invalid header", e.getMessage());
+    }
+    this.api.post(batch, headers);
+
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testOpenCircuitShouldOnlyStopItsEndpointFamily() throws Exception {
+    when(httpClient.sendAsync(any(HttpRequest.class), any(BodyHandler.class)))
+        .thenReturn(CompletableFuture.failedFuture(new IOException("Connection reset")));
+    this.api.setCircuitBreakerOptions(
+        new CircuitBreakerOptionsBuilder()
+            .withSlidingWindowSize(2)
+            .withMinimumNumberOfCalls(2)
+            .build());
+
+    URI upload = new URI("https://coveo-nprod-customerdata.s3.amazonaws.com/abc");
+    for (int i = 0; i < 2; i++) {
+      try {
+        this.api.postAsync(upload, headers).get(5, TimeUnit.SECONDS);
+        fail("Expected the request to fail");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+    }
+    try {
+      this.api
+          .putAsync(upload, headers, HttpRequest.BodyPublishers.noBody())
+          .get(5, TimeUnit.SECONDS);
+      fail("Expected the circuit to be open");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CircuitOpenException);
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, this.api.getCircuitBreakerState(EndpointFamily.FILES));
+    assertEquals(
+        CircuitBreaker.State.CLOSED, this.api.getCircuitBreakerState(EndpointFamily.STREAM));
+    verify(httpClient, times(2)).sendAsync(any(HttpRequest.class), any(BodyHandler.class));
+  }
 }
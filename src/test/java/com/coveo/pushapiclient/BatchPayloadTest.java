@@ -0,0 +1,137 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchPayloadTest {
+
+  @Rule public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+  private StreamUpdate streamUpdate;
+
+  @Before
+  public void setUp() {
+    List<DocumentBuilder> addOrUpdate = new ArrayList<>();
+    addOrUpdate.add(
+        new DocumentBuilder("https://my.document.uri/1", "Été à Montréal")
+            .withData("データ ✓")
+            .withMetadataValue("author", "Zoë"));
+    addOrUpdate.add(new DocumentBuilder("https://my.document.uri/2", "Second"));
+
+    List<DeleteDocument> delete = new ArrayList<>();
+    delete.add(new DeleteDocument("https://my.document.uri/3"));
+
+    List<PartialUpdateDocument> partialUpdate = new ArrayList<>();
+    partialUpdate.add(
+        new PartialUpdateDocument(
+            "https://my.document.uri/4",
+            PartialUpdateOperator.FIELDVALUEREPLACE,
+            "field",
+            "value"));
+
+    streamUpdate = new StreamUpdate(addOrUpdate, delete, partialUpdate);
+  }
+
+  private static byte[] readAll(InputStream stream, int bufferSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[bufferSize];
+    int read;
+    while ((read = stream.read(buffer, 0, buffer.length)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testStreamShouldMatchMarshalledRecord() throws IOException {
+    String expected = new Gson().toJson(streamUpdate.marshal());
+    String actual =
+        new String(readAll(streamUpdate.toPayload().openStream(), 8192), StandardCharsets.UTF_8);
+
+    assertEquals(JsonParser.parseString(expected), JsonParser.parseString(actual));
+  }
+
+  @Test
+  public void testContentLengthShouldMatchStreamedBytes() throws IOException {
+    BatchPayload payload = streamUpdate.toPayload();
+    byte[] body = readAll(payload.openStream(), 8192);
+
+    assertEquals(body.length, payload.contentLength());
+  }
+
+  @Test
+  public void testStreamShouldNotDependOnReadSize() throws IOException {
+    byte[] expected = readAll(streamUpdate.toPayload().openStream(), 8192);
+
+    assertArrayEquals(expected, readAll(streamUpdate.toPayload().openStream(), 1));
+    assertArrayEquals(expected, readAll(streamUpdate.toPayload().openStream(), 7));
+
+    ByteArrayOutputStream singleBytes = new ByteArrayOutputStream();
+    InputStream stream = streamUpdate.toPayload().openStream();
+    int value;
+    while ((value = stream.read()) != -1) {
+      singleBytes.write(value);
+    }
+    assertArrayEquals(expected, singleBytes.toByteArray());
+  }
+
+  @Test
+  public void testEmptySections() throws IOException {
+    BatchPayload payload = new BatchUpdate(new ArrayList<>(), new ArrayList<>()).toPayload();
+    String body = new String(readAll(payload.openStream(), 8192), StandardCharsets.UTF_8);
+
+    assertEquals("{\"addOrUpdate\":[],\"delete\":[]}", body);
+    assertEquals(body.length(), payload.contentLength());
+  }
+
+  @Test
+  public void testPayloadWithoutSections() throws IOException {
+    BatchPayload payload = new BatchPayload();
+
+    assertEquals("{}", new String(readAll(payload.openStream(), 8192), StandardCharsets.UTF_8));
+    assertEquals(2, payload.contentLength());
+  }
+
+  @Test
+  public void testSpilledPayloadShouldMatchInMemoryPayload() throws IOException {
+    SpillFile spillFile = new SpillFile(spillDirectory.getRoot().toPath());
+    for (DocumentBuilder document : streamUpdate.getAddOrUpdate()) {
+      spillFile.append("addOrUpdate", document.encode());
+    }
+    for (PartialUpdateDocument document : streamUpdate.getPartialUpdate()) {
+      spillFile.append("partialUpdate", JsonCodec.encode(document, PartialUpdateDocument.class));
+    }
+
+    BatchPayload payload = new StreamUpdate(spillFile).toPayload();
+    byte[] body = readAll(payload.openStream(), 7);
+    String expected =
+        new Gson()
+            .toJson(
+                new StreamUpdate(
+                        streamUpdate.getAddOrUpdate(),
+                        new ArrayList<>(),
+                        streamUpdate.getPartialUpdate())
+                    .marshal());
+
+    assertEquals(
+        JsonParser.parseString(expected),
+        JsonParser.parseString(new String(body, StandardCharsets.UTF_8)));
+    assertEquals(body.length, payload.contentLength());
+
+    spillFile.delete();
+    assertEquals(0, spillDirectory.getRoot().list().length);
+  }
+}
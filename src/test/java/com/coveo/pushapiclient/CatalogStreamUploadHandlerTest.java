@@ -8,9 +8,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.when;
 
-import com.google.gson.JsonObject;
 import java.io.IOException;
 import java.net.http.HttpResponse;
+import java.util.function.Supplier;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -21,7 +21,7 @@ import org.mockito.MockitoAnnotations;
 public class CatalogStreamUploadHandlerTest {
   @Mock private StreamEnabledSource mockSource;
   @Mock private PlatformClient mockPlatformClient;
-  @Mock private HttpResponse<String> mockContainerResponse;
+  @Mock private HttpResponse<Supplier<FileContainer>> mockContainerResponse;
   @Mock private HttpResponse<String> mockPushResponse;
   @Mock private StreamUpdate mockStreamUpdate;
 
@@ -35,6 +35,12 @@ public class CatalogStreamUploadHandlerTest {
     when(mockSource.getId()).thenReturn("test-source-id");
   }
 
+  private static FileContainer fileContainer(String fileId) {
+    FileContainer fileContainer = new FileContainer();
+    fileContainer.fileId = fileId;
+    return fileContainer;
+  }
+
   @After
   public void closeService() throws Exception {
     closeable.close();
@@ -43,11 +49,10 @@ public class CatalogStreamUploadHandlerTest {
   @Test
   public void uploadAndPushShouldExecute3StepWorkflowInOrder()
       throws IOException, InterruptedException {
-    when(mockContainerResponse.body()).thenReturn("{\"fileId\":\"test-container-id\"}");
-    when(mockPlatformClient.createFileContainer()).thenReturn(mockContainerResponse);
-    StreamUpdateRecord mockRecord =
-        new StreamUpdateRecord(new JsonObject[] {}, new JsonObject[] {}, new JsonObject[] {});
-    when(mockStreamUpdate.marshal()).thenReturn(mockRecord);
+    when(mockContainerResponse.body()).thenReturn(() -> fileContainer("test-container-id"));
+    when(mockPlatformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(mockContainerResponse);
+    when(mockStreamUpdate.toPayload()).thenReturn(new BatchPayload());
     when(mockPlatformClient.pushFileContainerContentToStreamSource(
             anyString(), any(FileContainer.class)))
         .thenReturn(mockPushResponse);
@@ -55,10 +60,10 @@ public class CatalogStreamUploadHandlerTest {
     HttpResponse<String> result = handler.uploadAndPush(mockStreamUpdate);
 
     InOrder inOrder = inOrder(mockPlatformClient);
-    inOrder.verify(mockPlatformClient).createFileContainer();
+    inOrder.verify(mockPlatformClient).createFileContainer(any(HttpResponse.BodyHandler.class));
     inOrder
         .verify(mockPlatformClient)
-        .uploadContentToFileContainer(any(FileContainer.class), anyString());
+        .uploadContentToFileContainer(any(FileContainer.class), any(BatchPayload.class));
     inOrder
         .verify(mockPlatformClient)
         .pushFileContainerContentToStreamSource(eq("test-source-id"), any(FileContainer.class));
@@ -67,11 +72,10 @@ public class CatalogStreamUploadHandlerTest {
 
   @Test
   public void uploadAndPushShouldReturnPushResponse() throws IOException, InterruptedException {
-    when(mockContainerResponse.body()).thenReturn("{\"fileId\":\"test-id\"}");
-    when(mockPlatformClient.createFileContainer()).thenReturn(mockContainerResponse);
-    StreamUpdateRecord mockRecord =
-        new StreamUpdateRecord(new JsonObject[] {}, new JsonObject[] {}, new JsonObject[] {});
-    when(mockStreamUpdate.marshal()).thenReturn(mockRecord);
+    when(mockContainerResponse.body()).thenReturn(() -> fileContainer("test-id"));
+    when(mockPlatformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(mockContainerResponse);
+    when(mockStreamUpdate.toPayload()).thenReturn(new BatchPayload());
     when(mockPlatformClient.pushFileContainerContentToStreamSource(
             anyString(), any(FileContainer.class)))
         .thenReturn(mockPushResponse);
@@ -84,7 +88,7 @@ public class CatalogStreamUploadHandlerTest {
   @Test(expected = IOException.class)
   public void uploadAndPushShouldPropagateIOExceptionFromCreateFileContainer()
       throws IOException, InterruptedException {
-    when(mockPlatformClient.createFileContainer())
+    when(mockPlatformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
         .thenThrow(new IOException("Container creation failed"));
 
     handler.uploadAndPush(mockStreamUpdate);
@@ -93,12 +97,12 @@ public class CatalogStreamUploadHandlerTest {
   @Test(expected = IOException.class)
   public void uploadAndPushShouldPropagateIOExceptionFromUploadContent()
       throws IOException, InterruptedException {
-    when(mockContainerResponse.body()).thenReturn("{\"fileId\":\"test-id\"}");
-    when(mockPlatformClient.createFileContainer()).thenReturn(mockContainerResponse);
-    StreamUpdateRecord mockRecord =
-        new StreamUpdateRecord(new JsonObject[] {}, new JsonObject[] {}, new JsonObject[] {});
-    when(mockStreamUpdate.marshal()).thenReturn(mockRecord);
-    when(mockPlatformClient.uploadContentToFileContainer(any(FileContainer.class), anyString()))
+    when(mockContainerResponse.body()).thenReturn(() -> fileContainer("test-id"));
+    when(mockPlatformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(mockContainerResponse);
+    when(mockStreamUpdate.toPayload()).thenReturn(new BatchPayload());
+    when(mockPlatformClient.uploadContentToFileContainer(
+            any(FileContainer.class), any(BatchPayload.class)))
         .thenThrow(new IOException("Upload failed"));
 
     handler.uploadAndPush(mockStreamUpdate);
@@ -107,11 +111,10 @@ public class CatalogStreamUploadHandlerTest {
   @Test(expected = IOException.class)
   public void uploadAndPushShouldPropagateIOExceptionFromPush()
       throws IOException, InterruptedException {
-    when(mockContainerResponse.body()).thenReturn("{\"fileId\":\"test-id\"}");
-    when(mockPlatformClient.createFileContainer()).thenReturn(mockContainerResponse);
-    StreamUpdateRecord mockRecord =
-        new StreamUpdateRecord(new JsonObject[] {}, new JsonObject[] {}, new JsonObject[] {});
-    when(mockStreamUpdate.marshal()).thenReturn(mockRecord);
+    when(mockContainerResponse.body()).thenReturn(() -> fileContainer("test-id"));
+    when(mockPlatformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(mockContainerResponse);
+    when(mockStreamUpdate.toPayload()).thenReturn(new BatchPayload());
     when(mockPlatformClient.pushFileContainerContentToStreamSource(
             anyString(), any(FileContainer.class)))
         .thenThrow(new IOException("Push failed"));
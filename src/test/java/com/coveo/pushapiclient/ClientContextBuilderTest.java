@@ -0,0 +1,65 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.*;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientContextBuilderTest {
+
+  private ClientContextBuilder clientContextBuilder;
+
+  @Before
+  public void setup() {
+    clientContextBuilder = new ClientContextBuilder();
+  }
+
+  @Test
+  public void testWithDefaultValues() {
+    HttpClient httpClient = clientContextBuilder.build().getHttpClient();
+    assertEquals(HttpClient.Version.HTTP_2, httpClient.version());
+    assertEquals(Duration.ofMillis(10000), httpClient.connectTimeout().get());
+    assertFalse(httpClient.executor().isPresent());
+  }
+
+  @Test
+  public void testWithNonDefaultValues() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      HttpClient httpClient =
+          clientContextBuilder
+              .withHttpVersion(HttpClient.Version.HTTP_1_1)
+              .withConnectTimeout(2000)
+              .withExecutor(executor)
+              .build()
+              .getHttpClient();
+      assertEquals(HttpClient.Version.HTTP_1_1, httpClient.version());
+      assertEquals(Duration.ofMillis(2000), httpClient.connectTimeout().get());
+      assertSame(executor, httpClient.executor().map(Executor.class::cast).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWithInvalidConnectTimeout() {
+    clientContextBuilder.withConnectTimeout(0).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWithNullHttpVersion() {
+    clientContextBuilder.withHttpVersion(null).build();
+  }
+
+  @Test
+  public void testDefaultContextShouldBeShared() {
+    assertSame(ClientContext.getDefault(), ClientContext.getDefault());
+    assertSame(
+        ClientContext.getDefault().getHttpClient(), ClientContext.getDefault().getHttpClient());
+  }
+}
@@ -0,0 +1,154 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.coveo.pushapiclient.exceptions.NoOpenStreamException;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.logging.log4j.core.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class ConcurrentStreamServiceInternalTest {
+  @Mock private StreamEnabledSource source;
+
+  @Mock private DocumentUploadQueue firstStripe;
+
+  @Mock private DocumentUploadQueue secondStripe;
+
+  @Mock private PlatformClient platformClient;
+
+  @Mock private Logger logger;
+
+  @Mock private HttpResponse<String> httpResponse;
+
+  private ConcurrentStreamServiceInternal service;
+  private AutoCloseable closeable;
+  private DocumentBuilder documentA;
+  private DocumentBuilder documentB;
+
+  @Before
+  public void setUp() throws Exception {
+    documentA = new DocumentBuilder("https://my.document.uri?ref=1", "My first document title");
+    documentB = new DocumentBuilder("https://my.document.uri?ref=2", "My second document title");
+
+    closeable = MockitoAnnotations.openMocks(this);
+
+    when(httpResponse.body()).thenReturn("{\"streamId\": \"stream-id\"}");
+    when(platformClient.openStream("my-source-id")).thenReturn(httpResponse);
+    when(source.getId()).thenReturn("my-source-id");
+
+    service =
+        new ConcurrentStreamServiceInternal(
+            source, List.of(firstStripe, secondStripe), platformClient, logger);
+  }
+
+  @After
+  public void closeService() throws Exception {
+    closeable.close();
+  }
+
+  @Test
+  public void testConcurrentAddsShouldOpenASingleStream() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<String>> streamIds = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        streamIds.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return service.add(documentA);
+                }));
+      }
+      start.countDown();
+      for (Future<String> streamId : streamIds) {
+        assertEquals("stream-id", streamId.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(platformClient, times(1)).openStream("my-source-id");
+  }
+
+  @Test
+  public void testThreadsShouldBeAssignedToStripesInTurn() throws Exception {
+    service.add(documentA);
+    Thread other =
+        new Thread(
+            () -> {
+              try {
+                service.add(documentB);
+              } catch (IOException | InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+            });
+    other.start();
+    other.join();
+    service.add(documentA);
+
+    verify(firstStripe, times(2)).add(documentA);
+    verify(secondStripe, times(1)).add(documentB);
+    verify(firstStripe, never()).add(documentB);
+  }
+
+  @Test
+  public void testCloseShouldFlushEveryStripeThenCloseStream() throws Exception {
+    service.add(documentA);
+    service.close();
+
+    verify(firstStripe, times(1)).flush();
+    verify(secondStripe, times(1)).flush();
+    verify(platformClient, times(1)).closeStream("my-source-id", "stream-id");
+  }
+
+  @Test
+  public void testCloseShouldReportEveryFailedStripe() throws Exception {
+    IOException firstFailure = new IOException("first");
+    IOException secondFailure = new IOException("second");
+    doThrow(firstFailure).when(firstStripe).flush();
+    doThrow(secondFailure).when(secondStripe).flush();
+    service.add(documentA);
+
+    try {
+      service.close();
+      fail("Expected the flush failure");
+    } catch (IOException e) {
+      assertSame(firstFailure, e);
+      assertSame(secondFailure, e.getSuppressed()[0]);
+    }
+    verify(platformClient, never()).closeStream(any(), any());
+  }
+
+  @Test(expected = NoOpenStreamException.class)
+  public void testCloseShouldThrowWhenNoStreamIsOpen() throws Exception {
+    service.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRequireAStripe() {
+    new ConcurrentStreamServiceInternal(
+        source, new ArrayList<>(), mock(PlatformClient.class), logger);
+  }
+}
@@ -0,0 +1,250 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class DocumentSubscriberTest {
+
+  @SuppressWarnings("unchecked")
+  private final HttpResponse<String> closeResponse = mock(HttpResponse.class);
+
+  @Test
+  public void shouldAddEveryItemThenComplete() throws Exception {
+    List<Integer> added = new CopyOnWriteArrayList<>();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(added::add, () -> closeResponse, () -> {}, 4);
+
+    try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      for (int i = 0; i < 100; i++) {
+        publisher.submit(i);
+      }
+    }
+
+    assertSame(closeResponse, subscriber.getResult().get(5, TimeUnit.SECONDS));
+    assertEquals(100, added.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Integer.valueOf(i), added.get(i));
+    }
+  }
+
+  @Test
+  public void shouldNotRequestMoreItemsWhileTheServiceIsBlocked() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicReference<Thread> worker = new AtomicReference<>();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(
+            item -> {
+              worker.set(Thread.currentThread());
+              blocked.countDown();
+              release.await();
+            },
+            () -> closeResponse,
+            () -> {},
+            8);
+    AtomicLong requested = new AtomicLong();
+    subscriber.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(long n) {
+            requested.addAndGet(n);
+          }
+
+          @Override
+          public void cancel() {}
+        });
+
+    for (int i = 0; i < 8; i++) {
+      subscriber.onNext(i);
+    }
+    assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    // Only the worker requests items, and it is parked in the service with the first item
+    awaitParked(worker.get());
+    assertEquals(8, requested.get());
+
+    release.countDown();
+    subscriber.onComplete();
+    subscriber.getResult().get(5, TimeUnit.SECONDS);
+    assertEquals(16, requested.get());
+  }
+
+  @Test
+  public void shouldFailWhenThePublisherFails() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(
+            item -> {},
+            () -> {
+              closed.set(true);
+              return closeResponse;
+            },
+            () -> {});
+    IllegalStateException failure = new IllegalStateException("upstream failed");
+
+    try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(1);
+      publisher.closeExceptionally(failure);
+    }
+
+    try {
+      subscriber.getResult().get(5, TimeUnit.SECONDS);
+      fail("Expected the publisher failure");
+    } catch (ExecutionException e) {
+      assertSame(failure, e.getCause());
+    }
+    assertFalse(closed.get());
+  }
+
+  @Test
+  public void shouldCancelTheSubscriptionWhenAnItemCannotBeAdded() throws Exception {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    AtomicBoolean closed = new AtomicBoolean();
+    AtomicBoolean aborted = new AtomicBoolean();
+    AtomicReference<Thread> worker = new AtomicReference<>();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(
+            item -> {
+              worker.set(Thread.currentThread());
+              throw new IOException("upload failed");
+            },
+            () -> {
+              closed.set(true);
+              return closeResponse;
+            },
+            () -> aborted.set(true));
+    subscriber.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(long n) {}
+
+          @Override
+          public void cancel() {
+            cancelled.set(true);
+          }
+        });
+
+    subscriber.onNext(1);
+
+    try {
+      subscriber.getResult().get(5, TimeUnit.SECONDS);
+      fail("Expected the upload failure");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertTrue(cancelled.get());
+    assertTrue(aborted.get());
+    assertFalse(closed.get());
+    worker.get().join(5000);
+    assertFalse(worker.get().isAlive());
+  }
+
+  @Test
+  public void shouldFailWhenTheServiceThrowsAnError() throws Exception {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    AtomicBoolean aborted = new AtomicBoolean();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(
+            item -> {
+              throw new AssertionError("unexpected item");
+            },
+            () -> closeResponse,
+            () -> aborted.set(true));
+    subscriber.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(long n) {}
+
+          @Override
+          public void cancel() {
+            cancelled.set(true);
+          }
+        });
+
+    subscriber.onNext(1);
+
+    try {
+      subscriber.getResult().get(5, TimeUnit.SECONDS);
+      fail("Expected the error");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof AssertionError);
+    }
+    assertTrue(cancelled.get());
+    assertTrue(aborted.get());
+  }
+
+  @Test
+  public void shouldAbortTheServiceWhenThePublisherFails() throws Exception {
+    AtomicBoolean aborted = new AtomicBoolean();
+    DocumentSubscriber<Integer> subscriber =
+        new DocumentSubscriber<>(item -> {}, () -> closeResponse, () -> aborted.set(true));
+
+    try (SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(1);
+      publisher.closeExceptionally(new IllegalStateException("upstream failed"));
+    }
+
+    try {
+      subscriber.getResult().get(5, TimeUnit.SECONDS);
+      fail("Expected the publisher failure");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertTrue(aborted.get());
+  }
+
+  @Test
+  public void shouldDiscardTheQueuedDocumentsWhenIngestionFails() throws Exception {
+    DocumentUploadQueue queue =
+        new DocumentUploadQueue(batch -> closeResponse, DocumentUploadQueue.DEFAULT_QUEUE_SIZE);
+    DocumentSubscriber<DocumentBuilder> subscriber =
+        new DocumentSubscriber<>(queue::add, () -> closeResponse, queue::discard);
+
+    try (SubmissionPublisher<DocumentBuilder> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(subscriber);
+      publisher.submit(new DocumentBuilder("https://www.perdu.com", "Perdu"));
+      publisher.closeExceptionally(new IllegalStateException("upstream failed"));
+    }
+
+    try {
+      subscriber.getResult().get(5, TimeUnit.SECONDS);
+      fail("Expected the publisher failure");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectInvalidPrefetch() {
+    new DocumentSubscriber<Integer>(item -> {}, () -> closeResponse, () -> {}, 0);
+  }
+
+  private static void awaitParked(Thread thread) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (thread.getState() != Thread.State.WAITING) {
+      assertTrue("The worker never parked", System.nanoTime() < deadline);
+      Thread.onSpinWait();
+    }
+  }
+}
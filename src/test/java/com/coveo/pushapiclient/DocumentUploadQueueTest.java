@@ -2,16 +2,27 @@ package com.coveo.pushapiclient;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -199,4 +210,212 @@ public class DocumentUploadQueueTest {
 
     verify(uploadStrategy, times(0)).apply(any(BatchUpdate.class));
   }
+
+  @Test
+  public void testFlushShouldWaitForConcurrentUploads() throws IOException, InterruptedException {
+    DocumentUploadQueue concurrentQueue =
+        new DocumentUploadQueue(
+            uploadStrategy,
+            new UploadOptionsBuilder()
+                .withBatchSize(TEST_BATCH_SIZE)
+                .withMaxConcurrentUploads(2)
+                .build());
+    CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    AtomicInteger completedUploads = new AtomicInteger();
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenAnswer(
+            invocation -> {
+              firstBatchStarted.countDown();
+              Thread.sleep(100);
+              completedUploads.incrementAndGet();
+              return null;
+            });
+
+    concurrentQueue.add(generateDocumentFromSize(3 * oneMegaByte));
+    concurrentQueue.add(generateDocumentFromSize(3 * oneMegaByte));
+
+    // The first batch is uploading in the background while the second one is being built
+    firstBatchStarted.await();
+    assertFalse(concurrentQueue.isEmpty());
+
+    concurrentQueue.flush();
+
+    assertEquals(2, completedUploads.get());
+    assertTrue(concurrentQueue.isEmpty());
+  }
+
+  @Test
+  public void testShouldUploadDocumentsAsEncodedWhenAdded()
+      throws IOException, InterruptedException {
+    DocumentBuilder document = new DocumentBuilder("https://my.document.uri?ref=4", "Été");
+    byte[] expected = document.encode();
+    ArgumentCaptor<BatchUpdate> batchCaptor = ArgumentCaptor.forClass(BatchUpdate.class);
+
+    queue.add(document);
+    document.withData("Changed after being queued");
+    queue.flush();
+
+    verify(uploadStrategy).apply(batchCaptor.capture());
+    String body =
+        new String(
+            batchCaptor.getValue().toPayload().openStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertEquals(
+        "{\"addOrUpdate\":[" + new String(expected, StandardCharsets.UTF_8) + "],\"delete\":[]}",
+        body);
+  }
+
+  private DocumentUploadQueue lingeringQueue(int lingerMs) {
+    return new DocumentUploadQueue(
+        uploadStrategy,
+        new UploadOptionsBuilder().withBatchSize(TEST_BATCH_SIZE).withLinger(lingerMs).build());
+  }
+
+  @Test
+  public void testShouldUploadPartialBatchOnceLingerElapses() throws Exception {
+    CountDownLatch uploaded = new CountDownLatch(1);
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenAnswer(
+            invocation -> {
+              uploaded.countDown();
+              return null;
+            });
+    DocumentUploadQueue lingering = lingeringQueue(50);
+
+    lingering.add(documentToAdd);
+    lingering.add(documentToDelete);
+
+    assertTrue(uploaded.await(5, TimeUnit.SECONDS));
+    assertTrue(lingering.isEmpty());
+    ArgumentCaptor<BatchUpdate> batch = ArgumentCaptor.forClass(BatchUpdate.class);
+    verify(uploadStrategy, times(1)).apply(batch.capture());
+    assertEquals(1, batch.getValue().getAddOrUpdate().size());
+    assertEquals(1, batch.getValue().getDelete().size());
+  }
+
+  @Test
+  public void testFlushShouldCancelLinger() throws Exception {
+    DocumentUploadQueue lingering = lingeringQueue(60_000);
+
+    lingering.add(documentToAdd);
+    ScheduledFuture<?> lingerTask = lingering.getLingerTask();
+    assertNotNull(lingerTask);
+    lingering.flush();
+
+    assertTrue(lingerTask.isCancelled());
+    assertNull(lingering.getLingerTask());
+    verify(uploadStrategy, times(1)).apply(any(BatchUpdate.class));
+  }
+
+  @Test
+  public void testShouldThrowLingerFailureOnNextAdd() throws Exception {
+    CountDownLatch attempted = new CountDownLatch(1);
+    IOException failure = new IOException("upload failed");
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenAnswer(
+            invocation -> {
+              attempted.countDown();
+              throw failure;
+            });
+    DocumentUploadQueue lingering = lingeringQueue(50);
+    lingering.add(documentToAdd);
+    assertTrue(attempted.await(5, TimeUnit.SECONDS));
+
+    try {
+      // The lingering upload holds the queue until its failure is recorded
+      lingering.add(documentToDelete);
+      fail("Expected the failure of the lingering batch");
+    } catch (IOException e) {
+      assertSame(failure, e);
+    }
+    // The failed batch stays queued, so that the next flush sends it again
+    assertFalse(lingering.isEmpty());
+  }
+
+  @Test
+  public void testFlushShouldSendFailedBatchAgain() throws Exception {
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenThrow(new IOException("upload failed"))
+        .thenReturn(null);
+
+    queue.add(documentToAdd);
+    queue.add(documentToDelete);
+    try {
+      queue.flush();
+      fail("Expected the upload to fail");
+    } catch (IOException e) {
+      assertFalse(queue.isEmpty());
+    }
+    queue.flush();
+
+    assertTrue(queue.isEmpty());
+    ArgumentCaptor<BatchUpdate> batches = ArgumentCaptor.forClass(BatchUpdate.class);
+    verify(uploadStrategy, times(2)).apply(batches.capture());
+    assertEquals(batches.getAllValues().get(0), batches.getAllValues().get(1));
+    assertEquals(1, batches.getValue().getAddOrUpdate().size());
+    assertEquals(1, batches.getValue().getDelete().size());
+  }
+
+  @Test
+  public void testAdaptiveBatchSizeShouldShrinkAfterThrottledUpload() throws Exception {
+    AtomicInteger throttled = new AtomicInteger();
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenAnswer(
+            invocation -> {
+              throttled.incrementAndGet();
+              return null;
+            });
+    DocumentUploadQueue adaptive =
+        new DocumentUploadQueue(
+            uploadStrategy,
+            new UploadOptionsBuilder()
+                .withBatchSize(4 * oneMegaByte)
+                .withAdaptiveBatchSize(oneMegaByte, 8 * oneMegaByte)
+                .build());
+    adaptive.setThrottleCounter(throttled::get);
+    assertEquals(4 * oneMegaByte, adaptive.getCurrentBatchSize());
+
+    adaptive.add(documentToAdd);
+    adaptive.flush();
+
+    assertEquals(2 * oneMegaByte, adaptive.getCurrentBatchSize());
+  }
+
+  @Test
+  public void testAdaptiveBatchSizeShouldOnlyShrinkForTheThrottledUpload() throws Exception {
+    ThreadLocal<AtomicInteger> throttled = ThreadLocal.withInitial(AtomicInteger::new);
+    CountDownLatch firstThrottled = new CountDownLatch(1);
+    CountDownLatch secondStarted = new CountDownLatch(1);
+    AtomicInteger uploads = new AtomicInteger();
+    when(uploadStrategy.apply(any(BatchUpdate.class)))
+        .thenAnswer(
+            invocation -> {
+              if (uploads.incrementAndGet() == 1) {
+                throttled.get().incrementAndGet();
+                firstThrottled.countDown();
+                // Keep the throttled upload running while the other one is measured
+                assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+              } else {
+                secondStarted.countDown();
+                assertTrue(firstThrottled.await(5, TimeUnit.SECONDS));
+              }
+              return null;
+            });
+    DocumentUploadQueue adaptive =
+        new DocumentUploadQueue(
+            uploadStrategy,
+            new UploadOptionsBuilder()
+                .withBatchSize(4 * oneMegaByte)
+                .withAdaptiveBatchSize(oneMegaByte, 8 * oneMegaByte)
+                .withMaxConcurrentUploads(2)
+                .build());
+    adaptive.setThrottleCounter(() -> throttled.get().get());
+
+    adaptive.add(generateDocumentFromSize(2 * oneMegaByte));
+    adaptive.add(generateDocumentFromSize(2 * oneMegaByte));
+    adaptive.flush();
+
+    verify(uploadStrategy, times(2)).apply(any(BatchUpdate.class));
+    // Halved once for the throttled upload and grown for the other, rather than halved twice
+    assertTrue(adaptive.getCurrentBatchSize() > 2 * oneMegaByte);
+  }
 }
@@ -0,0 +1,45 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+import org.junit.Test;
+
+public class EndpointFamilyTest {
+  private static final String PUSH_API = "https://api.cloud.coveo.com/push/v1/organizations/org";
+
+  @Test
+  public void testShouldClassifyPushApiEndpoints() {
+    assertEquals(EndpointFamily.FILES, EndpointFamily.of(URI.create(PUSH_API + "/files")));
+    assertEquals(
+        EndpointFamily.STREAM,
+        EndpointFamily.of(URI.create(PUSH_API + "/sources/src/stream/open")));
+    assertEquals(
+        EndpointFamily.STREAM,
+        EndpointFamily.of(URI.create(PUSH_API + "/sources/src/stream/update?fileId=abc")));
+    assertEquals(
+        EndpointFamily.DOCUMENTS,
+        EndpointFamily.of(URI.create(PUSH_API + "/sources/src/documents/batch?fileId=abc")));
+    assertEquals(
+        EndpointFamily.DOCUMENTS,
+        EndpointFamily.of(URI.create(PUSH_API + "/sources/src/status?statusType=IDLE")));
+    assertEquals(
+        EndpointFamily.PROVIDERS,
+        EndpointFamily.of(URI.create(PUSH_API + "/providers/provider/permissions")));
+  }
+
+  @Test
+  public void testShouldClassifyFileContainerStorageAsFiles() {
+    assertEquals(
+        EndpointFamily.FILES,
+        EndpointFamily.of(URI.create("https://coveo-nprod-customerdata.s3.amazonaws.com/abc")));
+  }
+
+  @Test
+  public void testShouldNotGuardSourceManagement() {
+    assertNull(
+        EndpointFamily.of(
+            URI.create("https://platform.cloud.coveo.com/rest/organizations/org/sources")));
+  }
+}
@@ -0,0 +1,139 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileContainerPoolTest {
+
+  private PlatformClient platformClient;
+  private AtomicLong now;
+  private int created;
+
+  @SuppressWarnings("unchecked")
+  private HttpResponse<Supplier<FileContainer>> containerResponse(String prefix, int statusCode) {
+    HttpResponse<Supplier<FileContainer>> response = mock(HttpResponse.class);
+    String id = prefix + "-" + ++created;
+    when(response.statusCode()).thenReturn(statusCode);
+    FileContainer container = null;
+    if (statusCode / 100 == 2) {
+      container = new FileContainer();
+      container.uploadUri = "https://upload.uri/" + id;
+      container.fileId = id;
+    }
+    FileContainer body = container;
+    when(response.body()).thenReturn(() -> body);
+    return response;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    platformClient = mock(PlatformClient.class);
+    now = new AtomicLong();
+    when(platformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenAnswer(invocation -> containerResponse("created", 201));
+    when(platformClient.createFileContainerAsync(any(HttpResponse.BodyHandler.class)))
+        .thenAnswer(
+            invocation -> CompletableFuture.completedFuture(containerResponse("prefetched", 201)));
+  }
+
+  private FileContainerPool pool(int size) {
+    return new FileContainerPool(
+        platformClient, size, Duration.ofMinutes(50), now::get, Runnable::run);
+  }
+
+  @Test
+  public void emptyPoolShouldCreateEachContainerOnRequest() throws Exception {
+    FileContainerPool pool = pool(0);
+
+    assertEquals("created-1", pool.acquire().fileId);
+    assertEquals("created-2", pool.acquire().fileId);
+
+    verify(platformClient, times(2)).createFileContainer(any(HttpResponse.BodyHandler.class));
+    verify(platformClient, never()).createFileContainerAsync(any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  public void shouldHandOutPrefetchedContainers() throws Exception {
+    FileContainerPool pool = pool(2);
+
+    assertEquals("created-3", pool.acquire().fileId);
+    assertEquals(2, pool.available());
+    assertEquals("prefetched-1", pool.acquire().fileId);
+    assertEquals("prefetched-2", pool.acquire().fileId);
+
+    verify(platformClient, times(1)).createFileContainer(any(HttpResponse.BodyHandler.class));
+    verify(platformClient, times(4)).createFileContainerAsync(any(HttpResponse.BodyHandler.class));
+    assertEquals(2, pool.available());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldDecodePrefetchedContainersOffTheCommonPool() throws Exception {
+    CountDownLatch decoded = new CountDownLatch(1);
+    AtomicReference<Thread> decodingThread = new AtomicReference<>();
+    HttpResponse<Supplier<FileContainer>> response = mock(HttpResponse.class);
+    when(response.body())
+        .thenReturn(
+            () -> {
+              decodingThread.set(Thread.currentThread());
+              decoded.countDown();
+              return null;
+            });
+    when(platformClient.createFileContainerAsync(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(response));
+
+    new FileContainerPool(platformClient, 1).acquire();
+
+    assertTrue(decoded.await(5, TimeUnit.SECONDS));
+    assertTrue(decodingThread.get().getName().startsWith("coveo-push-file-container-"));
+    assertTrue(decodingThread.get().isDaemon());
+  }
+
+  @Test
+  public void shouldDiscardExpiredContainers() throws Exception {
+    FileContainerPool pool = pool(1);
+    pool.acquire();
+    assertEquals(1, pool.available());
+
+    now.addAndGet(Duration.ofMinutes(50).toNanos());
+
+    assertEquals(0, pool.available());
+    assertEquals("created-4", pool.acquire().fileId);
+    verify(platformClient, times(2)).createFileContainer(any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  public void shouldNotPoolFailedPrefetches() throws Exception {
+    CompletableFuture<HttpResponse<Supplier<FileContainer>>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new RuntimeException("connection reset"));
+    when(platformClient.createFileContainerAsync(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(failed)
+        .thenAnswer(
+            invocation -> CompletableFuture.completedFuture(containerResponse("prefetched", 429)));
+    FileContainerPool pool = pool(1);
+
+    pool.acquire();
+    assertEquals(0, pool.available());
+    pool.acquire();
+    assertEquals(0, pool.available());
+
+    verify(platformClient, times(2)).createFileContainer(any(HttpResponse.BodyHandler.class));
+  }
+}
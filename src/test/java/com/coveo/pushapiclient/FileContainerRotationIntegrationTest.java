@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -52,7 +53,9 @@ public class FileContainerRotationIntegrationTest {
     doReturn(API_KEY).when(source).getApiKey();
     doReturn(new PlatformUrl(Environment.PRODUCTION, Region.US)).when(source).getPlatformUrl();
 
-    doAnswer(invocation -> createContainerResponse()).when(platformClient).createFileContainer();
+    doAnswer(invocation -> createContainerResponse())
+        .when(platformClient)
+        .createFileContainer(any(HttpResponse.BodyHandler.class));
     doReturn(createGenericResponse())
         .when(platformClient)
         .uploadContentToFileContainer(any(), anyString());
@@ -71,7 +74,7 @@ public class FileContainerRotationIntegrationTest {
     service.addOrUpdate(createDocument("doc4", 600));
     service.close();
 
-    verify(platformClient, times(4)).createFileContainer();
+    verify(platformClient, times(4)).createFileContainer(any(HttpResponse.BodyHandler.class));
     verify(platformClient, times(4)).pushFileContainerContentToStreamSource(anyString(), any());
   }
 
@@ -83,7 +86,7 @@ public class FileContainerRotationIntegrationTest {
     service.addOrUpdate(createDocument("doc2", 100));
     service.close();
 
-    verify(platformClient, times(1)).createFileContainer();
+    verify(platformClient, times(1)).createFileContainer(any(HttpResponse.BodyHandler.class));
     verify(platformClient, times(1)).pushFileContainerContentToStreamSource(anyString(), any());
   }
 
@@ -97,7 +100,7 @@ public class FileContainerRotationIntegrationTest {
     service.addOrUpdate(createDocument("doc4", 400));
     service.close();
 
-    verify(platformClient, times(3)).createFileContainer();
+    verify(platformClient, times(3)).createFileContainer(any(HttpResponse.BodyHandler.class));
     verify(platformClient, times(3)).pushFileContainerContentToStreamSource(anyString(), any());
   }
 
@@ -146,7 +149,8 @@ public class FileContainerRotationIntegrationTest {
     service.close();
 
     int expectedContainers = 10;
-    verify(platformClient, times(expectedContainers)).createFileContainer();
+    verify(platformClient, times(expectedContainers))
+        .createFileContainer(any(HttpResponse.BodyHandler.class));
     verify(platformClient, times(expectedContainers))
         .pushFileContainerContentToStreamSource(anyString(), any());
   }
@@ -158,14 +162,14 @@ public class FileContainerRotationIntegrationTest {
 
     doAnswer(
             invocation -> {
-              HttpResponse<String> response = createContainerResponse();
+              HttpResponse<Supplier<FileContainer>> response = createContainerResponse();
               String fileId = "container-" + containerCounter.get();
               containerCreationOrder.add(fileId);
               pushCountPerContainer.put(fileId, 0);
               return response;
             })
         .when(platformClient)
-        .createFileContainer();
+        .createFileContainer(any(HttpResponse.BodyHandler.class));
 
     doAnswer(
             invocation -> {
@@ -227,15 +231,16 @@ public class FileContainerRotationIntegrationTest {
   }
 
   @SuppressWarnings("unchecked")
-  private HttpResponse<String> createContainerResponse() {
-    HttpResponse<String> response = mock(HttpResponse.class);
+  private HttpResponse<Supplier<FileContainer>> createContainerResponse() {
+    HttpResponse<Supplier<FileContainer>> response = mock(HttpResponse.class);
     int id = containerCounter.incrementAndGet();
     String responseBody =
         String.format(
             "{\"uploadUri\": \"https://upload.uri/container-%d\", "
                 + "\"fileId\": \"container-%d\"}",
             id, id);
-    doReturn(responseBody).when(response).body();
+    FileContainer container = JsonCodec.GSON.fromJson(responseBody, FileContainer.class);
+    doReturn((Supplier<FileContainer>) () -> container).when(response).body();
     return response;
   }
 
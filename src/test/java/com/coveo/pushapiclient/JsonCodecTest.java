@@ -0,0 +1,137 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class JsonCodecTest {
+
+  /** The reflective marshalling the document adapter replaces, as sent over the wire. */
+  private static JsonElement reflectiveMarshal(Document document) {
+    JsonObject jsonDocument = new Gson().toJsonTree(document).getAsJsonObject();
+    document.metadata.forEach((key, value) -> jsonDocument.add(key, new Gson().toJsonTree(value)));
+    jsonDocument.remove("metadata");
+    if (document.compressedBinaryData != null) {
+      jsonDocument.addProperty("compressedBinaryData", document.compressedBinaryData.getData());
+    }
+    jsonDocument.addProperty("documentId", document.uri);
+    return JsonParser.parseString(new Gson().toJson(jsonDocument));
+  }
+
+  private static String decode(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testDocumentShouldMatchReflectiveMarshalling() {
+    Map<String, Object> dictionary = new HashMap<>();
+    dictionary.put("key", "value");
+    DocumentBuilder builder =
+        new DocumentBuilder("https://my.document.uri?ref=1&lang=<fr>", "Été à Montréal")
+            .withAuthor("Zoë")
+            .withCompressedBinaryData(
+                new CompressedBinaryData("ZGF0YQ==", CompressionType.UNCOMPRESSED))
+            .withFileExtension(".txt")
+            .withMetadataValue("title", "Overridden title")
+            .withMetadataValue("tags", new String[] {"a", "b"})
+            .withMetadataValue("count", 42)
+            .withMetadataValue("sizes", new Integer[] {1, 2})
+            .withMetadata(
+                new HashMap<>() {
+                  {
+                    put("dictionary", dictionary);
+                    put("nothing", null);
+                  }
+                })
+            .withAllowedPermissions(new UserSecurityIdentityBuilder("user@example.com"))
+            .withDeniedPermissions(new GroupSecurityIdentityBuilder("group", "provider"));
+    String encoded = decode(builder.encode());
+    JsonElement expected = reflectiveMarshal(builder.getDocument());
+
+    assertEquals(expected, JsonParser.parseString(encoded));
+    assertEquals(expected, builder.marshalJsonObject());
+    assertEquals("Overridden title", expected.getAsJsonObject().get("title").getAsString());
+    assertFalse("Strings should be HTML-safe", encoded.contains("<fr>"));
+  }
+
+  @Test
+  public void testPartialUpdateDocumentShouldMatchReflectiveMarshalling() {
+    PartialUpdateDocument document =
+        new PartialUpdateDocument(
+            "https://my.document.uri",
+            PartialUpdateOperator.ARRAYAPPEND,
+            "field",
+            new String[] {"value1", "value2"});
+
+    assertEquals(
+        new Gson().toJsonTree(document),
+        JsonParser.parseString(decode(JsonCodec.encode(document, PartialUpdateDocument.class))));
+  }
+
+  @Test
+  public void testFileContainerRoundTrip() {
+    String json =
+        "{\"uploadUri\":\"https://upload.uri\",\"fileId\":\"file-id\",\"unknown\":[1,{}],"
+            + "\"requiredHeaders\":{\"x-amz-server-side-encryption\":\"AES256\"}}";
+
+    FileContainer fileContainer = JsonCodec.GSON.fromJson(json, FileContainer.class);
+
+    assertEquals("https://upload.uri", fileContainer.uploadUri);
+    assertEquals("file-id", fileContainer.fileId);
+    assertEquals("AES256", fileContainer.requiredHeaders.get("x-amz-server-side-encryption"));
+    assertEquals(
+        new Gson().toJsonTree(fileContainer),
+        JsonParser.parseString(JsonCodec.GSON.toJson(fileContainer)));
+  }
+
+  @Test
+  public void testFileContainerWithMissingFields() {
+    FileContainer fileContainer =
+        JsonCodec.GSON.fromJson("{\"fileId\":\"file-id\",\"uploadUri\":null}", FileContainer.class);
+
+    assertEquals("file-id", fileContainer.fileId);
+    assertNull(fileContainer.uploadUri);
+    assertNull(fileContainer.requiredHeaders);
+  }
+
+  @Test
+  public void testCompressedBinaryDataShouldBeWrittenOnce() {
+    DocumentBuilder builder =
+        new DocumentBuilder("https://my.document.uri", "Title")
+            .withCompressedBinaryData(
+                new CompressedBinaryData("ZGF0YQ==", CompressionType.UNCOMPRESSED));
+    builder.getDocument().metadata.put("compressedBinaryData", "from metadata");
+    String encoded = decode(builder.encode());
+
+    assertEquals(
+        encoded.indexOf("\"compressedBinaryData\""),
+        encoded.lastIndexOf("\"compressedBinaryData\""));
+    assertEquals(reflectiveMarshal(builder.getDocument()), JsonParser.parseString(encoded));
+  }
+
+  @Test
+  public void testWrittenTypesShouldStillBeDeserialized() {
+    Document document =
+        JsonCodec.GSON.fromJson(
+            "{\"uri\":\"https://my.document.uri\",\"title\":\"Title\"}", Document.class);
+    PartialUpdateDocument update =
+        JsonCodec.GSON.fromJson(
+            "{\"documentId\":\"https://my.document.uri\",\"operator\":\"FIELDVALUEREPLACE\","
+                + "\"field\":\"price\",\"value\":12}",
+            PartialUpdateDocument.class);
+
+    assertEquals("https://my.document.uri", document.uri);
+    assertEquals("Title", document.title);
+    assertEquals(PartialUpdateOperator.FIELDVALUEREPLACE, update.operator);
+    assertEquals("price", update.field);
+  }
+}
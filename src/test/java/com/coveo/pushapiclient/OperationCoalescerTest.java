@@ -0,0 +1,180 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OperationCoalescerTest {
+  private static final String URI = "https://my.document.uri/1";
+
+  private OperationCoalescer coalescer;
+
+  @Before
+  public void setUp() {
+    coalescer = new OperationCoalescer();
+  }
+
+  private boolean addOrUpdate(DocumentBuilder document) {
+    return coalescer.addOrUpdate(document, document.encode());
+  }
+
+  private boolean delete(DeleteDocument document) {
+    return coalescer.delete(document, JsonCodec.encode(document, DeleteDocument.class));
+  }
+
+  private boolean partialUpdate(PartialUpdateOperator operator, String field, Object value) {
+    PartialUpdateDocument document = new PartialUpdateDocument(URI, operator, field, value);
+    return coalescer.partialUpdate(
+        document, JsonCodec.encode(document, PartialUpdateDocument.class));
+  }
+
+  private static JsonObject uploadedDocument(StreamUpdate update) throws IOException {
+    try (InputStream body = update.toPayload().openStream()) {
+      JsonObject payload =
+          JsonParser.parseReader(new InputStreamReader(body, StandardCharsets.UTF_8))
+              .getAsJsonObject();
+      return payload.getAsJsonArray("addOrUpdate").get(0).getAsJsonObject();
+    }
+  }
+
+  private static int encodedSize(JsonObject document) {
+    return JsonCodec.GSON.toJson(document).getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  @Test
+  public void shouldKeepOnlyTheLastFullUpdate() throws IOException {
+    addOrUpdate(new DocumentBuilder(URI, "First"));
+    addOrUpdate(new DocumentBuilder(URI, "Second"));
+
+    StreamUpdate update = coalescer.toStreamUpdate();
+    assertEquals(1, update.getAddOrUpdate().size());
+    JsonObject document = uploadedDocument(update);
+    assertEquals("Second", document.get("title").getAsString());
+    assertEquals(1, coalescer.getCoalescedOperations());
+    assertEquals(encodedSize(document), coalescer.size());
+  }
+
+  @Test
+  public void shouldFoldPartialUpdatesIntoAPendingFullUpdate() throws IOException {
+    addOrUpdate(
+        new DocumentBuilder(URI, "Title")
+            .withMetadata(Map.of("price", 10, "tags", new String[] {"a", "b"})));
+
+    assertTrue(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "price", 12));
+    assertTrue(partialUpdate(PartialUpdateOperator.ARRAYAPPEND, "tags", new String[] {"c"}));
+    assertTrue(partialUpdate(PartialUpdateOperator.ARRAYREMOVE, "tags", new String[] {"a"}));
+    assertTrue(partialUpdate(PartialUpdateOperator.DICTIONARYPUT, "prices", Map.of("store1", 5)));
+    int estimatedSize = coalescer.size();
+
+    StreamUpdate update = coalescer.toStreamUpdate();
+    assertTrue(update.getPartialUpdate().isEmpty());
+    JsonObject document = uploadedDocument(update);
+    assertEquals(12, document.get("price").getAsInt());
+    assertEquals("[\"b\",\"c\"]", document.get("tags").toString());
+    assertEquals(5, document.getAsJsonObject("prices").get("store1").getAsInt());
+    assertEquals(4, coalescer.getCoalescedOperations());
+    assertTrue(estimatedSize >= encodedSize(document));
+    assertEquals(encodedSize(document), coalescer.size());
+  }
+
+  @Test
+  public void shouldRefusePartialUpdatesThatCannotBeFolded() {
+    addOrUpdate(new DocumentBuilder(URI, "Title").withMetadataValue("price", 10));
+
+    assertFalse(partialUpdate(PartialUpdateOperator.ARRAYAPPEND, "price", new Integer[] {1}));
+    assertFalse(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "data", "new data"));
+    assertEquals(0, coalescer.getCoalescedOperations());
+  }
+
+  @Test
+  public void shouldDropEveryOperationSupersededByADeletion() {
+    addOrUpdate(new DocumentBuilder(URI, "Title"));
+    partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "price", 12);
+    delete(new DeleteDocument(URI));
+
+    StreamUpdate update = coalescer.toStreamUpdate();
+    assertTrue(update.getAddOrUpdate().isEmpty());
+    assertTrue(update.getPartialUpdate().isEmpty());
+    assertEquals(1, update.getDelete().size());
+    assertEquals(2, coalescer.getCoalescedOperations());
+  }
+
+  @Test
+  public void shouldRefuseToReorderOperationsAfterADeletion() {
+    delete(new DeleteDocument(URI, true));
+
+    assertFalse(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "price", 12));
+    assertFalse(addOrUpdate(new DocumentBuilder(URI, "Title")));
+    assertTrue(delete(new DeleteDocument(URI)));
+  }
+
+  @Test
+  public void shouldKeepDeletingTheChildrenOfADeletedDocument() {
+    delete(new DeleteDocument(URI, true));
+    assertTrue(delete(new DeleteDocument(URI)));
+
+    StreamUpdate update = coalescer.toStreamUpdate();
+    assertEquals(1, update.getDelete().size());
+    assertTrue(update.getDelete().get(0).deleteChildren);
+    assertEquals(1, coalescer.getCoalescedOperations());
+    assertEquals(
+        JsonCodec.encode(new DeleteDocument(URI, true), DeleteDocument.class).length,
+        coalescer.size());
+  }
+
+  @Test
+  public void shouldReplaceThePendingPartialUpdatesOfAField() {
+    partialUpdate(PartialUpdateOperator.ARRAYAPPEND, "tags", new String[] {"a"});
+    partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "price", 10);
+    partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "tags", new String[] {"b"});
+
+    StreamUpdate update = coalescer.toStreamUpdate();
+    assertEquals(2, update.getPartialUpdate().size());
+    assertEquals("price", update.getPartialUpdate().get(0).field);
+    assertEquals("tags", update.getPartialUpdate().get(1).field);
+    assertEquals(1, coalescer.getCoalescedOperations());
+  }
+
+  @Test
+  public void shouldMatchFieldNamesIgnoringCase() throws IOException {
+    partialUpdate(PartialUpdateOperator.ARRAYAPPEND, "Tags", new String[] {"a"});
+    partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "tags", new String[] {"b"});
+    assertEquals(1, coalescer.toStreamUpdate().getPartialUpdate().size());
+    assertEquals(1, coalescer.getCoalescedOperations());
+
+    addOrUpdate(new DocumentBuilder(URI, "Title").withMetadataValue("Price", 10));
+    assertTrue(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "PRICE", 12));
+    assertFalse(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "Data", "new data"));
+    assertFalse(partialUpdate(PartialUpdateOperator.FIELDVALUEREPLACE, "DocumentId", "other"));
+
+    JsonObject document = uploadedDocument(coalescer.toStreamUpdate());
+    assertEquals(12, document.get("Price").getAsInt());
+    assertFalse(document.has("PRICE"));
+    assertEquals(encodedSize(document), coalescer.size());
+  }
+
+  @Test
+  public void shouldTrackTheSizeOfThePendingOperations() {
+    DeleteDocument deletion = new DeleteDocument("https://my.document.uri/2");
+    addOrUpdate(new DocumentBuilder(URI, "Title"));
+    delete(deletion);
+    int expected =
+        new DocumentBuilder(URI, "Title").encode().length
+            + JsonCodec.encode(deletion, DeleteDocument.class).length;
+    assertEquals(expected, coalescer.size());
+
+    coalescer.clear();
+    assertTrue(coalescer.isEmpty());
+    assertEquals(0, coalescer.size());
+  }
+}
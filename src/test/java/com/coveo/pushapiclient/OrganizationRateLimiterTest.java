@@ -0,0 +1,48 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OrganizationRateLimiterTest {
+
+  @Test
+  public void shouldShareOneLimiterPerOrganization() {
+    assertSame(
+        OrganizationRateLimiter.forOrganization("shared-org"),
+        OrganizationRateLimiter.forOrganization("shared-org"));
+  }
+
+  @Test
+  public void unconfiguredOrganizationShouldNotBeLimited() {
+    OrganizationRateLimiter limiter = OrganizationRateLimiter.forOrganization("unlimited-org");
+
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(0, limiter.reserve(1024 * 1024));
+    }
+  }
+
+  @Test
+  public void shouldLimitRequestsAndBytes() {
+    OrganizationRateLimiter.configure(
+        "limited-org",
+        new RateLimitOptionsBuilder().withRequestsPerSecond(2).withBytesPerSecond(1000).build());
+    OrganizationRateLimiter limiter = OrganizationRateLimiter.forOrganization("limited-org");
+
+    assertEquals(0, limiter.reserve(500));
+    assertEquals(0, limiter.reserve(-1));
+    assertTrue(limiter.reserve(0) > 0);
+
+    OrganizationRateLimiter.configure(
+        "limited-org", new RateLimitOptionsBuilder().withBytesPerSecond(1000).build());
+    assertEquals(0, limiter.reserve(1000));
+    assertTrue(limiter.reserve(1000) > 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNegativeLimits() {
+    new RateLimitOptionsBuilder().withRequestsPerSecond(-1).build();
+  }
+}
@@ -5,16 +5,26 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
@@ -310,6 +320,32 @@ public class PlatformClientTest {
     assertEquals("", noOrderingParam);
   }
 
+  @Test
+  public void testPushDocumentShouldEncodeDocumentId() throws IOException, InterruptedException {
+    String documentId = "https://perdu.com/search?q=a b&page=2#top";
+    client.pushDocument("my_source", documentString(), documentId, CompressionType.UNCOMPRESSED);
+    verify(httpClient)
+        .send(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+
+    URI uri = argument.getValue().uri();
+    assertEquals(
+        "documentId=https%3A%2F%2Fperdu.com%2Fsearch%3Fq%3Da%20b%26page%3D2%23top"
+            + "&compressionType=UNCOMPRESSED",
+        uri.getRawQuery());
+    assertEquals(null, uri.getFragment());
+  }
+
+  @Test
+  public void testDeleteDocumentShouldEncodeDocumentId() throws IOException, InterruptedException {
+    client.deleteDocument("my_source", "file:///a&b", false);
+    verify(httpClient)
+        .send(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+
+    assertEquals(
+        "documentId=file%3A%2F%2F%2Fa%26b&deleteChildren=false",
+        argument.getValue().uri().getRawQuery());
+  }
+
   @Test
   public void testPushDocument() throws IOException, InterruptedException {
     client.pushDocument(
@@ -352,11 +388,46 @@ public class PlatformClientTest {
     assertApplicationJsonHeader();
   }
 
+  @Test
+  public void testCreateFileContainerAsync() throws Exception {
+    when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    client.createFileContainerAsync().get();
+    verify(httpClient)
+        .sendAsync(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+
+    assertEquals("POST", argument.getValue().method());
+    assertTrue(argument.getValue().uri().getPath().contains("the_org_id/files"));
+    assertAuthorizationHeader();
+    assertApplicationJsonHeader();
+  }
+
+  @Test
+  public void testPushFileContainerContentAsync() throws Exception {
+    when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    client.pushFileContainerContentAsync("my_source", fileContainer()).get();
+    verify(httpClient)
+        .sendAsync(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+
+    assertEquals("PUT", argument.getValue().method());
+    assertTrue(
+        argument
+            .getValue()
+            .uri()
+            .getPath()
+            .contains("the_org_id/sources/my_source/documents/batch"));
+    assertTrue(argument.getValue().uri().getQuery().contains("fileId=the_file_id"));
+    assertAuthorizationHeader();
+    assertApplicationJsonHeader();
+  }
+
   @Test
   public void testUploadContentToFileContainer() throws IOException, InterruptedException {
     client.uploadContentToFileContainer(fileContainer(), new Gson().toJson(batchUpdateRecord()));
-    verify(httpClient)
-        .send(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+    verify(httpClient).send(argument.capture(), any(HttpResponse.BodyHandler.class));
 
     assertEquals("PUT", argument.getValue().method());
     assertTrue(argument.getValue().uri().toString().equals(fileContainer().uploadUri));
@@ -372,6 +443,102 @@ public class PlatformClientTest {
     assertEquals(deleteDocument().documentId, delete.get(0).get("documentId"));
   }
 
+  @Test
+  public void testUploadBatchPayloadToFileContainer() throws IOException, InterruptedException {
+    BatchUpdate batchUpdate =
+        new BatchUpdate(
+            new ArrayList<>() {
+              {
+                add(documentBuilder());
+              }
+            },
+            new ArrayList<>() {
+              {
+                add(deleteDocument());
+              }
+            });
+    client.uploadContentToFileContainer(fileContainer(), batchUpdate.toPayload());
+    verify(httpClient).send(argument.capture(), any(HttpResponse.BodyHandler.class));
+
+    assertEquals("PUT", argument.getValue().method());
+    assertTrue(argument.getValue().uri().toString().equals(fileContainer().uploadUri));
+    assertEquals(
+        batchUpdate.toPayload().contentLength(),
+        argument.getValue().bodyPublisher().get().contentLength());
+
+    Map requestBody = StringSubscriber.toMap(argument.getValue().bodyPublisher());
+    ArrayList<Map> addOrUpdate = (ArrayList<Map>) requestBody.get("addOrUpdate");
+    ArrayList<Map> delete = (ArrayList<Map>) requestBody.get("delete");
+
+    assertEquals(document().uri, addOrUpdate.get(0).get("documentId"));
+    assertEquals(deleteDocument().documentId, delete.get(0).get("documentId"));
+  }
+
+  @Test
+  public void testUploadCompressedBatchPayloadToFileContainer()
+      throws IOException, InterruptedException {
+    BatchUpdate batchUpdate =
+        new BatchUpdate(
+            new ArrayList<>() {
+              {
+                add(documentBuilder());
+              }
+            },
+            new ArrayList<>() {
+              {
+                add(deleteDocument());
+              }
+            });
+    client.setUploadCompressionLevel(6);
+    client.uploadContentToFileContainer(fileContainer(), batchUpdate.toPayload());
+    verify(httpClient).send(argument.capture(), any(HttpResponse.BodyHandler.class));
+
+    assertEquals("gzip", argument.getValue().headers().firstValue("Content-Encoding").get());
+    assertEquals(
+        fileContainer().requiredHeaders.get("foo"),
+        argument.getValue().headers().firstValue("foo").get());
+
+    HttpResponse.BodySubscriber<byte[]> bodySubscriber = HttpResponse.BodySubscribers.ofByteArray();
+    argument
+        .getValue()
+        .bodyPublisher()
+        .get()
+        .subscribe(
+            new Flow.Subscriber<ByteBuffer>() {
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                bodySubscriber.onSubscribe(subscription);
+              }
+
+              @Override
+              public void onNext(ByteBuffer item) {
+                bodySubscriber.onNext(List.of(item));
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                bodySubscriber.onError(throwable);
+              }
+
+              @Override
+              public void onComplete() {
+                bodySubscriber.onComplete();
+              }
+            });
+    byte[] compressed = bodySubscriber.getBody().toCompletableFuture().join();
+    assertEquals(compressed.length, argument.getValue().bodyPublisher().get().contentLength());
+
+    byte[] body = new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes();
+    byte[] expected = batchUpdate.toPayload().openStream().readAllBytes();
+    assertEquals(
+        new String(expected, StandardCharsets.UTF_8), new String(body, StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUploadCompressionLevelShouldBeValid() {
+    client.setUploadCompressionLevel(10);
+  }
+
   @Test
   public void testPushFileContainerContent() throws IOException, InterruptedException {
     client.pushFileContainerContent("my_source", fileContainer());
@@ -521,6 +688,34 @@ public class PlatformClientTest {
     client.setUserAgents(userAgents);
   }
 
+  @Test
+  public void testUserAgentShouldCarryTheFilteredProjectVersion()
+      throws IOException, InterruptedException, XmlPullParserException {
+    client.createSource("the_name", SourceType.PUSH, SourceVisibility.SECURED);
+    verify(httpClient)
+        .send(argument.capture(), any(HttpResponse.BodyHandlers.ofString().getClass()));
+
+    String version = getVersionFromPom();
+    assertEquals(
+        List.of("CoveoSDKJava/" + version),
+        this.argument.getValue().headers().allValues("User-Agent"));
+  }
+
+  @Test
+  public void testSdkVersionShouldFallBackWhenNotRecorded() throws IOException {
+    assertEquals(PlatformClient.UNKNOWN_SDK_VERSION, PlatformClient.readSdkVersion(null));
+    assertEquals(
+        PlatformClient.UNKNOWN_SDK_VERSION,
+        PlatformClient.readSdkVersion(properties("version=${project.version}")));
+    assertEquals(
+        PlatformClient.UNKNOWN_SDK_VERSION, PlatformClient.readSdkVersion(properties("other=1")));
+    assertEquals("1.2.3", PlatformClient.readSdkVersion(properties("version=1.2.3")));
+  }
+
+  private static InputStream properties(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
   private String getVersionFromPom() throws IOException, XmlPullParserException {
     MavenXpp3Reader reader = new MavenXpp3Reader();
     Model model = reader.read(new FileReader("pom.xml"));
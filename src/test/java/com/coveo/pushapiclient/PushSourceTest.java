@@ -0,0 +1,246 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class PushSourceTest {
+  @Mock private PlatformClient platformClient;
+  @Mock private HttpResponse<Supplier<FileContainer>> fileContainerResponse;
+  @Mock private HttpResponse<String> uploadResponse;
+  @Mock private HttpResponse<String> pushResponse;
+
+  private PushSource source;
+  private AutoCloseable closeable;
+
+  @Before
+  public void setUp() throws Exception {
+    closeable = MockitoAnnotations.openMocks(this);
+    FileContainer fileContainer = new FileContainer();
+    fileContainer.uploadUri = "https://upload.uri";
+    fileContainer.fileId = "the_file_id";
+    when(fileContainerResponse.statusCode()).thenReturn(201);
+    when(fileContainerResponse.body()).thenReturn(() -> fileContainer);
+    when(platformClient.createFileContainer(any(HttpResponse.BodyHandler.class)))
+        .thenReturn(fileContainerResponse);
+    when(uploadResponse.statusCode()).thenReturn(200);
+    when(platformClient.uploadContentToFileContainer(
+            any(FileContainer.class), any(BatchPayload.class)))
+        .thenReturn(uploadResponse);
+    when(platformClient.pushFileContainerContent(eq("my_source"), any(FileContainer.class)))
+        .thenReturn(pushResponse);
+
+    source =
+        new PushSource(
+            "apiKey",
+            new ApiUrl("my_org", "my_source", new PlatformUrlBuilder().build()),
+            platformClient);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(DocumentUploadQueue.BATCH_SIZE_PROPERTY);
+    closeable.close();
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldPushOneBatch() throws IOException, InterruptedException {
+    List<DeleteDocument> documents =
+        List.of(
+            new DeleteDocument("https://my.document.uri/1"),
+            new DeleteDocument("https://my.document.uri/2", true));
+
+    List<HttpResponse<String>> responses = source.deleteDocuments(documents);
+
+    ArgumentCaptor<BatchPayload> payload = ArgumentCaptor.forClass(BatchPayload.class);
+    verify(platformClient, times(1))
+        .uploadContentToFileContainer(any(FileContainer.class), payload.capture());
+    verify(platformClient, times(0)).deleteDocument(any(), any(), any());
+    assertEquals(List.of(pushResponse), responses);
+
+    String json = read(payload.getValue());
+    assertTrue(json.contains("\"documentId\":\"https://my.document.uri/1\""));
+    assertTrue(json.contains("\"deleteChildren\":true"));
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldSplitBatchesAtTheBatchSize()
+      throws IOException, InterruptedException {
+    System.setProperty(DocumentUploadQueue.BATCH_SIZE_PROPERTY, "1000");
+    source =
+        new PushSource(
+            "apiKey",
+            new ApiUrl("my_org", "my_source", new PlatformUrlBuilder().build()),
+            platformClient);
+    List<DeleteDocument> documents =
+        IntStream.range(0, 50)
+            .mapToObj(i -> new DeleteDocument("https://my.document.uri?ref=" + i))
+            .collect(Collectors.toList());
+
+    List<HttpResponse<String>> responses = source.deleteDocuments(documents);
+
+    assertTrue(responses.size() > 1);
+    assertTrue(responses.size() < documents.size());
+    verify(platformClient, times(responses.size()))
+        .pushFileContainerContent(eq("my_source"), any(FileContainer.class));
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldFollowTheUploadOptions()
+      throws IOException, InterruptedException {
+    CircuitBreakerOptions circuitBreaker = new CircuitBreakerOptionsBuilder().build();
+    UploadOptions uploadOptions =
+        new UploadOptionsBuilder()
+            .withBatchSize(1000)
+            .withMaxConcurrentUploads(4)
+            .withCompressionLevel(6)
+            .withCircuitBreaker(circuitBreaker)
+            .build();
+    source =
+        new PushSource(
+            "apiKey",
+            new ApiUrl("my_org", "my_source", new PlatformUrlBuilder().build()),
+            platformClient,
+            uploadOptions);
+    List<DeleteDocument> documents =
+        IntStream.range(0, 50)
+            .mapToObj(i -> new DeleteDocument("https://my.document.uri?ref=" + i))
+            .collect(Collectors.toList());
+
+    List<HttpResponse<String>> responses = source.deleteDocuments(documents);
+
+    assertTrue(responses.size() > 1);
+    verify(platformClient, times(responses.size()))
+        .pushFileContainerContent(eq("my_source"), any(FileContainer.class));
+    verify(platformClient).setUploadCompressionLevel(6);
+    verify(platformClient).setCircuitBreakerOptions(circuitBreaker);
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldNotPushWithoutDocuments()
+      throws IOException, InterruptedException {
+    List<HttpResponse<String>> responses = source.deleteDocuments(new ArrayList<>());
+
+    assertTrue(responses.isEmpty());
+    verify(platformClient, times(0)).createFileContainer(any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  public void testAddOrUpdateDocumentsShouldSendSmallSetsOneByOne()
+      throws IOException, InterruptedException {
+    when(platformClient.pushDocument(eq("my_source"), any(), any(), any()))
+        .thenReturn(pushResponse);
+    List<DocumentBuilder> documents =
+        List.of(
+            new DocumentBuilder("https://my.document.uri/1", "Title 1"),
+            new DocumentBuilder("https://my.document.uri/2", "Title 2"));
+
+    List<HttpResponse<String>> responses = source.addOrUpdateDocuments(documents);
+
+    assertEquals(2, responses.size());
+    verify(platformClient, times(2)).pushDocument(eq("my_source"), any(), any(), any());
+    verify(platformClient, times(0)).createFileContainer(any(HttpResponse.BodyHandler.class));
+  }
+
+  @Test
+  public void testAddOrUpdateDocumentsShouldBatchLargerSets()
+      throws IOException, InterruptedException {
+    List<DocumentBuilder> documents =
+        IntStream.range(0, 10)
+            .mapToObj(i -> new DocumentBuilder("https://my.document.uri/" + i, "Title " + i))
+            .collect(Collectors.toList());
+
+    List<HttpResponse<String>> responses =
+        source.addOrUpdateDocuments(documents.stream()::iterator);
+
+    ArgumentCaptor<BatchPayload> payload = ArgumentCaptor.forClass(BatchPayload.class);
+    verify(platformClient, times(1))
+        .uploadContentToFileContainer(any(FileContainer.class), payload.capture());
+    verify(platformClient, times(0)).pushDocument(any(), any(), any(), any());
+    assertEquals(List.of(pushResponse), responses);
+
+    String json = read(payload.getValue());
+    assertTrue(json.contains("https://my.document.uri/0"));
+    assertTrue(json.contains("https://my.document.uri/9"));
+  }
+
+  @Test
+  public void testAddOrUpdateDocumentsShouldHonorTheThreshold()
+      throws IOException, InterruptedException {
+    List<DocumentBuilder> documents =
+        List.of(
+            new DocumentBuilder("https://my.document.uri/1", "Title 1"),
+            new DocumentBuilder("https://my.document.uri/2", "Title 2"));
+
+    source.addOrUpdateDocuments(documents, 1);
+
+    verify(platformClient, times(1)).createFileContainer(any(HttpResponse.BodyHandler.class));
+    verify(platformClient, times(0)).pushDocument(any(), any(), any(), any());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddOrUpdateDocumentsShouldRejectANegativeThreshold()
+      throws IOException, InterruptedException {
+    source.addOrUpdateDocuments(
+        List.of(new DocumentBuilder("https://my.document.uri/1", "Title 1")), -1);
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldReportAFailedFileContainerCreation()
+      throws IOException, InterruptedException {
+    when(fileContainerResponse.statusCode()).thenReturn(429);
+    when(fileContainerResponse.body()).thenReturn(() -> null);
+
+    try {
+      source.deleteDocuments(List.of(new DeleteDocument("https://my.document.uri/1")));
+      fail("Expected the creation of the file container to fail");
+    } catch (IOException e) {
+      assertEquals("Could not create a file container. Status code: 429", e.getMessage());
+    }
+    verify(platformClient, times(0))
+        .uploadContentToFileContainer(any(FileContainer.class), any(BatchPayload.class));
+    verify(platformClient, times(0)).pushFileContainerContent(any(), any(FileContainer.class));
+  }
+
+  @Test
+  public void testDeleteDocumentsShouldNotPushAFailedUpload()
+      throws IOException, InterruptedException {
+    when(uploadResponse.statusCode()).thenReturn(403);
+
+    try {
+      source.deleteDocuments(List.of(new DeleteDocument("https://my.document.uri/1")));
+      fail("Expected the upload to the file container to fail");
+    } catch (IOException e) {
+      assertEquals(
+          "Could not upload the batch to its file container. Status code: 403", e.getMessage());
+    }
+    verify(platformClient, times(0)).pushFileContainerContent(any(), any(FileContainer.class));
+  }
+
+  private static String read(BatchPayload payload) throws IOException {
+    try (InputStream body = payload.openStream()) {
+      return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
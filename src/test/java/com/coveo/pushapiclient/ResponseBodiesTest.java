@@ -0,0 +1,74 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ResponseBodiesTest {
+
+  private static <T> T read(HttpResponse.BodyHandler<T> handler, int statusCode, String body)
+      throws Exception {
+    HttpResponse.ResponseInfo responseInfo = mock(HttpResponse.ResponseInfo.class);
+    when(responseInfo.statusCode()).thenReturn(statusCode);
+    HttpResponse.BodySubscriber<T> subscriber = handler.apply(responseInfo);
+    subscriber.onSubscribe(mock(Flow.Subscription.class));
+    subscriber.onNext(List.of(ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8))));
+    subscriber.onComplete();
+    return subscriber.getBody().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void discardingOnSuccessShouldIgnoreSuccessfulBodies() throws Exception {
+    assertEquals("", read(ResponseBodies.discardingOnSuccess(), 200, "<xml>ignored</xml>"));
+  }
+
+  @Test
+  public void discardingOnSuccessShouldKeepErrorBodies() throws Exception {
+    assertEquals(
+        "<Error>AccessDenied</Error>",
+        read(ResponseBodies.discardingOnSuccess(), 403, "<Error>AccessDenied</Error>"));
+  }
+
+  @Test
+  public void jsonShouldDecodeSuccessfulBodies() throws Exception {
+    FileContainer container =
+        read(
+                ResponseBodies.json(FileContainer.class),
+                201,
+                "{\"uploadUri\":\"https://upload.uri/é\",\"fileId\":\"the-file-id\"}")
+            .get();
+
+    assertEquals("https://upload.uri/é", container.uploadUri);
+    assertEquals("the-file-id", container.fileId);
+  }
+
+  @Test
+  public void jsonShouldNotDecodeErrorBodies() throws Exception {
+    assertNull(
+        read(ResponseBodies.json(FileContainer.class), 502, "<html>Bad Gateway</html>").get());
+  }
+
+  @Test
+  public void truncateShouldKeepShortBodies() {
+    assertEquals("short", ResponseBodies.truncate("short"));
+    assertNull(ResponseBodies.truncate(null));
+  }
+
+  @Test
+  public void truncateShouldCutLongBodies() {
+    String body = "a".repeat(ResponseBodies.MAX_LOGGED_LENGTH) + "bcd";
+
+    assertEquals(
+        "a".repeat(ResponseBodies.MAX_LOGGED_LENGTH) + "... (3 more characters)",
+        ResponseBodies.truncate(body));
+  }
+}
@@ -0,0 +1,116 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.vavr.control.Either;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  private final BackoffOptions options = new BackoffOptions(1000, 5, 2, 5000);
+
+  @SuppressWarnings("unchecked")
+  private static HttpResponse<String> response(int status, String retryAfter) {
+    HttpResponse<String> response = mock(HttpResponse.class);
+    when(response.statusCode()).thenReturn(status);
+    Map<String, List<String>> headers =
+        retryAfter != null ? Map.of("Retry-After", List.of(retryAfter)) : Map.of();
+    when(response.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+    return response;
+  }
+
+  @Test
+  public void testBackoffShouldGrowUpToTheMaxInterval() {
+    RetryPolicy policy = new RetryPolicy(this.options, new RetryBudget(0.2, 100));
+
+    for (int i = 0; i < 20; i++) {
+      long first = policy.backoff(1);
+      assertTrue(first >= 500 && first <= 1000);
+      long third = policy.backoff(3);
+      assertTrue(third >= 2000 && third <= 4000);
+      long tenth = policy.backoff(10);
+      assertTrue(tenth >= 2500 && tenth <= 5000);
+    }
+  }
+
+  @Test
+  public void testShouldHonorRetryAfterInSeconds() {
+    RetryPolicy policy =
+        new RetryPolicy(new BackoffOptions(1000, 5, 2, 60000), new RetryBudget(0.2, 100));
+
+    assertEquals(30000, policy.interval(1, Either.right(response(429, "30"))));
+  }
+
+  @Test
+  public void testShouldCapRetryAfterToTheMaxInterval() {
+    RetryPolicy policy = new RetryPolicy(this.options, new RetryBudget(0.2, 100));
+    String date = ZonedDateTime.now().plusDays(1).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+
+    assertEquals(5000, policy.interval(1, Either.right(response(429, "86400"))));
+    assertEquals(5000, policy.interval(1, Either.right(response(429, date))));
+  }
+
+  @Test
+  public void testShouldHonorRetryAfterAsDate() {
+    String date = ZonedDateTime.now().plusSeconds(20).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+
+    long wait = RetryPolicy.retryAfterMillis(response(429, date)).get();
+
+    assertTrue(wait > 10000 && wait <= 20000);
+  }
+
+  @Test
+  public void testShouldIgnoreInvalidRetryAfter() {
+    assertEquals(Optional.empty(), RetryPolicy.retryAfterMillis(response(429, "soon")));
+  }
+
+  @Test
+  public void testShouldRetryServerErrorsOnlyForIdempotentRequests() {
+    RetryPolicy policy = new RetryPolicy(this.options, new RetryBudget(0.2, 100));
+
+    assertTrue(policy.shouldRetry(response(429, null), false));
+    assertTrue(policy.shouldRetry(response(502, null), true));
+    assertFalse(policy.shouldRetry(response(502, null), false));
+    assertFalse(policy.shouldRetry(response(404, null), true));
+  }
+
+  @Test
+  public void testShouldRetryIOExceptionsOnlyForIdempotentRequests() {
+    RetryPolicy policy = new RetryPolicy(this.options, new RetryBudget(0.2, 100));
+    IOException reset = new IOException("Connection reset");
+
+    assertTrue(policy.shouldRetry(new CompletionException(reset), true));
+    assertFalse(policy.shouldRetry(reset, false));
+    assertFalse(policy.shouldRetry(new IllegalStateException(), true));
+  }
+
+  @Test
+  public void testBudgetShouldLimitRetriesToAFractionOfRequests() {
+    RetryBudget budget = new RetryBudget(0.5, 1);
+    RetryPolicy policy = new RetryPolicy(this.options, budget);
+
+    assertTrue(policy.shouldRetry(response(429, null), false));
+    // Deciding alone spends nothing, only scheduling the retry does
+    assertTrue(policy.shouldRetry(response(429, null), false));
+    policy.onRetry();
+    assertFalse(policy.shouldRetry(response(429, null), false));
+
+    policy.onRequest();
+    assertFalse(policy.shouldRetry(response(429, null), false));
+    policy.onRequest();
+    assertTrue(policy.shouldRetry(response(429, null), false));
+  }
+}
@@ -4,16 +4,23 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -247,4 +254,167 @@ public class StreamDocumentUploadQueueTest {
     expectedException.expect(UnsupportedOperationException.class);
     queue.getBatch();
   }
+
+  @Rule public TemporaryFolder spillDirectory = new TemporaryFolder();
+
+  @Test
+  public void testSpillToDiskShouldUploadFromTemporaryFiles()
+      throws IOException, InterruptedException {
+    StreamDocumentUploadQueue spillingQueue =
+        new StreamDocumentUploadQueue(
+            mockHandler,
+            new UploadOptionsBuilder()
+                .withBatchSize(3 * oneMegaByte)
+                .withSpillToDisk(true)
+                .withSpillDirectory(spillDirectory.getRoot().toPath())
+                .build());
+    DocumentBuilder firstBulkyDocument = generateDocumentFromSize(2 * oneMegaByte);
+    DocumentBuilder secondBulkyDocument = generateDocumentFromSize(2 * oneMegaByte);
+    List<String> uploadedBodies = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              StreamUpdate stream = invocation.getArgument(0);
+              assertTrue(stream.getAddOrUpdate().isEmpty());
+              try (InputStream body = stream.toPayload().openStream()) {
+                uploadedBodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+              }
+              return null;
+            })
+        .when(mockHandler)
+        .uploadAndPush(any(StreamUpdate.class));
+
+    spillingQueue.add(firstBulkyDocument);
+    spillingQueue.add(documentToDelete);
+    spillingQueue.add(partialUpdateDocument);
+    assertFalse(spillingQueue.isEmpty());
+    assertEquals(3, spillDirectory.getRoot().list().length);
+    spillingQueue.add(secondBulkyDocument);
+    spillingQueue.flush();
+
+    assertTrue(spillingQueue.isEmpty());
+    assertEquals(0, spillDirectory.getRoot().list().length);
+    assertEquals(2, uploadedBodies.size());
+    assertEquals(
+        JsonParser.parseString(
+            new Gson()
+                .toJson(
+                    new StreamUpdate(
+                            List.of(firstBulkyDocument),
+                            List.of(documentToDelete),
+                            List.of(partialUpdateDocument))
+                        .marshal())),
+        JsonParser.parseString(uploadedBodies.get(0)));
+    assertEquals(
+        JsonParser.parseString(
+            new Gson()
+                .toJson(
+                    new StreamUpdate(List.of(secondBulkyDocument), List.of(), List.of())
+                        .marshal())),
+        JsonParser.parseString(uploadedBodies.get(1)));
+  }
+
+  @Test
+  public void testSpillToDiskShouldKeepFailedBatchForNextFlush()
+      throws IOException, InterruptedException {
+    StreamDocumentUploadQueue spillingQueue =
+        new StreamDocumentUploadQueue(
+            mockHandler,
+            new UploadOptionsBuilder()
+                .withBatchSize(3 * oneMegaByte)
+                .withSpillToDisk(true)
+                .withSpillDirectory(spillDirectory.getRoot().toPath())
+                .build());
+    List<String> uploadedBodies = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              throw new IOException("upload failed");
+            })
+        .doAnswer(
+            invocation -> {
+              StreamUpdate stream = invocation.getArgument(0);
+              try (InputStream body = stream.toPayload().openStream()) {
+                uploadedBodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+              }
+              return null;
+            })
+        .when(mockHandler)
+        .uploadAndPush(any(StreamUpdate.class));
+
+    spillingQueue.add(documentToDelete);
+    try {
+      spillingQueue.flush();
+    } catch (IOException e) {
+      assertEquals("upload failed", e.getMessage());
+    }
+    assertFalse(spillingQueue.isEmpty());
+    assertEquals(1, spillDirectory.getRoot().list().length);
+    spillingQueue.add(partialUpdateDocument);
+    spillingQueue.flush();
+
+    assertTrue(spillingQueue.isEmpty());
+    assertEquals(0, spillDirectory.getRoot().list().length);
+    assertEquals(
+        JsonParser.parseString(
+            new Gson()
+                .toJson(
+                    new StreamUpdate(
+                            List.of(), List.of(documentToDelete), List.of(partialUpdateDocument))
+                        .marshal())),
+        JsonParser.parseString(uploadedBodies.get(0)));
+  }
+
+  @Test
+  public void testCoalescingShouldUploadOnlyTheLastStateOfEachDocument()
+      throws IOException, InterruptedException {
+    StreamDocumentUploadQueue coalescingQueue =
+        new StreamDocumentUploadQueue(
+            mockHandler,
+            new UploadOptionsBuilder().withBatchSize(oneMegaByte).withCoalescing(true).build());
+    List<StreamUpdate> uploadedStreams = new ArrayList<>();
+    doAnswer(
+            invocation -> {
+              uploadedStreams.add(invocation.getArgument(0));
+              return null;
+            })
+        .when(mockHandler)
+        .uploadAndPush(any(StreamUpdate.class));
+    String uri = "https://my.document.uri?ref=2";
+
+    coalescingQueue.add(new DocumentBuilder(uri, "First version"));
+    coalescingQueue.add(
+        new PartialUpdateDocument(uri, PartialUpdateOperator.FIELDVALUEREPLACE, "price", 10));
+    coalescingQueue.add(new DocumentBuilder(uri, "Second version"));
+    coalescingQueue.add(documentToDelete);
+    coalescingQueue.add(documentToDelete);
+    coalescingQueue.flush();
+
+    assertEquals(1, uploadedStreams.size());
+    assertEquals(1, uploadedStreams.get(0).getAddOrUpdate().size());
+    assertEquals(
+        "Second version", uploadedStreams.get(0).getAddOrUpdate().get(0).getDocument().title);
+    assertEquals(List.of(documentToDelete), uploadedStreams.get(0).getDelete());
+    assertEquals(3, coalescingQueue.getCoalescedOperations());
+    assertTrue(coalescingQueue.isEmpty());
+  }
+
+  @Test
+  public void testCoalescingShouldSealTheBatchBeforeAConflictingOperation()
+      throws IOException, InterruptedException {
+    StreamDocumentUploadQueue coalescingQueue =
+        new StreamDocumentUploadQueue(
+            mockHandler,
+            new UploadOptionsBuilder().withBatchSize(oneMegaByte).withCoalescing(true).build());
+    String uri = documentToDelete.documentId;
+    PartialUpdateDocument update =
+        new PartialUpdateDocument(uri, PartialUpdateOperator.FIELDVALUEREPLACE, "price", 10);
+
+    coalescingQueue.add(documentToDelete);
+    coalescingQueue.add(update);
+    coalescingQueue.flush();
+
+    verify(mockHandler, times(1))
+        .uploadAndPush(new StreamUpdate(List.of(), List.of(documentToDelete), List.of()));
+    verify(mockHandler, times(1))
+        .uploadAndPush(new StreamUpdate(List.of(), List.of(), List.of(update)));
+  }
 }
@@ -0,0 +1,47 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+  private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void shouldAllowABurstOfOneSecond() {
+    TokenBucket bucket = new TokenBucket(10, 0);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, bucket.reserve(1, 0));
+    }
+    assertEquals(ONE_SECOND / 10, bucket.reserve(1, 0));
+  }
+
+  @Test
+  public void shouldRefillAtItsRate() {
+    TokenBucket bucket = new TokenBucket(10, 0);
+    bucket.reserve(10, 0);
+
+    assertEquals(0, bucket.reserve(5, ONE_SECOND / 2));
+    assertTrue(bucket.reserve(1, ONE_SECOND / 2) > 0);
+  }
+
+  @Test
+  public void shouldNotAccumulateMoreThanOneSecondOfTokens() {
+    TokenBucket bucket = new TokenBucket(10, 0);
+
+    assertEquals(0, bucket.reserve(10, 60 * ONE_SECOND));
+    assertTrue(bucket.reserve(1, 60 * ONE_SECOND) > 0);
+  }
+
+  @Test
+  public void oversizedReservationShouldWaitInProportion() {
+    TokenBucket bucket = new TokenBucket(1000, 0);
+
+    assertEquals(0, bucket.reserve(1000, 0));
+    assertEquals(3 * ONE_SECOND, bucket.reserve(3000, 0));
+  }
+}
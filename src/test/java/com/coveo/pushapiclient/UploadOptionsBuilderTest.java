@@ -0,0 +1,103 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UploadOptionsBuilderTest {
+
+  private UploadOptionsBuilder uploadOptionsBuilder;
+
+  @Before
+  public void setup() {
+    uploadOptionsBuilder = new UploadOptionsBuilder();
+  }
+
+  @Test
+  public void testWithDefaultValues() {
+    UploadOptions uploadOptions = uploadOptionsBuilder.build();
+    assertEquals(
+        "Should return default batch size",
+        DocumentUploadQueue.DEFAULT_QUEUE_SIZE,
+        uploadOptions.getBatchSize());
+    assertEquals(
+        "Should upload one batch at a time by default", 1, uploadOptions.getMaxConcurrentUploads());
+  }
+
+  @Test
+  public void testWithNonDefaultBatchSize() {
+    UploadOptions uploadOptions = uploadOptionsBuilder.withBatchSize(1024).build();
+    assertEquals(1024, uploadOptions.getBatchSize());
+  }
+
+  @Test
+  public void testWithNonDefaultMaxConcurrentUploads() {
+    UploadOptions uploadOptions = uploadOptionsBuilder.withMaxConcurrentUploads(4).build();
+    assertEquals(4, uploadOptions.getMaxConcurrentUploads());
+  }
+
+  @Test
+  public void testMaxConcurrentUploadsFromSystemProperty() {
+    String originalValue = System.getProperty(UploadOptionsBuilder.MAX_CONCURRENT_UPLOADS_PROPERTY);
+    try {
+      System.setProperty(UploadOptionsBuilder.MAX_CONCURRENT_UPLOADS_PROPERTY, "3");
+      assertEquals(3, uploadOptionsBuilder.build().getMaxConcurrentUploads());
+    } finally {
+      if (originalValue != null) {
+        System.setProperty(UploadOptionsBuilder.MAX_CONCURRENT_UPLOADS_PROPERTY, originalValue);
+      } else {
+        System.clearProperty(UploadOptionsBuilder.MAX_CONCURRENT_UPLOADS_PROPERTY);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectBatchSizeExceeding256MB() {
+    uploadOptionsBuilder.withBatchSize(256 * 1024 * 1024 + 1).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectNonPositiveMaxConcurrentUploads() {
+    uploadOptionsBuilder.withMaxConcurrentUploads(0).build();
+  }
+
+  @Test
+  public void testCompressionShouldBeDisabledByDefault() {
+    assertNull(uploadOptionsBuilder.build().getCompressionLevel());
+  }
+
+  @Test
+  public void testWithCompressionLevel() {
+    assertEquals(
+        Integer.valueOf(9),
+        uploadOptionsBuilder.withCompressionLevel(9).build().getCompressionLevel());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectInvalidCompressionLevel() {
+    uploadOptionsBuilder.withCompressionLevel(0).build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectNegativeFileContainerPrefetch() {
+    uploadOptionsBuilder.withFileContainerPrefetch(-1).build();
+  }
+
+  @Test
+  public void testWithCoalescing() {
+    assertFalse(uploadOptionsBuilder.build().isCoalescing());
+    assertTrue(uploadOptionsBuilder.withCoalescing(true).build().isCoalescing());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testShouldRejectCoalescingWithSpillToDisk() {
+    uploadOptionsBuilder.withCoalescing(true).withSpillToDisk(true).build();
+  }
+
+  @Test
+  public void testWithVirtualThreads() {
+    assertFalse(uploadOptionsBuilder.build().isVirtualThreads());
+    assertTrue(uploadOptionsBuilder.withVirtualThreads(true).build().isVirtualThreads());
+  }
+}
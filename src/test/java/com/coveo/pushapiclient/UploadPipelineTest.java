@@ -0,0 +1,233 @@
+package com.coveo.pushapiclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class UploadPipelineTest {
+
+  @SuppressWarnings("unchecked")
+  private HttpResponse<String> response() {
+    return mock(HttpResponse.class);
+  }
+
+  @Test
+  public void singleSlotShouldUploadOnCallingThread() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(1);
+    Thread caller = Thread.currentThread();
+    HttpResponse<String> response = response();
+
+    pipeline.submit(
+        () -> {
+          assertSame(caller, Thread.currentThread());
+          return response;
+        });
+
+    assertSame(response, pipeline.awaitAll());
+    assertNull(pipeline.awaitAll());
+  }
+
+  @Test(expected = IOException.class)
+  public void singleSlotShouldPropagateFailureImmediately() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(1);
+
+    pipeline.submit(
+        () -> {
+          throw new IOException("Upload failed");
+        });
+  }
+
+  @Test
+  public void shouldUploadBatchesConcurrently() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(2);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+
+    for (int i = 0; i < 2; i++) {
+      pipeline.submit(
+          () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return response();
+          });
+    }
+
+    pipeline.awaitAll();
+  }
+
+  @Test
+  public void shouldBlockWhenEverySlotIsBusy() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger started = new AtomicInteger();
+    UploadPipeline.Upload blockingUpload =
+        () -> {
+          started.incrementAndGet();
+          release.await();
+          return response();
+        };
+
+    pipeline.submit(blockingUpload);
+    pipeline.submit(blockingUpload);
+
+    Thread producer =
+        new Thread(
+            () -> {
+              try {
+                pipeline.submit(blockingUpload);
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    producer.start();
+    producer.join(200);
+
+    assertTrue("Third submission should wait for a free slot", producer.isAlive());
+    assertEquals(2, started.get());
+
+    release.countDown();
+    producer.join(5000);
+    pipeline.awaitAll();
+    assertEquals(3, started.get());
+  }
+
+  @Test
+  public void shouldReturnResponseOfLastSubmittedUpload() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(3);
+    HttpResponse<String> first = response();
+    HttpResponse<String> last = response();
+    CountDownLatch lastDone = new CountDownLatch(1);
+
+    pipeline.submit(
+        () -> {
+          lastDone.await();
+          return first;
+        });
+    pipeline.submit(
+        () -> {
+          lastDone.countDown();
+          return last;
+        });
+
+    assertSame(last, pipeline.awaitAll());
+  }
+
+  @Test
+  public void shouldReportFailuresInSubmissionOrder() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(3);
+    CountDownLatch allSubmitted = new CountDownLatch(1);
+    CountDownLatch secondFailed = new CountDownLatch(1);
+
+    pipeline.submit(
+        () -> {
+          secondFailed.await();
+          throw new IOException("first");
+        });
+    pipeline.submit(
+        () -> {
+          allSubmitted.await();
+          secondFailed.countDown();
+          throw new IOException("second");
+        });
+    pipeline.submit(this::response);
+    allSubmitted.countDown();
+
+    try {
+      pipeline.awaitAll();
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("first", e.getMessage());
+      assertEquals(1, e.getSuppressed().length);
+      assertEquals("second", e.getSuppressed()[0].getMessage());
+    }
+    assertNull(pipeline.awaitAll());
+  }
+
+  @Test
+  public void submitShouldThrowTheFailureOfACompletedUpload() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(2);
+    AtomicInteger accepted = new AtomicInteger();
+    AtomicInteger uploaded = new AtomicInteger();
+
+    pipeline.submit(
+        () -> {
+          throw new IOException("failed");
+        });
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    try {
+      while (System.nanoTime() < deadline) {
+        pipeline.submit(
+            () -> {
+              uploaded.incrementAndGet();
+              return response();
+            });
+        accepted.incrementAndGet();
+      }
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+
+    // The upload refused with the failure never ran, and the failure is only reported once
+    pipeline.awaitAll();
+    assertEquals(accepted.get(), uploaded.get());
+  }
+
+  @Test
+  public void closeShouldReleaseThePoolUntilTheNextUpload() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(2);
+    AtomicReference<Thread> uploadThread = new AtomicReference<>();
+    HttpResponse<String> response = response();
+
+    pipeline.submit(
+        () -> {
+          uploadThread.set(Thread.currentThread());
+          return response();
+        });
+    pipeline.awaitAll();
+    pipeline.close();
+    uploadThread.get().join(5000);
+    assertFalse(uploadThread.get().isAlive());
+
+    pipeline.submit(() -> response);
+    assertSame(response, pipeline.awaitAll());
+    pipeline.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNonPositiveConcurrency() {
+    new UploadPipeline(0);
+  }
+
+  @Test
+  public void virtualThreadsShouldUploadBatchesConcurrently() throws Exception {
+    UploadPipeline pipeline = new UploadPipeline(2, true);
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AtomicInteger uploads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      pipeline.submit(
+          () -> {
+            assertTrue(Thread.currentThread().getName().startsWith("coveo-push-upload-"));
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            uploads.incrementAndGet();
+            return response();
+          });
+    }
+    pipeline.awaitAll();
+
+    assertEquals(2, uploads.get());
+  }
+}